@@ -0,0 +1,76 @@
+package com.webview.capacitor.custom;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Time from building the openWebview intent to the first page finish, with
+ * and without a pre-warmed WebView. The page is a data: URL so the network
+ * stays out of the numbers. Closing the activity is not timed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ColdOpenBenchmark {
+
+    static final String PAGE_URL = "data:text/html,<html><head><title>bench</title></head><body>bench</body></html>";
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void coldOpen() {
+        open(false);
+    }
+
+    @Test
+    public void prewarmedOpen() {
+        open(true);
+    }
+
+    private void open(boolean prewarm) {
+        Context context = ApplicationProvider.getApplicationContext();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            if (prewarm) {
+                state.pauseTiming();
+                InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                        () -> WebViewPool.getInstance(context).prewarm(1));
+                state.resumeTiming();
+            }
+            Intent intent = CustomWebviewPlugin.createIntent(context, PAGE_URL, new JSONObject());
+            ActivityScenario<CustomWebViewActivity> scenario = ActivityScenario.launch(intent);
+            awaitFirstPage(scenario);
+            state.pauseTiming();
+            scenario.close();
+            state.resumeTiming();
+        }
+    }
+
+    private static void awaitFirstPage(ActivityScenario<CustomWebViewActivity> scenario) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        boolean[] finished = {false};
+        while (true) {
+            scenario.onActivity(activity -> finished[0] = activity.getStartupTiming() != null);
+            if (finished[0]) {
+                return;
+            }
+            if (SystemClock.uptimeMillis() > deadline) {
+                throw new AssertionError("Page did not finish loading");
+            }
+            SystemClock.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.webview.capacitor.custom;
+
+import android.content.Intent;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.rules.ActivityScenarioRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Cost of CustomWebViewActivity.configureWebView on a fresh WebView, the
+ * setup every open and every rebuilt session pays. Replacing the WebView
+ * between iterations is not timed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConfigureWebViewBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public ActivityScenarioRule<CustomWebViewActivity> activityRule = new ActivityScenarioRule<>(intent());
+
+    @Test
+    public void configureWebView() {
+        activityRule.getScenario().onActivity(activity -> {
+            BenchmarkState state = benchmarkRule.getState();
+            while (state.keepRunning()) {
+                state.pauseTiming();
+                activity.destroyWebView(activity.getWebView());
+                activity.createWebView();
+                state.resumeTiming();
+                activity.configureWebView();
+            }
+        });
+    }
+
+    // Options that give configureWebView its full workload: cookies, scripts, network capture.
+    private static Intent intent() {
+        try {
+            JSONObject options = new JSONObject("{\"enableCookies\": true, \"captureNetwork\": true,"
+                    + "\"scripts\": [{\"source\": \"window.bench = true;\"}]}");
+            return CustomWebviewPlugin.createIntent(ApplicationProvider.getApplicationContext(),
+                    ColdOpenBenchmark.PAGE_URL, options);
+        } catch (JSONException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
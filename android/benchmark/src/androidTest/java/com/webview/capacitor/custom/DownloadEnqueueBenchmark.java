@@ -0,0 +1,52 @@
+package com.webview.capacitor.custom;
+
+import android.app.Instrumentation;
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Cost of queueing a burst of {@link #BURST} downloads in DownloadScheduler
+ * from the main thread, as a page starting several downloads does. Tasks
+ * finish at once; the scheduler is drained between bursts, untimed, so every
+ * burst starts from an empty queue.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DownloadEnqueueBenchmark {
+
+    private static final int BURST = 20;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void enqueueBurst() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        DownloadScheduler[] scheduler = new DownloadScheduler[1];
+        instrumentation.runOnMainSync(() -> scheduler[0] = DownloadScheduler.getInstance(context));
+        int[] sequence = {0};
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            instrumentation.runOnMainSync(() -> {
+                for (int i = 0; i < BURST; i++) {
+                    int n = sequence[0]++;
+                    scheduler[0].submit("https://bench.test/files/" + n + ".pdf", n + ".pdf",
+                            DownloadScheduler.PRIORITY_NORMAL, Runnable::run);
+                }
+            });
+            state.pauseTiming();
+            instrumentation.waitForIdleSync();
+            state.resumeTiming();
+        }
+    }
+}
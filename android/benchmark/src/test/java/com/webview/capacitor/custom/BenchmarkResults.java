@@ -0,0 +1,86 @@
+package com.webview.capacitor.custom;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures and collects the numbers of one benchmark class, prints them and
+ * writes them to {@code <benchmark.outputDir>/<suite>.json}, tagged with the
+ * plugin release ({@code benchmark.release}), so runs can be compared across
+ * releases. Both properties are set by the Gradle test task; the defaults
+ * suit IDE runs.
+ *
+ * <p>Hand-written JSON: org.json is only a stub in plain JVM tests.</p>
+ */
+final class BenchmarkResults {
+
+    /** One measured run; returns a value derived from the work so it is not optimized away. */
+    interface Workload {
+        int run(int iteration);
+    }
+
+    private final String suite;
+    private final List<String> metrics = new ArrayList<>();
+
+    BenchmarkResults(String suite) {
+        this.suite = suite;
+    }
+
+    BenchmarkResults add(String name, double value, String unit) {
+        metrics.add(String.format(Locale.US, "{\"name\": \"%s\", \"value\": %.3f, \"unit\": \"%s\"}",
+                escape(name), value, escape(unit)));
+        return this;
+    }
+
+    /**
+     * Runs {@code workload} {@code warmupIterations} times, then times
+     * {@code measuredIterations} runs and adds the mean in ns per operation,
+     * where one run performs {@code operations} operations.
+     */
+    BenchmarkResults measure(String name, int warmupIterations, int measuredIterations, int operations,
+                             Workload workload) {
+        int sink = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += workload.run(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            sink += workload.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == Integer.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return add(name, (double) elapsed / measuredIterations / operations, "ns/op");
+    }
+
+    File write() throws IOException {
+        System.out.println(suite + ": " + String.join(", ", metrics));
+        File directory = new File(System.getProperty("benchmark.outputDir", "build/benchmark-results"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File file = new File(directory, suite + ".json");
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write("  \"suite\": \"" + escape(suite) + "\",\n");
+            out.write("  \"release\": \"" + escape(System.getProperty("benchmark.release", "dev")) + "\",\n");
+            out.write("  \"timestamp\": " + System.currentTimeMillis() + ",\n");
+            out.write("  \"jvm\": \"" + escape(System.getProperty("java.vm.name") + " "
+                    + System.getProperty("java.version")) + "\",\n");
+            out.write("  \"metrics\": [\n    " + String.join(",\n    ", metrics) + "\n  ]\n");
+            out.write("}\n");
+        }
+        return file;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,67 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Lookup cost of ContentBlocker with a 100k rule list, for request hosts that
+ * miss every rule (the common case), hit a subdomain of a rule, or share a
+ * suffix with rules without matching. Also reports the compile time. Run with
+ * {@code ./gradlew :benchmark:testReleaseUnitTest --tests '*ContentBlockerBenchmarkTest'}
+ * and read the ns/op lines in the test output or benchmark/build/benchmark-results.
+ */
+public class ContentBlockerBenchmarkTest {
+
+    private static final int RULES = 100_000;
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+    private static final String[] TLDS = {"com", "net", "org", "io", "co.uk", "de"};
+
+    @Test
+    public void lookupCost_100kRules() throws IOException {
+        Random random = new Random(42);
+        String[] domains = new String[RULES];
+        ContentBlocker.Builder builder = new ContentBlocker.Builder();
+        long compileStart = System.nanoTime();
+        for (int i = 0; i < RULES; i++) {
+            domains[i] = randomLabel(random) + "." + randomLabel(random) + "." + TLDS[i % TLDS.length];
+            builder.add(i % 10 == 0 ? domains[i] + "/ads/" : domains[i]);
+        }
+        ContentBlocker blocker = builder.build();
+        double compileMs = (System.nanoTime() - compileStart) / 1e6;
+        assertEquals(RULES, blocker.getRuleCount());
+
+        String[] misses = new String[1024];
+        String[] hits = new String[1024];
+        String[] nearMisses = new String[1024];
+        for (int i = 0; i < misses.length; i++) {
+            misses[i] = "static." + randomLabel(random) + "-site." + TLDS[i % TLDS.length];
+            String domain = domains[random.nextInt(RULES / 10) * 10 + 1];
+            hits[i] = "cdn." + domain;
+            nearMisses[i] = "x" + domain;
+        }
+
+        new BenchmarkResults("ContentBlockerBenchmark")
+                .add("compile", compileMs, "ms")
+                .measure("miss", WARMUP_ITERATIONS, MEASURED_ITERATIONS, 1, lookup(blocker, misses, "/assets/app.js"))
+                .measure("hit", WARMUP_ITERATIONS, MEASURED_ITERATIONS, 1, lookup(blocker, hits, "/pixel.gif"))
+                .measure("nearMiss", WARMUP_ITERATIONS, MEASURED_ITERATIONS, 1, lookup(blocker, nearMisses, "/pixel.gif"))
+                .write();
+    }
+
+    private static BenchmarkResults.Workload lookup(ContentBlocker blocker, String[] hosts, String path) {
+        return i -> blocker.matches(hosts[i & (hosts.length - 1)], path) ? 1 : 0;
+    }
+
+    private static String randomLabel(Random random) {
+        char[] label = new char[5 + random.nextInt(8)];
+        for (int i = 0; i < label.length; i++) {
+            label[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(label);
+    }
+}
@@ -0,0 +1,98 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+
+/**
+ * Per-navigation cost of the download check, comparing the previous
+ * shouldDownloadPdfFromUrl logic with the precompiled DownloadRules matcher.
+ * Run with {@code ./gradlew :benchmark:testReleaseUnitTest --tests '*DownloadRulesBenchmarkTest'}
+ * and read the ns/op lines in the test output or benchmark/build/benchmark-results.
+ */
+public class DownloadRulesBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 50_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    private static final String[] NAVIGATIONS = {
+            "https://portal.example.com/dashboard?tab=overview&page=2",
+            "https://portal.example.com/reports/2024/annual-report.pdf",
+            "https://accounts.example.com/oauth/callback?code=abc123&state=xyz#done",
+            "https://portal.example.com/get?id=991&filename=statement.pdf",
+            "https://portal.example.com/",
+            "https://cdn.example.net/app/main.html?v=20240101&name=home",
+    };
+
+    @Test
+    public void perNavigationCost() throws IOException {
+        DownloadRules rules = DownloadRules.defaults();
+
+        // Both implementations must agree before their cost is compared.
+        for (String url : NAVIGATIONS) {
+            assertEquals(url, legacyShouldDownload(url), rules.matchesUrl(url));
+        }
+
+        new BenchmarkResults("DownloadRulesBenchmark")
+                .measure("legacy", WARMUP_ITERATIONS, MEASURED_ITERATIONS, NAVIGATIONS.length, i -> {
+                    int matches = 0;
+                    for (String url : NAVIGATIONS) {
+                        if (legacyShouldDownload(url)) matches++;
+                    }
+                    return matches;
+                })
+                .measure("compiled", WARMUP_ITERATIONS, MEASURED_ITERATIONS, NAVIGATIONS.length, i -> {
+                    int matches = 0;
+                    for (String url : NAVIGATIONS) {
+                        if (rules.matchesUrl(url)) matches++;
+                    }
+                    return matches;
+                })
+                .write();
+    }
+
+    // JVM stand-in for the former android.net.Uri based check: parse the URL, lowercase
+    // the last path segment, and look up each query key from a freshly allocated array.
+    private static boolean legacyShouldDownload(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getPath();
+        if (path != null) {
+            String[] segments = path.split("/");
+            String last = segments.length > 0 ? segments[segments.length - 1] : null;
+            if (last != null && last.toLowerCase().endsWith(".pdf")) {
+                return true;
+            }
+        }
+
+        for (String queryKey : new String[]{"filename", "file", "name", "download"}) {
+            String value = queryParameter(uri.getRawQuery(), queryKey);
+            if (value != null && value.toLowerCase().endsWith(".pdf")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String queryParameter(String query, String key) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals >= 0 ? pair.substring(0, equals) : pair;
+            if (name.equals(key)) {
+                try {
+                    return URLDecoder.decode(equals >= 0 ? pair.substring(equals + 1) : "", "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
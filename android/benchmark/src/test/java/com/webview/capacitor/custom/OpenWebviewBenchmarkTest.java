@@ -0,0 +1,121 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Cost of the openWebview path without a device: building the activity
+ * intent from the call's options, and CustomWebViewActivity's lifecycle from
+ * that intent under Robolectric. Robolectric's WebView does not render, so
+ * the lifecycle numbers cover the plugin's own work (option parsing, script
+ * registration, WebView setup), not page loading. Run with
+ * {@code ./gradlew :benchmark:testReleaseUnitTest --tests '*OpenWebviewBenchmarkTest'}
+ * and read the lines in the test output or benchmark/build/benchmark-results.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class OpenWebviewBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 5_000;
+    private static final int MEASURED_ITERATIONS = 20_000;
+    private static final int OPENS = 20;
+    private static final String URL = "https://portal.example.com/dashboard";
+
+    // Options of a typical call, with every nested option the intent carries.
+    private static final String OPTIONS = "{" +
+            "\"url\": \"" + URL + "\", \"enableCookies\": true, \"captureNetwork\": true," +
+            "\"headers\": {\"Authorization\": \"Bearer token\"}," +
+            "\"originHeaders\": {\"https://api.example.com\": {\"X-Client\": \"app\"}}," +
+            "\"scripts\": [{\"source\": \"window.app = true;\", \"allowedOrigins\": [\"https://portal.example.com\"]}]," +
+            "\"downloadRules\": {\"extensions\": [\"pdf\", \"zip\"], \"hosts\": [\"*.example.com\"]}," +
+            "\"uploadImages\": {\"maxWidth\": 1600, \"quality\": 80}," +
+            "\"assetCache\": {\"maxSizeMb\": 32}," +
+            "\"sessionId\": \"main\", \"maxLiveSessions\": 2" +
+            "}";
+
+    @Test
+    public void intentBuildingCost() throws JSONException, IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        JSONObject options = new JSONObject(OPTIONS);
+
+        Intent intent = CustomWebviewPlugin.createIntent(context, URL, options);
+        assertEquals(URL, intent.getStringExtra(CustomWebViewActivity.EXTRA_URL));
+        assertTrue(intent.getBooleanExtra(CustomWebViewActivity.EXTRA_ENABLE_COOKIES, false));
+        assertArrayEquals(new String[]{"pdf", "zip"},
+                intent.getStringArrayExtra(CustomWebViewActivity.EXTRA_DOWNLOAD_EXTENSIONS));
+        assertEquals(32L * 1024 * 1024, intent.getLongExtra(CustomWebViewActivity.EXTRA_ASSET_CACHE_MAX_BYTES, 0));
+        assertEquals("main", intent.getStringExtra(CustomWebViewActivity.EXTRA_SESSION_ID));
+
+        new BenchmarkResults("OpenWebviewIntentBenchmark")
+                .measure("createIntent", WARMUP_ITERATIONS, MEASURED_ITERATIONS, 1,
+                        i -> CustomWebviewPlugin.createIntent(context, URL, options).getExtras().size())
+                .write();
+    }
+
+    @Test
+    public void activityLifecycleTiming() throws JSONException, IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        JSONObject options = new JSONObject(OPTIONS);
+        long[] create = new long[OPENS];
+        long[] resume = new long[OPENS];
+        long[] destroy = new long[OPENS];
+
+        for (int i = 0; i < OPENS; i++) {
+            Intent intent = CustomWebviewPlugin.createIntent(context, URL, options);
+            long start = System.nanoTime();
+            ActivityController<CustomWebViewActivity> controller =
+                    Robolectric.buildActivity(CustomWebViewActivity.class, intent).create();
+            create[i] = System.nanoTime() - start;
+
+            CustomWebViewActivity activity = controller.get();
+            assertNotNull(activity.getWebView());
+            assertSame(activity, CustomWebViewActivity.getCurrent());
+
+            start = System.nanoTime();
+            controller.start().resume().visible();
+            resume[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            controller.pause().stop().destroy();
+            destroy[i] = System.nanoTime() - start;
+        }
+
+        // The first open pays for class loading and resource inflation; report both.
+        double firstCreateMs = create[0] / 1e6;
+        double createMs = median(create) / 1e6;
+        double resumeMs = median(resume) / 1e6;
+        double destroyMs = median(destroy) / 1e6;
+        new BenchmarkResults("OpenWebviewLifecycleBenchmark")
+                .add("firstCreate", firstCreateMs, "ms")
+                .add("create", createMs, "ms")
+                .add("startResume", resumeMs, "ms")
+                .add("pauseDestroy", destroyMs, "ms")
+                .write();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
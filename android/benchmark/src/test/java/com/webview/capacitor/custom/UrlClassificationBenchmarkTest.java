@@ -0,0 +1,109 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Per-request cost of the URL checks the webview runs before any network
+ * work: the download check on navigations (URL, then response headers), and
+ * the content blocking and asset cache checks on sub-resources, as
+ * shouldInterceptRequest runs them. Run with
+ * {@code ./gradlew :benchmark:testReleaseUnitTest --tests '*UrlClassificationBenchmarkTest'}
+ * and read the ns/op lines in the test output or benchmark/build/benchmark-results.
+ */
+public class UrlClassificationBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 50_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    private static final String[] NAVIGATIONS = {
+            "https://portal.example.com/dashboard?tab=overview&page=2",
+            "https://portal.example.com/reports/2024/annual-report.pdf",
+            "https://accounts.example.com/oauth/callback?code=abc123&state=xyz#done",
+            "https://portal.example.com/get?id=991",
+    };
+
+    private static final String[][] RESPONSES = {
+            {"text/html; charset=utf-8", null},
+            {"application/pdf", null},
+            {"application/json", null},
+            {"application/octet-stream", "attachment; filename=\"statement.pdf\""},
+    };
+
+    // {host, path} of a typical page's sub-resources.
+    private static final String[][] SUBRESOURCES = {
+            {"portal.example.com", "/static/js/main.4f2a91.js"},
+            {"portal.example.com", "/static/css/app.css?v=12"},
+            {"fonts.gstatic.com", "/s/inter/v12/font.woff2"},
+            {"cdn.example.net", "/img/hero.webp"},
+            {"pagead2.googlesyndication.com", "/pagead/js/adsbygoogle.js"},
+            {"www.google-analytics.com", "/collect"},
+            {"api.example.com", "/v1/session"},
+            {"tracker.ads-example.io", "/pixel.gif"},
+    };
+
+    @Test
+    public void perRequestCost() throws IOException {
+        DownloadRules rules = DownloadRules.defaults();
+        ContentBlocker.Builder builder = new ContentBlocker.Builder();
+        builder.add("||googlesyndication.com^");
+        builder.add("0.0.0.0 www.google-analytics.com");
+        builder.add("ads-example.io");
+        for (int i = 0; i < 5000; i++) {
+            builder.add("tracker" + i + ".example-ads.net");
+        }
+        ContentBlocker blocker = builder.build();
+        Pattern[] cacheable = new Pattern[AssetCache.DEFAULT_PATTERNS.length];
+        for (int i = 0; i < cacheable.length; i++) {
+            cacheable[i] = Pattern.compile(AssetCache.DEFAULT_PATTERNS[i], Pattern.CASE_INSENSITIVE);
+        }
+        String[] subresourceUrls = new String[SUBRESOURCES.length];
+        for (int i = 0; i < SUBRESOURCES.length; i++) {
+            subresourceUrls[i] = "https://" + SUBRESOURCES[i][0] + SUBRESOURCES[i][1];
+        }
+
+        // Sanity check the corpus so a rule change cannot quietly turn the benchmark into a no-op.
+        assertEquals(2, classifyNavigations(rules));
+        assertEquals(33, classifySubresources(blocker, cacheable, subresourceUrls));
+
+        new BenchmarkResults("UrlClassificationBenchmark")
+                .measure("navigation", WARMUP_ITERATIONS, MEASURED_ITERATIONS, NAVIGATIONS.length,
+                        i -> classifyNavigations(rules))
+                .measure("subresource", WARMUP_ITERATIONS, MEASURED_ITERATIONS, SUBRESOURCES.length,
+                        i -> classifySubresources(blocker, cacheable, subresourceUrls))
+                .write();
+    }
+
+    private static int classifyNavigations(DownloadRules rules) {
+        int downloads = 0;
+        for (int i = 0; i < NAVIGATIONS.length; i++) {
+            if (rules.matchesUrl(NAVIGATIONS[i])
+                    || rules.matchesResponse(RESPONSES[i][0], RESPONSES[i][1])) {
+                downloads++;
+            }
+        }
+        return downloads;
+    }
+
+    // Blocked requests count 10, cacheable ones 1: the corpus has three of each.
+    private static int classifySubresources(ContentBlocker blocker, Pattern[] cacheable, String[] urls) {
+        int result = 0;
+        for (int i = 0; i < SUBRESOURCES.length; i++) {
+            if (blocker.matches(SUBRESOURCES[i][0], SUBRESOURCES[i][1])) {
+                result += 10;
+                continue;
+            }
+            for (Pattern pattern : cacheable) {
+                if (pattern.matcher(urls[i]).find()) {
+                    result++;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
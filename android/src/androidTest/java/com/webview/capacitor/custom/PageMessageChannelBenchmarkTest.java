@@ -0,0 +1,171 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares the message channel with the @JavascriptInterface path: throughput
+ * for text and binary payloads, and ping/pong round-trip latency. Results are
+ * logged under the "PageMessageChannelBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PageMessageChannelBenchmarkTest {
+
+    private static final String TAG = "PageMessageChannelBenchmark";
+    private static final String ORIGIN = "https://bench.test";
+    private static final int TEXT_MESSAGES = 5000;
+    private static final int TEXT_BYTES = 1024;
+    private static final int BINARY_MESSAGES = 20;
+    private static final int BINARY_BYTES = 1024 * 1024;
+    private static final int PINGS = 200;
+    private static final String NONCE = PageMessageChannel.newNonce();
+
+    private static final String PAGE = "<html><body><script>" +
+            PageMessageChannel.script(NONCE) +
+            "function text(size) { return new Array(size + 1).join('x'); }" +
+            "function binary(size) { var bytes = new Uint8Array(size); for (var i = 0; i < size; i++) bytes[i] = i; return bytes.buffer; }" +
+            "function base64(buffer) {" +
+            "  var bytes = new Uint8Array(buffer), chunks = [];" +
+            "  for (var i = 0; i < bytes.length; i += 32768) chunks.push(String.fromCharCode.apply(null, bytes.subarray(i, i + 32768)));" +
+            "  return btoa(chunks.join(''));" +
+            "}" +
+            "function interfaceText(n, size) { var m = text(size); for (var i = 0; i < n; i++) Bench.receive(m); }" +
+            "function channelText(n, size) { var m = text(size); for (var i = 0; i < n; i++) CustomWebviewChannel.send(m); }" +
+            "function interfaceBinary(n, size) { for (var i = 0; i < n; i++) Bench.receive(base64(binary(size))); }" +
+            "function channelBinary(n, size) { for (var i = 0; i < n; i++) CustomWebviewChannel.send(binary(size)); }" +
+            "function ping() { Bench.receive('pong'); }" +
+            "CustomWebviewChannel.onMessage(function() { CustomWebviewChannel.send('pong'); });" +
+            "</script></body></html>";
+
+    private final AtomicReference<CountDownLatch> latch = new AtomicReference<>();
+    private WebView webView;
+    private PageMessageChannel channel;
+
+    public class Bench {
+        @JavascriptInterface
+        public void receive(String message) {
+            latch.get().countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Assume.assumeTrue(PageMessageChannel.isSupported());
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        CountDownLatch loaded = new CountDownLatch(1);
+        runOnMainSync(() -> {
+            webView = new WebView(context);
+            webView.getSettings().setJavaScriptEnabled(true);
+            webView.addJavascriptInterface(new Bench(), "Bench");
+            channel = new PageMessageChannel(webView, Collections.singleton(ORIGIN), NONCE, new PageMessageChannel.Listener() {
+                @Override
+                public void onText(String[] messages) {
+                    for (int i = 0; i < messages.length; i++) {
+                        latch.get().countDown();
+                    }
+                }
+
+                @Override
+                public void onBinary(String base64) {
+                    latch.get().countDown();
+                }
+            });
+            webView.setWebViewClient(new WebViewClient() {
+                @Override
+                public void onPageFinished(WebView view, String url) {
+                    channel.connect(url);
+                    loaded.countDown();
+                }
+            });
+            webView.loadDataWithBaseURL(ORIGIN + "/", PAGE, "text/html", "UTF-8", null);
+        });
+        assertTrue("Page did not load", loaded.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        runOnMainSync(() -> {
+            if (channel != null) {
+                channel.close();
+            }
+            if (webView != null) {
+                webView.destroy();
+            }
+        });
+    }
+
+    @Test
+    public void textThroughput() throws InterruptedException {
+        long interfaceNanos = measure(TEXT_MESSAGES, "interfaceText(" + TEXT_MESSAGES + ", " + TEXT_BYTES + ")");
+        long channelNanos = measure(TEXT_MESSAGES, "channelText(" + TEXT_MESSAGES + ", " + TEXT_BYTES + ")");
+        report("text", (long) TEXT_MESSAGES * TEXT_BYTES, interfaceNanos, channelNanos);
+    }
+
+    @Test
+    public void binaryThroughput() throws InterruptedException {
+        long interfaceNanos = measure(BINARY_MESSAGES, "interfaceBinary(" + BINARY_MESSAGES + ", " + BINARY_BYTES + ")");
+        long channelNanos = measure(BINARY_MESSAGES, "channelBinary(" + BINARY_MESSAGES + ", " + BINARY_BYTES + ")");
+        report("binary", (long) BINARY_MESSAGES * BINARY_BYTES, interfaceNanos, channelNanos);
+    }
+
+    @Test
+    public void pingLatency() throws InterruptedException {
+        long[] interfaceNanos = new long[PINGS];
+        long[] channelNanos = new long[PINGS];
+        for (int i = 0; i < PINGS; i++) {
+            interfaceNanos[i] = measure(1, () -> webView.evaluateJavascript("ping()", null));
+            channelNanos[i] = measure(1, () -> channel.post("ping"));
+        }
+        Arrays.sort(interfaceNanos);
+        Arrays.sort(channelNanos);
+        Log.i(TAG, "latency p50/p95 (µs): interface " + interfaceNanos[PINGS / 2] / 1000 + "/" + interfaceNanos[PINGS * 95 / 100] / 1000
+                + ", channel " + channelNanos[PINGS / 2] / 1000 + "/" + channelNanos[PINGS * 95 / 100] / 1000);
+    }
+
+    private long measure(int expected, String script) throws InterruptedException {
+        return measure(expected, () -> webView.evaluateJavascript(script, null));
+    }
+
+    private long measure(int expected, Runnable send) throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(expected);
+        latch.set(received);
+        long start = System.nanoTime();
+        runOnMainSync(send);
+        assertTrue("Timed out waiting for messages", received.await(60, TimeUnit.SECONDS));
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String kind, long bytes, long interfaceNanos, long channelNanos) {
+        Log.i(TAG, kind + " throughput (MB/s): interface " + megabytesPerSecond(bytes, interfaceNanos)
+                + ", channel " + megabytesPerSecond(bytes, channelNanos));
+    }
+
+    private static String megabytesPerSecond(long bytes, long nanos) {
+        return String.format(Locale.US, "%.1f", bytes / (1024.0 * 1024.0) / (nanos / 1e9));
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
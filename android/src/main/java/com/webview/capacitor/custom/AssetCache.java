@@ -0,0 +1,537 @@
+package com.webview.capacitor.custom;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Size-capped LRU disk cache for static sub-resources (scripts, styles, fonts)
+ * served to the WebView through shouldInterceptRequest. Shared across opens.
+ *
+ * <p>Responses marked {@code no-store} or {@code private} are not stored.
+ * Stored ones are served from disk while fresh per {@code Cache-Control} or
+ * {@code Expires}; after that they are revalidated with their {@code ETag}
+ * or {@code Last-Modified}, and refetched when they have neither.</p>
+ */
+final class AssetCache {
+
+    static final long DEFAULT_MAX_BYTES = 50L * 1024 * 1024;
+    static final String[] DEFAULT_PATTERNS = {"\\.(js|mjs|css|woff2?|ttf|otf)(\\?.*)?$"};
+
+    private static final String TAG = "AssetCache";
+    private static final int INDEX_VERSION = 2;
+    private static final String INDEX_FILE = "index.bin";
+    // Response headers worth replaying on a hit; CORS matters for cross-origin fonts.
+    private static final String[] KEPT_HEADERS = {"Access-Control-Allow-Origin", "Timing-Allow-Origin"};
+
+    private static AssetCache instance;
+
+    private static final class Entry {
+        final String url;
+        final String file;
+        final String mimeType;
+        final String encoding;
+        final Map<String, String> headers;
+        final long size;
+        // Validators, null when the response had none.
+        final String etag;
+        final String lastModified;
+        // Epoch ms until which the entry is served without revalidation.
+        final long expiresAt;
+
+        Entry(String url, String file, String mimeType, String encoding, Map<String, String> headers, long size,
+              String etag, String lastModified, long expiresAt) {
+            this.url = url;
+            this.file = file;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        Entry withSize(long size) {
+            return new Entry(url, file, mimeType, encoding, headers, size, etag, lastModified, expiresAt);
+        }
+
+        Entry withExpiresAt(long expiresAt) {
+            return new Entry(url, file, mimeType, encoding, headers, size, etag, lastModified, expiresAt);
+        }
+
+        boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private final File directory;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private List<Pattern> patterns = new ArrayList<>();
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long totalBytes;
+    private boolean loaded;
+    private boolean dirty;
+    private long hits;
+    private long misses;
+
+    private AssetCache(File directory) {
+        this.directory = directory;
+    }
+
+    static synchronized AssetCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AssetCache(new File(context.getCacheDir(), "customwebview/assets"));
+        }
+        return instance;
+    }
+
+    synchronized void configure(String[] cacheablePatterns, long maxBytes) {
+        List<Pattern> compiled = new ArrayList<>();
+        for (String pattern : cacheablePatterns != null ? cacheablePatterns : DEFAULT_PATTERNS) {
+            try {
+                compiled.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
+            } catch (PatternSyntaxException e) {
+                Diagnostics.getInstance().record(Diagnostics.Event.INVALID_OPTION, "assetCache.patterns");
+            }
+        }
+        patterns = compiled;
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        ensureLoaded();
+        trim();
+    }
+
+    synchronized boolean isCacheable(WebResourceRequest request) {
+        if (!"GET".equals(request.getMethod()) || request.isForMainFrame()
+                || request.getRequestHeaders().containsKey("Range")) {
+            return false;
+        }
+        String url = request.getUrl().toString();
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(url).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serves the request from disk, or fetches it and streams the body to the
+     * page while writing it to the cache. {@code extraHeaders} are added to the
+     * request's own headers. Responses other than 200 are handed to the page
+     * as fetched. Returns null to let the WebView load the request itself:
+     * on redirects and failed fetches.
+     */
+    WebResourceResponse fetch(WebResourceRequest request, Map<String, String> extraHeaders) {
+        String url = request.getUrl().toString();
+        Entry stale;
+        synchronized (this) {
+            ensureLoaded();
+            stale = entries.get(url);
+            if (stale != null && stale.expiresAt > System.currentTimeMillis()) {
+                WebResourceResponse cached = serve(stale);
+                if (cached != null) {
+                    return cached;
+                }
+                stale = null;
+            }
+        }
+
+        Map<String, String> requestHeaders = new HashMap<>(request.getRequestHeaders());
+        // The page's own validators refer to the WebView's cache, not this one.
+        removeHeader(requestHeaders, "If-None-Match");
+        removeHeader(requestHeaders, "If-Modified-Since");
+        if (extraHeaders != null) {
+            requestHeaders.putAll(extraHeaders);
+        }
+        if (stale != null && stale.etag != null) {
+            requestHeaders.put("If-None-Match", stale.etag);
+        }
+        if (stale != null && stale.lastModified != null) {
+            requestHeaders.put("If-Modified-Since", stale.lastModified);
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = HttpConnections.open(url, requestHeaders, true);
+            int status = connection.getResponseCode();
+            HttpConnections.storeCookies(connection, url);
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && stale != null) {
+                long freshness = HttpConnections.freshnessMs(connection);
+                connection.disconnect();
+                return revalidated(stale, freshness);
+            }
+            // WebResourceResponse cannot carry redirects; leave those to the WebView.
+            if (status >= 300 && status < 400) {
+                connection.disconnect();
+                return null;
+            }
+            String contentType = connection.getContentType();
+            String mimeType = HttpConnections.mimeType(contentType);
+            String encoding = HttpConnections.charset(contentType);
+            if (status != HttpURLConnection.HTTP_OK) {
+                String reason = connection.getResponseMessage();
+                return new WebResourceResponse(
+                        mimeType,
+                        encoding,
+                        status,
+                        reason == null || reason.isEmpty() ? "OK" : reason,
+                        HttpConnections.responseHeaders(connection),
+                        status >= 400 ? connection.getErrorStream() : connection.getInputStream()
+                );
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (String name : KEPT_HEADERS) {
+                String value = connection.getHeaderField(name);
+                if (value != null) {
+                    headers.put(name, value);
+                }
+            }
+
+            synchronized (this) {
+                misses++;
+            }
+
+            InputStream body = connection.getInputStream();
+            if (HttpConnections.isStorable(connection.getHeaderField("Cache-Control"))) {
+                String file = fileName(url);
+                File temp = new File(directory, file + "." + System.nanoTime() + ".tmp");
+                body = new CachingInputStream(body, temp, new Entry(url, file, mimeType, encoding, headers, 0,
+                        connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                        System.currentTimeMillis() + HttpConnections.freshnessMs(connection)));
+            } else if (stale != null) {
+                synchronized (this) {
+                    remove(stale);
+                }
+            }
+            WebResourceResponse response = new WebResourceResponse(mimeType, encoding, body);
+            response.setResponseHeaders(headers);
+            return response;
+        } catch (IOException e) {
+            Log.w(TAG, "Fetch failed, falling back to the WebView: " + Diagnostics.stripUrl(url), e);
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Serves a fresh cached entry, or null when there is none.
+     */
+    synchronized WebResourceResponse get(String url) {
+        ensureLoaded();
+        Entry entry = entries.get(url);
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return serve(entry);
+    }
+
+    private WebResourceResponse serve(Entry entry) {
+        try {
+            InputStream body = new BufferedInputStream(new FileInputStream(new File(directory, entry.file)));
+            WebResourceResponse response = new WebResourceResponse(entry.mimeType, entry.encoding, body);
+            response.setResponseHeaders(entry.headers);
+            hits++;
+            dirty = true;
+            return response;
+        } catch (IOException e) {
+            remove(entry);
+            return null;
+        }
+    }
+
+    // The server confirmed the stored body; keep it for the new freshness lifetime.
+    private synchronized WebResourceResponse revalidated(Entry stale, long freshness) {
+        if (entries.get(stale.url) != stale) {
+            return null;
+        }
+        Entry entry = stale.withExpiresAt(System.currentTimeMillis() + freshness);
+        entries.put(entry.url, entry);
+        return serve(entry);
+    }
+
+    private static void removeHeader(Map<String, String> headers, String name) {
+        Iterator<String> names = headers.keySet().iterator();
+        while (names.hasNext()) {
+            if (name.equalsIgnoreCase(names.next())) {
+                names.remove();
+            }
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int getEntryCount() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    synchronized long getSizeBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    private synchronized void commit(Entry entry, File temp) {
+        File target = new File(directory, entry.file);
+        Entry previous = entries.remove(entry.url);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            return;
+        }
+        entries.put(entry.url, entry);
+        totalBytes += entry.size;
+        dirty = true;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.size;
+            new File(directory, eldest.file).delete();
+            dirty = true;
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.url);
+        totalBytes -= entry.size;
+        new File(directory, entry.file).delete();
+        dirty = true;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        directory.mkdirs();
+        File index = new File(directory, INDEX_FILE);
+        if (index.exists()) {
+            readIndex(index);
+        }
+        // Drop interrupted writes and files the index no longer knows about.
+        Set<String> known = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            known.add(entry.file);
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().equals(INDEX_FILE) && !known.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private void readIndex(File index) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != INDEX_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String url = in.readUTF();
+                String file = in.readUTF();
+                String mimeType = readNullableUTF(in);
+                String encoding = readNullableUTF(in);
+                int headerCount = in.readByte();
+                Map<String, String> headers = new HashMap<>();
+                for (int h = 0; h < headerCount; h++) {
+                    headers.put(in.readUTF(), in.readUTF());
+                }
+                long size = in.readLong();
+                String etag = readNullableUTF(in);
+                String lastModified = readNullableUTF(in);
+                long expiresAt = in.readLong();
+                if (new File(directory, file).length() == size) {
+                    entries.put(url, new Entry(url, file, mimeType, encoding, headers, size, etag, lastModified, expiresAt));
+                    totalBytes += size;
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable cache index", e);
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    /**
+     * Writes the index (in LRU order) when it changed since the last flush.
+     */
+    synchronized void flush() {
+        if (!loaded || !dirty) {
+            return;
+        }
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(entry.url);
+                out.writeUTF(entry.file);
+                writeNullableUTF(out, entry.mimeType);
+                writeNullableUTF(out, entry.encoding);
+                out.writeByte(entry.headers.size());
+                for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                    out.writeUTF(header.getKey());
+                    out.writeUTF(header.getValue());
+                }
+                out.writeLong(entry.size);
+                writeNullableUTF(out, entry.etag);
+                writeNullableUTF(out, entry.lastModified);
+                out.writeLong(entry.expiresAt);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache index", e);
+            temp.delete();
+            return;
+        }
+        if (temp.renameTo(new File(directory, INDEX_FILE))) {
+            dirty = false;
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String fileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    // Copies bytes to a temp file as the WebView reads them; commits the entry only on a complete read.
+    private final class CachingInputStream extends FilterInputStream {
+        private final File temp;
+        private final Entry pending;
+        private OutputStream out;
+        private long written;
+        private boolean complete;
+
+        CachingInputStream(InputStream in, File temp, Entry pending) throws IOException {
+            super(in);
+            this.temp = temp;
+            this.pending = pending;
+            this.out = new BufferedOutputStream(new FileOutputStream(temp));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                write(new byte[]{(byte) b}, 0, 1);
+            } else {
+                complete = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                write(buffer, offset, count);
+            } else if (count < 0) {
+                complete = true;
+            }
+            return count;
+        }
+
+        private void write(byte[] buffer, int offset, int length) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(buffer, offset, length);
+                written += length;
+            } catch (IOException e) {
+                abandon();
+            }
+        }
+
+        private void abandon() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+            temp.delete();
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (out == null) {
+                return;
+            }
+            if (!complete) {
+                abandon();
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                commit(pending.withSize(written), temp);
+            } catch (IOException e) {
+                out = null;
+                temp.delete();
+            }
+        }
+    }
+}
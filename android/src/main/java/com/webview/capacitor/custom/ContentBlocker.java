@@ -0,0 +1,343 @@
+package com.webview.capacitor.custom;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiled host and path block rules, matched from shouldInterceptRequest.
+ *
+ * <p>A rule is a domain ({@code ads.example.com}, which also blocks its
+ * subdomains) or a domain with a path prefix ({@code example.com/ads/}).
+ * Hosts-file lines ({@code 0.0.0.0 ads.example.com}) and the
+ * {@code ||domain^} form of filter lists are accepted; other filter syntax
+ * is rejected. Rules are compiled into a trie over reversed domain labels,
+ * stored in flat arrays, behind a Bloom filter of rule domains. A lookup
+ * scans the host once from the end and only walks the trie when the Bloom
+ * filter reports a possible match; it does not allocate.</p>
+ *
+ * <p>Instances are immutable and safe to share between threads.</p>
+ */
+final class ContentBlocker {
+
+    private static final int BLOOM_BITS_PER_RULE = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String[] NO_PATHS = new String[0];
+
+    private static volatile ContentBlocker current;
+
+    // Trie nodes; node 0 is the root. Edges live in an open-addressing table.
+    private final String[] labels;
+    private final boolean[] blocksHost;
+    private final String[][] paths;
+    private final int[] edgeParent;
+    private final int[] edgeHash;
+    private final int[] edgeChild;
+    private final int edgeMask;
+    private final long[] bloom;
+    private final int bloomMask;
+    private final int ruleCount;
+
+    private ContentBlocker(Builder builder) {
+        List<Builder.Node> nodes = new ArrayList<>();
+        ArrayDeque<Builder.Node> queue = new ArrayDeque<>();
+        queue.add(builder.root);
+        while (!queue.isEmpty()) {
+            Builder.Node node = queue.poll();
+            node.index = nodes.size();
+            nodes.add(node);
+            queue.addAll(node.children.values());
+        }
+
+        int count = nodes.size();
+        labels = new String[count];
+        blocksHost = new boolean[count];
+        paths = new String[count][];
+        int edges = count - 1;
+        int tableSize = Integer.highestOneBit(Math.max(2, edges * 2 - 1)) << 1;
+        edgeParent = new int[tableSize];
+        edgeHash = new int[tableSize];
+        edgeChild = new int[tableSize];
+        edgeMask = tableSize - 1;
+        int bloomBits = Integer.highestOneBit(Math.max(64, builder.ruleCount * BLOOM_BITS_PER_RULE - 1)) << 1;
+        bloom = new long[bloomBits / 64];
+        bloomMask = bloomBits - 1;
+        ruleCount = builder.ruleCount;
+
+        for (Builder.Node node : nodes) {
+            labels[node.index] = node.label;
+            blocksHost[node.index] = node.blocksHost;
+            paths[node.index] = node.paths.isEmpty() ? NO_PATHS : node.paths.toArray(new String[0]);
+            for (Builder.Node child : node.children.values()) {
+                int slot = slot(node.index, labelHash(child.label, 0, child.label.length()));
+                while (edgeChild[slot] != 0) {
+                    slot = (slot + 1) & edgeMask;
+                }
+                edgeParent[slot] = node.index;
+                edgeHash[slot] = labelHash(child.label, 0, child.label.length());
+                edgeChild[slot] = child.index;
+            }
+            if (node.blocksHost || !node.paths.isEmpty()) {
+                addToBloom(node.domain);
+            }
+        }
+    }
+
+    static ContentBlocker getCurrent() {
+        return current;
+    }
+
+    static void setCurrent(ContentBlocker blocker) {
+        current = blocker;
+    }
+
+    int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Whether a request to {@code host} with the encoded {@code path} is blocked.
+     */
+    boolean matches(String host, String path) {
+        if (host == null || host.isEmpty()) {
+            return false;
+        }
+        // Hash every domain suffix (com, example.com, ads.example.com, ...)
+        // the way rule domains were hashed, and ask the Bloom filter.
+        long hash = FNV_OFFSET;
+        boolean candidate = false;
+        for (int i = host.length() - 1; i >= 0; i--) {
+            char c = host.charAt(i);
+            if (c == '.' && mayContain(hash)) {
+                candidate = true;
+                break;
+            }
+            hash = (hash ^ lower(c)) * FNV_PRIME;
+        }
+        if (!candidate && !mayContain(hash)) {
+            return false;
+        }
+        return walk(host, path);
+    }
+
+    private boolean walk(String host, String path) {
+        int node = 0;
+        int end = host.length();
+        while (end > 0) {
+            int start = host.lastIndexOf('.', end - 1) + 1;
+            node = child(node, host, start, end);
+            if (node < 0) {
+                return false;
+            }
+            if (blocksHost[node]) {
+                return true;
+            }
+            for (String prefix : paths[node]) {
+                if (path != null && path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            end = start - 1;
+        }
+        return false;
+    }
+
+    private int child(int parent, String host, int start, int end) {
+        int hash = labelHash(host, start, end);
+        int slot = slot(parent, hash);
+        while (true) {
+            int child = edgeChild[slot];
+            if (child == 0) {
+                return -1;
+            }
+            if (edgeParent[slot] == parent && edgeHash[slot] == hash) {
+                String label = labels[child];
+                if (label.length() == end - start && host.regionMatches(true, start, label, 0, label.length())) {
+                    return child;
+                }
+            }
+            slot = (slot + 1) & edgeMask;
+        }
+    }
+
+    private int slot(int parent, int labelHash) {
+        int h = parent * 0x9E3779B9 + labelHash;
+        return (h ^ (h >>> 16)) & edgeMask;
+    }
+
+    private void addToBloom(String domain) {
+        long hash = FNV_OFFSET;
+        for (int i = domain.length() - 1; i >= 0; i--) {
+            hash = (hash ^ domain.charAt(i)) * FNV_PRIME;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean mayContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int labelHash(String s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + lower(s.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * A heuristic guess at the transfer size of a blocked request: a fixed
+     * figure per resource type (script, image, document, style, other), picked
+     * from the type of request, not measured. Only good for rough reporting.
+     */
+    static long heuristicBytes(String path, String accept) {
+        String p = path != null ? path.toLowerCase(Locale.ROOT) : "";
+        if (p.endsWith(".js") || (accept != null && accept.contains("javascript"))) {
+            return 22 * 1024;
+        }
+        if ((accept != null && accept.startsWith("image/")) || p.endsWith(".gif") || p.endsWith(".png")
+                || p.endsWith(".jpg") || p.endsWith(".webp")) {
+            return 12 * 1024;
+        }
+        if (accept != null && accept.startsWith("text/html")) {
+            return 30 * 1024;
+        }
+        if (p.endsWith(".css") || (accept != null && accept.startsWith("text/css"))) {
+            return 10 * 1024;
+        }
+        return 2 * 1024;
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    static final class Builder {
+
+        private static final class Node {
+            final String label;
+            final String domain;
+            final Map<String, Node> children = new HashMap<>(4);
+            final List<String> paths = new ArrayList<>(0);
+            boolean blocksHost;
+            int index;
+
+            Node(String label, String domain) {
+                this.label = label;
+                this.domain = domain;
+            }
+        }
+
+        private final Node root = new Node("", "");
+        private int ruleCount;
+        private int invalidCount;
+
+        /**
+         * Adds one rule line. Blank lines and comments ({@code #}, {@code !})
+         * are skipped; returns false for a line that is not a valid rule.
+         */
+        boolean add(String line) {
+            String rule = line.trim();
+            if (rule.isEmpty() || rule.startsWith("#") || rule.startsWith("!")) {
+                return true;
+            }
+            // Hosts-file format: "0.0.0.0 ads.example.com"
+            int space = indexOfWhitespace(rule);
+            if (space > 0) {
+                String address = rule.substring(0, space);
+                if (!address.equals("0.0.0.0") && !address.equals("127.0.0.1") && !address.equals("::")) {
+                    invalidCount++;
+                    return false;
+                }
+                rule = rule.substring(space).trim();
+                int comment = rule.indexOf('#');
+                if (comment >= 0) {
+                    rule = rule.substring(0, comment).trim();
+                }
+            }
+            if (rule.startsWith("||")) {
+                rule = rule.substring(2);
+                if (rule.endsWith("^")) {
+                    rule = rule.substring(0, rule.length() - 1);
+                }
+            }
+
+            int slash = rule.indexOf('/');
+            String domain = (slash >= 0 ? rule.substring(0, slash) : rule).toLowerCase(Locale.ROOT);
+            String path = slash >= 0 ? rule.substring(slash) : null;
+            if (!isDomain(domain) || (path != null && path.length() < 2)) {
+                invalidCount++;
+                return false;
+            }
+
+            Node node = root;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                String label = domain.substring(start, end);
+                Node child = node.children.get(label);
+                if (child == null) {
+                    child = new Node(label, domain.substring(start));
+                    node.children.put(label, child);
+                }
+                node = child;
+                end = start - 1;
+            }
+            if (path == null) {
+                node.blocksHost = true;
+            } else if (!node.paths.contains(path)) {
+                node.paths.add(path);
+            }
+            ruleCount++;
+            return true;
+        }
+
+        int getInvalidCount() {
+            return invalidCount;
+        }
+
+        ContentBlocker build() {
+            return new ContentBlocker(this);
+        }
+
+        private static boolean isDomain(String domain) {
+            if (domain.isEmpty() || domain.startsWith(".") || domain.endsWith(".") || domain.contains("..")) {
+                return false;
+            }
+            for (int i = 0; i < domain.length(); i++) {
+                char c = domain.charAt(i);
+                if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '-' && c != '.' && c != '_') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int indexOfWhitespace(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (Character.isWhitespace(s.charAt(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
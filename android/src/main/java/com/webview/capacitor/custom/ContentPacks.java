@@ -0,0 +1,444 @@
+package com.webview.capacitor.custom;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+import androidx.webkit.WebViewAssetLoader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Static content packs served to the WebView from a virtual https origin
+ * through WebViewAssetLoader, at
+ * {@code https://appassets.androidplatform.net/packs/<name>/<version>/<path>}.
+ *
+ * <p>A pack is either a directory in the app's assets or a zip extracted
+ * into app storage. Files are streamed from there, never buffered. Every
+ * install gets a new version in the URL, so files can be served with
+ * immutable cache headers, and installing a new version only swaps the
+ * active one once it is fully extracted. The previous version is kept for
+ * pages still showing it.</p>
+ *
+ * <p>The manifest of installed packs is read on a background thread when the
+ * instance is created; calls that need it wait for that read, so none of them
+ * should be made on the main thread. Files are served without CORS headers:
+ * only pages of the pack origin itself can read them from script.</p>
+ */
+final class ContentPacks {
+
+    static final String DOMAIN = "appassets.androidplatform.net";
+    static final String PATH_PREFIX = "/packs/";
+
+    private static final String TAG = "ContentPacks";
+    private static final String MANIFEST_FILE = "packs.json";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,63}");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // Extraction limits, counted on the bytes actually inflated.
+    static final long MAX_PACK_BYTES = 256L * 1024 * 1024;
+    static final long MAX_ENTRY_BYTES = 64L * 1024 * 1024;
+    static final int MAX_ENTRIES = 10_000;
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("html", "text/html");
+        MIME_TYPES.put("htm", "text/html");
+        MIME_TYPES.put("js", "text/javascript");
+        MIME_TYPES.put("mjs", "text/javascript");
+        MIME_TYPES.put("css", "text/css");
+        MIME_TYPES.put("json", "application/json");
+        MIME_TYPES.put("map", "application/json");
+        MIME_TYPES.put("txt", "text/plain");
+        MIME_TYPES.put("xml", "application/xml");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("avif", "image/avif");
+        MIME_TYPES.put("ico", "image/x-icon");
+        MIME_TYPES.put("woff", "font/woff");
+        MIME_TYPES.put("woff2", "font/woff2");
+        MIME_TYPES.put("ttf", "font/ttf");
+        MIME_TYPES.put("otf", "font/otf");
+        MIME_TYPES.put("wasm", "application/wasm");
+        MIME_TYPES.put("pdf", "application/pdf");
+        MIME_TYPES.put("mp4", "video/mp4");
+        MIME_TYPES.put("webm", "video/webm");
+        MIME_TYPES.put("mp3", "audio/mpeg");
+    }
+
+    private static ContentPacks instance;
+
+    private static final class Pack {
+        final String version;
+        // Exactly one of the two is set.
+        final String assetPath;
+        final File directory;
+
+        Pack(String version, String assetPath, File directory) {
+            this.version = version;
+            this.assetPath = assetPath;
+            this.directory = directory;
+        }
+    }
+
+    private final Context context;
+    private final File root;
+    // Replaced, never modified, so request threads can read it without locking.
+    private volatile Map<String, Pack> packs = Collections.emptyMap();
+    // Versions kept after an update, by pack name.
+    private final Map<String, Pack> previous = new HashMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private ContentPacks(Context context, File root) {
+        this.context = context;
+        this.root = root;
+        new Thread(() -> {
+            try {
+                load();
+            } finally {
+                loaded.countDown();
+            }
+        }, TAG).start();
+    }
+
+    static synchronized ContentPacks getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new ContentPacks(app, new File(app.getFilesDir(), "customwebview/packs"));
+        }
+        return instance;
+    }
+
+    static boolean isValidName(String name) {
+        return name != null && NAME.matcher(name).matches();
+    }
+
+    WebViewAssetLoader.PathHandler pathHandler() {
+        return new WebViewAssetLoader.PathHandler() {
+            @Override
+            public WebResourceResponse handle(@NonNull String path) {
+                return serve(path);
+            }
+        };
+    }
+
+    /**
+     * The URL of {@code path} in the active version of a pack, or null when the
+     * pack is not installed.
+     */
+    String urlFor(String name, String path) {
+        awaitLoaded();
+        Pack pack = packs.get(name);
+        if (pack == null) {
+            return null;
+        }
+        String relative = path == null || path.isEmpty() ? "index.html" : (path.startsWith("/") ? path.substring(1) : path);
+        return "https://" + DOMAIN + PATH_PREFIX + Uri.encode(name) + "/" + Uri.encode(pack.version) + "/" + relative;
+    }
+
+    /**
+     * Registers a directory of the app's assets as a pack. Its version follows
+     * the app's install time, so an app update changes the URLs.
+     */
+    synchronized String installAssets(String name, String assetPath) throws IOException {
+        awaitLoaded();
+        String normalized = assetPath.replaceAll("^/+|/+$", "");
+        String[] files = context.getAssets().list(normalized);
+        if (files == null || files.length == 0) {
+            throw new IOException("No assets in " + assetPath);
+        }
+        activate(name, new Pack("a" + Long.toString(appUpdateTime(), 36), normalized, null));
+        return urlFor(name, null);
+    }
+
+    /**
+     * Extracts a zip into a new version of a pack and makes it active once
+     * complete. Blocks; call it off the main thread.
+     */
+    String installZip(String name, File zip, String version) throws IOException {
+        awaitLoaded();
+        String packVersion = version != null && !version.isEmpty() ? version : Long.toString(System.currentTimeMillis(), 36);
+        if (!isValidName(packVersion)) {
+            throw new IOException("Invalid version: " + version);
+        }
+        File packDirectory = new File(root, name);
+        File target = new File(packDirectory, packVersion);
+        File temp = new File(packDirectory, packVersion + "." + System.nanoTime() + ".tmp");
+        if (!temp.mkdirs()) {
+            throw new IOException("Could not create " + temp);
+        }
+        try {
+            extract(zip, temp, MAX_PACK_BYTES, MAX_ENTRY_BYTES);
+            synchronized (this) {
+                Pack active = packs.get(name);
+                if (active != null && target.equals(active.directory)) {
+                    throw new IOException("Version " + packVersion + " of " + name + " is already active");
+                }
+                deleteRecursively(target);
+                if (!temp.renameTo(target)) {
+                    throw new IOException("Could not move " + temp + " to " + target);
+                }
+                activate(name, new Pack(packVersion, null, target));
+            }
+        } finally {
+            deleteRecursively(temp);
+        }
+        return urlFor(name, null);
+    }
+
+    synchronized boolean remove(String name) {
+        awaitLoaded();
+        Map<String, Pack> updated = new HashMap<>(packs);
+        Pack removed = updated.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        packs = Collections.unmodifiableMap(updated);
+        previous.remove(name);
+        save();
+        deleteRecursively(new File(root, name));
+        return true;
+    }
+
+    private void activate(String name, Pack pack) {
+        Map<String, Pack> updated = new HashMap<>(packs);
+        Pack replaced = updated.put(name, pack);
+        packs = Collections.unmodifiableMap(updated);
+        save();
+
+        Pack dropped = replaced != null ? previous.put(name, replaced) : null;
+        if (dropped != null && dropped.directory != null && !dropped.directory.equals(pack.directory)) {
+            deleteRecursively(dropped.directory);
+        }
+    }
+
+    private WebResourceResponse serve(String path) {
+        // path is "<name>/<version>/<file>" relative to PATH_PREFIX.
+        int nameEnd = path.indexOf('/');
+        int versionEnd = nameEnd >= 0 ? path.indexOf('/', nameEnd + 1) : -1;
+        if (versionEnd < 0) {
+            return notFound();
+        }
+        String name = path.substring(0, nameEnd);
+        String version = path.substring(nameEnd + 1, versionEnd);
+        String file = path.substring(versionEnd + 1);
+        if (file.isEmpty() || file.endsWith("/")) {
+            file += "index.html";
+        }
+        if (file.startsWith("/") || file.contains("..")) {
+            return notFound();
+        }
+
+        awaitLoaded();
+        Pack pack = packs.get(name);
+        if (pack == null || !pack.version.equals(version)) {
+            synchronized (this) {
+                pack = previous.get(name);
+            }
+            if (pack == null || !pack.version.equals(version)) {
+                return notFound();
+            }
+        }
+
+        InputStream body;
+        try {
+            body = pack.assetPath != null
+                    ? context.getAssets().open(pack.assetPath + "/" + file, AssetManager.ACCESS_STREAMING)
+                    : new BufferedInputStream(new FileInputStream(new File(pack.directory, file)));
+        } catch (IOException e) {
+            return notFound();
+        }
+        String mimeType = mimeType(file);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", IMMUTABLE);
+        return new WebResourceResponse(mimeType, isText(mimeType) ? "utf-8" : null, 200, "OK", headers, body);
+    }
+
+    private static WebResourceResponse notFound() {
+        return new WebResourceResponse("text/plain", "utf-8", 404, "Not Found",
+                Collections.singletonMap("Cache-Control", "no-store"), new ByteArrayInputStream(new byte[0]));
+    }
+
+    static String mimeType(String file) {
+        int dot = file.lastIndexOf('.');
+        String extension = dot >= 0 ? file.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        String mimeType = MIME_TYPES.get(extension);
+        if (mimeType == null) {
+            mimeType = URLConnection.guessContentTypeFromName(file);
+        }
+        return mimeType != null ? mimeType : "application/octet-stream";
+    }
+
+    private static boolean isText(String mimeType) {
+        return mimeType.startsWith("text/") || mimeType.equals("application/json")
+                || mimeType.equals("application/xml") || mimeType.equals("image/svg+xml");
+    }
+
+    /**
+     * Extracts {@code zip} into {@code directory}, failing once an entry
+     * inflates to more than {@code maxEntryBytes}, all entries to more than
+     * {@code maxTotalBytes}, or there are more than {@link #MAX_ENTRIES}.
+     */
+    static void extract(File zip, File directory, long maxTotalBytes, long maxEntryBytes) throws IOException {
+        String base = directory.getCanonicalPath() + File.separator;
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int entries = 0;
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(zip)))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (++entries > MAX_ENTRIES) {
+                    throw new IOException("Zip has more than " + MAX_ENTRIES + " entries");
+                }
+                File file = new File(directory, entry.getName());
+                // Reject entries that would land outside the pack ("zip slip").
+                if (!file.getCanonicalPath().startsWith(base)) {
+                    throw new IOException("Invalid zip entry: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    if (!file.isDirectory() && !file.mkdirs()) {
+                        throw new IOException("Could not create " + file);
+                    }
+                    continue;
+                }
+                File parent = file.getParentFile();
+                if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Could not create " + parent);
+                }
+                long size = 0;
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        size += read;
+                        total += read;
+                        if (size > maxEntryBytes) {
+                            throw new IOException("Zip entry " + entry.getName() + " exceeds " + maxEntryBytes + " bytes");
+                        }
+                        if (total > maxTotalBytes) {
+                            throw new IOException("Zip contents exceed " + maxTotalBytes + " bytes");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+            }
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long appUpdateTime() {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private void load() {
+        File manifest = new File(root, MANIFEST_FILE);
+        if (!manifest.isFile()) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(manifest)) {
+            byte[] bytes = new byte[(int) manifest.length()];
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            JSONObject json = new JSONObject(new String(bytes, 0, offset, StandardCharsets.UTF_8));
+            Map<String, Pack> loaded = new HashMap<>();
+            Iterator<String> names = json.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                JSONObject entry = json.getJSONObject(name);
+                String assetPath = entry.optString("assetPath", null);
+                String version = entry.getString("version");
+                loaded.put(name, assetPath != null
+                        // Asset packs follow the installed app, which may have been updated.
+                        ? new Pack("a" + Long.toString(appUpdateTime(), 36), assetPath, null)
+                        : new Pack(version, null, new File(new File(root, name), version)));
+            }
+            packs = Collections.unmodifiableMap(loaded);
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Ignoring unreadable content pack manifest", e);
+        }
+    }
+
+    private void save() {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Pack> entry : packs.entrySet()) {
+                JSONObject pack = new JSONObject();
+                pack.put("version", entry.getValue().version);
+                if (entry.getValue().assetPath != null) {
+                    pack.put("assetPath", entry.getValue().assetPath);
+                }
+                json.put(entry.getKey(), pack);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!root.isDirectory() && !root.mkdirs()) {
+            Log.w(TAG, "Could not create " + root);
+            return;
+        }
+        File temp = new File(root, MANIFEST_FILE + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write content pack manifest", e);
+            return;
+        }
+        if (!temp.renameTo(new File(root, MANIFEST_FILE))) {
+            Log.w(TAG, "Could not replace content pack manifest");
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,139 @@
+package com.webview.capacitor.custom;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import androidx.browser.customtabs.CustomTabsClient;
+import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.browser.customtabs.CustomTabsServiceConnection;
+import androidx.browser.customtabs.CustomTabsSession;
+
+/**
+ * Opens plain web links in a Custom Tab of the user's browser for
+ * {@code mode: 'customTabs'}. {@link #prepare} binds the browser's Custom
+ * Tabs service, warms the browser process up and hints the URL about to be
+ * opened, so the following open can be close to instant. Without a prepare
+ * call tabs still open, only without the head start.
+ *
+ * <p>The service stays bound for the life of the process once prepared; the
+ * browser reconnects it on its own after a crash.</p>
+ */
+final class CustomTabsLauncher {
+
+    private static CustomTabsLauncher instance;
+
+    private final Context context;
+    private boolean providerResolved = false;
+    private String providerPackage;
+    private CustomTabsServiceConnection connection;
+    private CustomTabsSession session;
+    // Hinted once the service connects.
+    private Uri pendingUrl;
+
+    private CustomTabsLauncher(Context context) {
+        this.context = context;
+    }
+
+    static synchronized CustomTabsLauncher getInstance(Context context) {
+        if (instance == null) {
+            instance = new CustomTabsLauncher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The package of the browser providing Custom Tabs, preferring the
+     * default browser, or null when none is installed.
+     */
+    synchronized String getProviderPackage() {
+        if (!providerResolved) {
+            providerPackage = CustomTabsClient.getPackageName(context, null);
+            providerResolved = true;
+        }
+        return providerPackage;
+    }
+
+    /**
+     * Warms the provider up and hints {@code url}, which may be null to only
+     * warm up. Returns false when no provider is installed, in which case
+     * opens fall back to the webview activity.
+     */
+    synchronized boolean prepare(String url) {
+        String provider = getProviderPackage();
+        if (provider == null) {
+            return false;
+        }
+        if (isWebUrl(url)) {
+            pendingUrl = Uri.parse(url);
+        }
+        if (session != null) {
+            mayLaunchPending();
+        } else if (connection == null) {
+            connection = new CustomTabsServiceConnection() {
+                @Override
+                public void onCustomTabsServiceConnected(ComponentName name, CustomTabsClient client) {
+                    connected(client);
+                }
+
+                @Override
+                public void onServiceDisconnected(ComponentName name) {
+                    disconnected();
+                }
+            };
+            if (!CustomTabsClient.bindCustomTabsService(context, provider, connection)) {
+                connection = null;
+            }
+        }
+        return true;
+    }
+
+    synchronized boolean isPrepared() {
+        return session != null;
+    }
+
+    /**
+     * The intent opening {@code url} in a Custom Tab, tied to the prepared
+     * session when there is one. Null when no provider is installed or the
+     * URL is not http(s).
+     */
+    synchronized Intent createIntent(String url) {
+        String provider = getProviderPackage();
+        if (provider == null || !isWebUrl(url)) {
+            return null;
+        }
+        CustomTabsIntent.Builder builder = session != null
+                ? new CustomTabsIntent.Builder(session)
+                : new CustomTabsIntent.Builder();
+        CustomTabsIntent tab = builder.setShowTitle(true).build();
+        tab.intent.setPackage(provider);
+        tab.intent.setData(Uri.parse(url));
+        return tab.intent;
+    }
+
+    private synchronized void connected(CustomTabsClient client) {
+        client.warmup(0);
+        session = client.newSession(null);
+        mayLaunchPending();
+    }
+
+    private synchronized void disconnected() {
+        session = null;
+    }
+
+    private void mayLaunchPending() {
+        if (session != null && pendingUrl != null) {
+            session.mayLaunchUrl(pendingUrl, null, null);
+            pendingUrl = null;
+        }
+    }
+
+    static boolean isWebUrl(String url) {
+        if (url == null) {
+            return false;
+        }
+        String scheme = Uri.parse(url).getScheme();
+        return "https".equalsIgnoreCase(scheme) || "http".equalsIgnoreCase(scheme);
+    }
+}
@@ -7,28 +7,39 @@ import android.content.ClipData;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
 import android.net.Uri;
+import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.Window;
 import android.webkit.CookieManager;
 import android.webkit.DownloadListener;
 import android.webkit.GeolocationPermissions;
 import android.webkit.JavascriptInterface;
+import android.webkit.MimeTypeMap;
 import android.webkit.PermissionRequest;
+import android.webkit.RenderProcessGoneDetail;
 import android.webkit.ValueCallback;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.Button;
+import android.widget.FrameLayout;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.graphics.Insets;
@@ -36,45 +47,255 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.webkit.WebViewAssetLoader;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CustomWebViewActivity extends AppCompatActivity {
 
     public static final String EXTRA_URL = "url";
     public static final String EXTRA_ENABLE_COOKIES = "enableCookies";
     public static final String EXTRA_FULLSCREEN = "fullscreen";
+    public static final String EXTRA_CAPTURE_NETWORK = "captureNetwork";
+    public static final String EXTRA_SCRIPTS = "scripts";
+    public static final String EXTRA_ASSET_CACHE = "assetCache";
+    public static final String EXTRA_ASSET_CACHE_PATTERNS = "assetCachePatterns";
+    public static final String EXTRA_ASSET_CACHE_MAX_BYTES = "assetCacheMaxBytes";
+    public static final String EXTRA_DOWNLOAD_ENGINE = "downloadEngine";
+    public static final String EXTRA_UPLOAD_IMAGES = "uploadImages";
+    public static final String EXTRA_UPLOAD_MAX_WIDTH = "uploadMaxWidth";
+    public static final String EXTRA_UPLOAD_MAX_HEIGHT = "uploadMaxHeight";
+    public static final String EXTRA_UPLOAD_QUALITY = "uploadQuality";
+    public static final String EXTRA_DOWNLOAD_EXTENSIONS = "downloadExtensions";
+    public static final String EXTRA_DOWNLOAD_QUERY_KEYS = "downloadQueryKeys";
+    public static final String EXTRA_DOWNLOAD_MIME_TYPES = "downloadMimeTypes";
+    public static final String EXTRA_DOWNLOAD_HOSTS = "downloadHosts";
+    public static final String EXTRA_DOWNLOAD_PATH_PREFIXES = "downloadPathPrefixes";
+    public static final String EXTRA_HEADERS = "headers";
+    public static final String EXTRA_ORIGIN_HEADERS = "originHeaders";
+    public static final String EXTRA_MESSAGE_CHANNEL = "messageChannel";
+    public static final String EXTRA_MESSAGE_CHANNEL_ORIGINS = "messageChannelOrigins";
+    public static final String EXTRA_OPENED_AT = "openedAt";
+    public static final String EXTRA_SESSION_ID = "sessionId";
+    public static final String EXTRA_MAX_LIVE_SESSIONS = "maxLiveSessions";
+    public static final String EXTRA_SESSION_SNAPSHOT = "sessionSnapshot";
+    public static final String EXTRA_CONTENT_BLOCKING = "contentBlocking";
+    public static final String EXTRA_GEOLOCATION_WARMUP = "geolocationWarmup";
+    public static final String EXTRA_SESSION_SNAPSHOT_MAX_AGE_MS = "sessionSnapshotMaxAgeMs";
+    public static final String EXTRA_PAGE_METRICS = "pageMetrics";
+    public static final String EXTRA_PAGE_METRICS_ORIGINS = "pageMetricsOrigins";
+    public static final String EXTRA_DATA_SAVER = "dataSaver";
+    public static final String EXTRA_DATA_SAVER_QUALITY = "dataSaverQuality";
+    public static final String EXTRA_DATA_SAVER_ALWAYS = "dataSaverAlways";
     private static final int CAMERA_AND_MICROPHONE_PERMISSION_CODE = 1;
     private static final int FILE_CHOOSER_REQUEST_CODE = 2;
     private static final int LOCATION_PERMISSION_CODE = 3;
+    // The activity closes on this many renderer losses within the window.
+    private static final int MAX_RENDERER_LOSSES = 3;
+    private static final long RENDERER_RECOVERY_WINDOW_MS = 60_000;
+    // How long a closing webview waits for its pages' metrics before it is destroyed anyway.
+    private static final long PAGE_REPORT_TIMEOUT_MS = 1000;
+    private static WeakReference<CustomWebViewActivity> current = new WeakReference<>(null);
     private WebView webView;
     private GeolocationPermissions.Callback pendingGeolocationCallback;
     private String pendingGeolocationOrigin;
+    private GeolocationDecisions geolocationDecisions;
+    // Origins granted for this open only, because the app already held the permission.
+    private final Set<String> openGeolocationOrigins = new HashSet<>();
+    private LocationWarmup locationWarmup;
+    private final AtomicInteger warmFixServed = new AtomicInteger();
+    private final AtomicInteger warmFixFallbacks = new AtomicInteger();
     private ValueCallback<Uri[]> mUploadMessage;
     private boolean debug = false;
     private boolean enableCookies = false;
     private boolean fullscreen = false;
+    private boolean captureNetwork = false;
+    private boolean parallelDownloads = false;
+    private final ScriptRegistry scriptRegistry = new ScriptRegistry();
+    private AssetCache assetCache;
+    private PrefetchManager prefetchManager;
+    private UploadImageProcessor uploadImageProcessor;
+    private DownloadRules downloadRules;
+    private OriginHeaders originHeaders;
+    private WebViewAssetLoader contentPackLoader;
+    private PageMessageChannel messageChannel;
+    private Set<String> messageChannelOrigins;
+    private String messageChannelNonce;
+    private boolean documentStartScripts = false;
+    private final Diagnostics diagnostics = Diagnostics.getInstance();
+    private StartupTrace startupTrace;
+    private JSObject startupTiming;
+    private boolean prewarmed = false;
+    private WebViewSessions sessions;
+    // Owns the attached WebView. Its state is kept here while the WebView is
+    // released in the background, and restored on resume.
+    private WebViewSessions.Session activeSession;
+    private SessionSnapshots snapshots;
+    private long snapshotMaxAgeMs;
+    private boolean snapshotsSaved = false;
+    private boolean contentBlocking = false;
+    // Requests blocked since the last main-frame navigation; updated from
+    // shouldInterceptRequest threads.
+    private volatile String blockingPageUrl;
+    private final AtomicInteger pageBlockedCount = new AtomicInteger();
+    private final AtomicLong pageBlockedHeuristicBytes = new AtomicLong();
+    private final long[] rendererGoneTimes = new long[MAX_RENDERER_LOSSES];
+    private int rendererGoneCount = 0;
+    private boolean timersPaused = false;
+    private PageMetrics pageMetrics;
+    private Set<String> pageMetricsOrigins;
+    // Page reports still expected from live sessions once closing; -1 until then.
+    private int pendingPageReports = -1;
+    private boolean pageMetricsReported = false;
+    // WebViews kept past onDestroy until their page reports are in.
+    private final List<WebView> awaitingPageReports = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pageReportsTimeout = this::finishPageReports;
+    private DataSaver dataSaver;
+    // Refreshed on each main-frame navigation and read from request threads.
+    private volatile boolean meteredNetwork = false;
+    private volatile int viewportWidth = 0;
 
-    // Interface to log network requests
+    // Receives batched network entries from the injected logger script
     public class NetworkLoggerInterface {
         @JavascriptInterface
-        public void log(String type, String url, int status) {
-            if (debug) Log.d("WEBVIEW", type.toUpperCase() + " response from: " + url + " - status: " + status);
+        public void logBatch(String batch) {
+            try {
+                int received = NetworkLog.getInstance().addBatch(batch);
+                diagnostics.record(Diagnostics.Event.NETWORK_LOG_BATCH, received);
+            } catch (JSONException e) {
+                diagnostics.record(Diagnostics.Event.NETWORK_LOG_INVALID);
+            }
+        }
+    }
+
+    // Counts page geolocation calls answered by the warm-up script
+    public class GeolocationInterface {
+        @JavascriptInterface
+        public void served(boolean fromWarmFix) {
+            int served = fromWarmFix ? warmFixServed.incrementAndGet() : warmFixServed.get();
+            int fallbacks = fromWarmFix ? warmFixFallbacks.get() : warmFixFallbacks.incrementAndGet();
+            CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+            if (plugin != null) {
+                plugin.fireGeolocationServedEvent(served, fallbacks);
+            }
         }
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // A recreated activity still carries the original intent; time it from now instead.
+        startupTrace = new StartupTrace(savedInstanceState == null ? getIntent().getLongExtra(EXTRA_OPENED_AT, 0) : 0);
 
         debug = getIntent().getBooleanExtra("debug", false);
+        if (debug) {
+            diagnostics.setVerbose(true);
+        }
         enableCookies = getIntent().getBooleanExtra(EXTRA_ENABLE_COOKIES, false);
         fullscreen = getIntent().getBooleanExtra(EXTRA_FULLSCREEN, false);
+        captureNetwork = getIntent().getBooleanExtra(EXTRA_CAPTURE_NETWORK, false);
+        parallelDownloads = "parallel".equals(getIntent().getStringExtra(EXTRA_DOWNLOAD_ENGINE));
+        contentBlocking = getIntent().getBooleanExtra(EXTRA_CONTENT_BLOCKING, false);
+        geolocationDecisions = GeolocationDecisions.getInstance(this);
+        if (getIntent().getBooleanExtra(EXTRA_GEOLOCATION_WARMUP, false)) {
+            locationWarmup = new LocationWarmup(this);
+        }
+        if (getIntent().getBooleanExtra(EXTRA_PAGE_METRICS, false)) {
+            pageMetrics = PageMetrics.open(getIntent().getStringExtra(EXTRA_URL));
+            pageMetricsOrigins = allowedOrigins(
+                    getIntent().getStringArrayExtra(EXTRA_PAGE_METRICS_ORIGINS), getIntent().getStringExtra(EXTRA_URL));
+        }
+        if (getIntent().getBooleanExtra(EXTRA_MESSAGE_CHANNEL, false) && PageMessageChannel.isSupported()) {
+            messageChannelOrigins = allowedOrigins(
+                    getIntent().getStringArrayExtra(EXTRA_MESSAGE_CHANNEL_ORIGINS), getIntent().getStringExtra(EXTRA_URL));
+            messageChannelNonce = PageMessageChannel.newNonce();
+        }
+        registerScripts(getIntent().getStringExtra(EXTRA_SCRIPTS));
+        originHeaders = parseOriginHeaders(getIntent().getStringExtra(EXTRA_ORIGIN_HEADERS));
+        prefetchManager = PrefetchManager.getInstance(this);
+        contentPackLoader = new WebViewAssetLoader.Builder()
+                .setDomain(ContentPacks.DOMAIN)
+                .addPathHandler(ContentPacks.PATH_PREFIX, ContentPacks.getInstance(this).pathHandler())
+                .build();
+        downloadRules = new DownloadRules(
+                getIntent().getStringArrayExtra(EXTRA_DOWNLOAD_EXTENSIONS),
+                getIntent().getStringArrayExtra(EXTRA_DOWNLOAD_QUERY_KEYS),
+                getIntent().getStringArrayExtra(EXTRA_DOWNLOAD_MIME_TYPES),
+                getIntent().getStringArrayExtra(EXTRA_DOWNLOAD_HOSTS),
+                getIntent().getStringArrayExtra(EXTRA_DOWNLOAD_PATH_PREFIXES)
+        );
+        if (getIntent().getBooleanExtra(EXTRA_UPLOAD_IMAGES, false)) {
+            uploadImageProcessor = new UploadImageProcessor(
+                    this,
+                    getIntent().getIntExtra(EXTRA_UPLOAD_MAX_WIDTH, UploadImageProcessor.DEFAULT_MAX_DIMENSION),
+                    getIntent().getIntExtra(EXTRA_UPLOAD_MAX_HEIGHT, UploadImageProcessor.DEFAULT_MAX_DIMENSION),
+                    getIntent().getIntExtra(EXTRA_UPLOAD_QUALITY, UploadImageProcessor.DEFAULT_QUALITY)
+            );
+        }
+        if (getIntent().getBooleanExtra(EXTRA_DATA_SAVER, false)) {
+            dataSaver = new DataSaver(
+                    getIntent().getIntExtra(EXTRA_DATA_SAVER_QUALITY, DataSaver.DEFAULT_QUALITY),
+                    getIntent().getBooleanExtra(EXTRA_DATA_SAVER_ALWAYS, false),
+                    (images, bytesSaved) -> {
+                        CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                        if (plugin != null) {
+                            plugin.fireDataSavedEvent(images, bytesSaved);
+                        }
+                    }
+            );
+            updateNetworkConditions();
+        }
+        if (getIntent().getBooleanExtra(EXTRA_ASSET_CACHE, false)) {
+            assetCache = AssetCache.getInstance(this);
+            assetCache.configure(
+                    getIntent().getStringArrayExtra(EXTRA_ASSET_CACHE_PATTERNS),
+                    getIntent().getLongExtra(EXTRA_ASSET_CACHE_MAX_BYTES, AssetCache.DEFAULT_MAX_BYTES)
+            );
+        }
+
+        if (getIntent().getBooleanExtra(EXTRA_SESSION_SNAPSHOT, false)) {
+            snapshots = SessionSnapshots.getInstance(this);
+            snapshotMaxAgeMs = getIntent().getLongExtra(EXTRA_SESSION_SNAPSHOT_MAX_AGE_MS, SessionSnapshots.DEFAULT_MAX_AGE_MS);
+        }
+
+        current = new WeakReference<>(this);
+        String sessionId = getIntent().getStringExtra(EXTRA_SESSION_ID);
+        sessions = new WebViewSessions(getIntent().getIntExtra(EXTRA_MAX_LIVE_SESSIONS, WebViewSessions.DEFAULT_MAX_LIVE));
+        activeSession = sessions.create(sessionId != null ? sessionId : WebViewSessions.DEFAULT_ID,
+                getIntent().getStringExtra(EXTRA_URL));
 
         applyWindowAppearance(fullscreen);
 
+        startupTrace.begin("setContentView");
         setContentView(R.layout.activity_custom_webview);
         applySystemBarInsets();
+        startupTrace.end();
 
-        webView = findViewById(R.id.webView);
+        startupTrace.begin("createWebView");
+        createWebView();
+        startupTrace.end();
 
         Button btnBack = findViewById(R.id.btnBack);
         Button btnForward = findViewById(R.id.btnForward);
@@ -82,37 +303,98 @@ public class CustomWebViewActivity extends AppCompatActivity {
         Button btnClose = findViewById(R.id.btnClose);
 
         btnBack.setOnClickListener(v -> {
-            if (webView.canGoBack()) webView.goBack();
+            if (webView != null && webView.canGoBack()) webView.goBack();
         });
 
         btnForward.setOnClickListener(v -> {
-            if (webView.canGoForward()) webView.goForward();
+            if (webView != null && webView.canGoForward()) webView.goForward();
         });
 
-        btnReload.setOnClickListener(v -> webView.reload());
+        btnReload.setOnClickListener(v -> {
+            if (webView != null) webView.reload();
+        });
         btnClose.setOnClickListener(v -> finish());
 
-        if (debug) {
-            Log.d("CustomWebViewActivity", "[DEBUG] onCreate - debug=" + debug
-                    + ", enableCookies=" + enableCookies + ", fullscreen=" + fullscreen);
-        }
-
         WebView.setWebContentsDebuggingEnabled(debug);
 
         String url = getIntent().getStringExtra(EXTRA_URL);
+        diagnostics.record(Diagnostics.Event.ACTIVITY_CREATED, enableCookies ? 1 : 0, fullscreen ? 1 : 0, url);
+        startupTrace.begin("configureWebView");
         configureWebView();
+        startupTrace.end();
+        startupTrace.begin("ensureLocationPermission");
         ensureLocationPermission();
+        startLocationWarmup();
+        startupTrace.end();
 
+        startupTrace.begin("loadUrl");
         if (savedInstanceState != null) {
             webView.restoreState(savedInstanceState);
-            if (debug) Log.d("CustomWebViewActivity", "[DEBUG] Restored WebView state");
-        } else if (url != null && !url.isEmpty()) {
-            if (debug && url.startsWith("http://")) {
-                Log.w("CustomWebViewActivity",
-                        "[DEBUG] URL uses HTTP — navigator.geolocation requires HTTPS");
+            diagnostics.record(Diagnostics.Event.STATE_RESTORED, 0, webView.getUrl());
+        } else if (snapshots != null && activeSession.openUrl != null) {
+            WebViewSessions.Session session = activeSession;
+            restoreSnapshot(session, () -> {
+                // Closed, crashed or released meanwhile; a rebuilt WebView restores the state itself.
+                if (session.webView == null) {
+                    return;
+                }
+                if (session.state != null && restoreSessionState(session)) {
+                    startupTrace.mark("snapshotRestored");
+                    diagnostics.record(Diagnostics.Event.STATE_RESTORED, 1, session.url);
+                } else {
+                    loadInitialUrl(session.webView, url);
+                }
+            });
+        } else {
+            loadInitialUrl(webView, url);
+        }
+        startupTrace.end();
+    }
+
+    private void loadInitialUrl(WebView view, String url) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        // Geolocation and other secure-context APIs are unavailable over plain HTTP.
+        if (url.startsWith("http://")) {
+            diagnostics.record(Diagnostics.Event.INSECURE_URL, url);
+        }
+        loadUrl(view, url, getIntent().getStringExtra(EXTRA_HEADERS));
+    }
+
+    private void loadUrl(WebView view, String url, String headersJson) {
+        Map<String, String> headers = initialHeaders(url, headersJson);
+        if (headers.isEmpty()) {
+            view.loadUrl(url);
+        } else {
+            view.loadUrl(url, headers);
+        }
+    }
+
+    private OriginHeaders parseOriginHeaders(String json) {
+        try {
+            return OriginHeaders.parse(json);
+        } catch (JSONException e) {
+            diagnostics.record(Diagnostics.Event.INVALID_OPTION, "originHeaders");
+            return new OriginHeaders();
+        }
+    }
+
+    // The initial navigation carries the page origin's headers plus the explicit headers option.
+    private Map<String, String> initialHeaders(String url, String json) {
+        Map<String, String> headers = new HashMap<>();
+        Map<String, String> forOrigin = originHeaders.headersFor(Uri.parse(url));
+        if (forOrigin != null) {
+            headers.putAll(forOrigin);
+        }
+        if (json != null) {
+            try {
+                headers.putAll(OriginHeaders.toMap(new JSONObject(json)));
+            } catch (JSONException e) {
+                diagnostics.record(Diagnostics.Event.INVALID_OPTION, "headers");
             }
-            webView.loadUrl(url);
         }
+        return headers;
     }
 
     private void applyWindowAppearance(boolean fullscreen) {
@@ -162,74 +444,286 @@ public class CustomWebViewActivity extends AppCompatActivity {
         }
     }
 
-    private void configureWebView() {
+    private void registerScripts(String userScripts) {
+        if (debug || captureNetwork) {
+            scriptRegistry.add(ScriptRegistry.NETWORK_LOGGER_SCRIPT, ScriptRegistry.ALL_ORIGINS);
+        }
+        if (messageChannelOrigins != null) {
+            scriptRegistry.add(PageMessageChannel.script(messageChannelNonce), messageChannelOrigins);
+        }
+        if (locationWarmup != null) {
+            scriptRegistry.add(LocationWarmup.SCRIPT, ScriptRegistry.ALL_ORIGINS);
+        }
+        if (pageMetrics != null) {
+            scriptRegistry.add(PageMetrics.SCRIPT, pageMetricsOrigins);
+        }
+        if (userScripts != null) {
+            try {
+                scriptRegistry.addAll(userScripts);
+            } catch (JSONException e) {
+                diagnostics.record(Diagnostics.Event.INVALID_OPTION, "scripts");
+            }
+        }
+    }
+
+    // Without explicit origins a feature is only offered to the origin of the opened URL.
+    private static Set<String> allowedOrigins(String[] origins, String url) {
+        Set<String> allowed = new HashSet<>();
+        if (origins != null && origins.length > 0) {
+            Collections.addAll(allowed, origins);
+        } else if (url != null) {
+            Uri uri = Uri.parse(url);
+            if (uri.getScheme() != null && uri.getEncodedAuthority() != null) {
+                allowed.add(uri.getScheme() + "://" + uri.getEncodedAuthority());
+            }
+        }
+        return allowed;
+    }
+
+    static CustomWebViewActivity getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * The startup breakdown reported in webviewTiming, or null until the
+     * first page finishes.
+     */
+    @VisibleForTesting
+    JSObject getStartupTiming() {
+        return startupTiming;
+    }
+
+    @VisibleForTesting
+    WebView getWebView() {
+        return webView;
+    }
+
+    @VisibleForTesting
+    void createWebView() {
+        webView = WebViewPool.getInstance(this).acquire(this);
+        prewarmed = webView != null;
+        if (webView == null) {
+            webView = new WebView(this);
+        }
+        diagnostics.record(Diagnostics.Event.WEBVIEW_CREATED, prewarmed ? 1 : 0);
+        activeSession.webView = webView;
+        attachToContainer(webView);
+    }
+
+    private void attachToContainer(WebView view) {
+        FrameLayout container = findViewById(R.id.webViewContainer);
+        container.addView(view, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT,
+                FrameLayout.LayoutParams.MATCH_PARENT
+        ));
+    }
+
+    @VisibleForTesting
+    void configureWebView() {
+        WebViewPool.applyBaseSettings(webView, this);
         WebSettings settings = webView.getSettings();
-        settings.setJavaScriptEnabled(true);
         settings.setDomStorageEnabled(enableCookies);
-        settings.setAllowFileAccess(true);
-        settings.setAllowContentAccess(true);
-        settings.setMediaPlaybackRequiresUserGesture(false);
-        settings.setGeolocationEnabled(true);
-        settings.setGeolocationDatabasePath(getFilesDir().getPath());
 
         CookieManager cookieManager = CookieManager.getInstance();
         cookieManager.setAcceptCookie(true);
         cookieManager.setAcceptThirdPartyCookies(webView, enableCookies);
 
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // Keep the renderer as important as the app while visible, but let the
+            // system reclaim it first once the webview is in the background.
+            webView.setRendererPriorityPolicy(WebView.RENDERER_PRIORITY_IMPORTANT, true);
+        }
+
         webView.addJavascriptInterface(new NetworkLoggerInterface(), "NetworkLogger");
+        if (locationWarmup != null) {
+            webView.addJavascriptInterface(new GeolocationInterface(), "CustomWebviewGeolocation");
+        }
+        if (pageMetrics != null && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)) {
+            // Only injected into frames of the allowed origins; reports from subframes are dropped.
+            try {
+                WebViewCompat.addWebMessageListener(webView, "CustomWebviewMetrics", pageMetricsOrigins,
+                        (view, message, sourceOrigin, isMainFrame, replyProxy) -> {
+                            if (isMainFrame) {
+                                addPageMetrics(message.getData());
+                            }
+                        });
+            } catch (IllegalArgumentException e) {
+                diagnostics.record(Diagnostics.Event.INVALID_OPTION, "pageMetrics");
+            }
+        }
 
         webView.setWebViewClient(new WebViewClient() {
             @Override
             public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
-                if (request.isForMainFrame() && shouldDownloadPdfFromUrl(request.getUrl())) {
-                    startFileDownload(
-                            request.getUrl().toString(),
-                            request.getRequestHeaders().get("User-Agent"),
-                            null,
-                            "application/pdf"
-                    );
-                    return true;
+                if (request.isForMainFrame()) {
+                    String url = request.getUrl().toString();
+                    if (downloadRules.matchesUrl(url)) {
+                        startNavigationDownload(url, request.getRequestHeaders().get("User-Agent"));
+                        return true;
+                    }
                 }
                 return false;
             }
 
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                WebResourceResponse packed = contentPackLoader.shouldInterceptRequest(request.getUrl());
+                if (packed != null) {
+                    return packed;
+                }
+                if (contentBlocking && !request.isForMainFrame()) {
+                    WebResourceResponse blocked = blockRequest(view, request);
+                    if (blocked != null) {
+                        return blocked;
+                    }
+                }
+                if ("GET".equals(request.getMethod()) && !prefetchManager.isEmpty()) {
+                    WebResourceResponse prefetched = prefetchManager.take(request.getUrl().toString(), enableCookies);
+                    if (prefetched != null) {
+                        return prefetched;
+                    }
+                }
+                if (dataSaver != null && dataSaver.applies(request, meteredNetwork)) {
+                    WebResourceResponse response = dataSaver.intercept(request, meteredNetwork, viewportWidth,
+                            originHeaders.headersFor(request.getUrl()));
+                    if (response != null) {
+                        return response;
+                    }
+                }
+                if (assetCache != null && assetCache.isCacheable(request)) {
+                    Map<String, String> extraHeaders = originHeaders.headersFor(request.getUrl());
+                    WebResourceResponse response = assetCache.fetch(request, extraHeaders);
+                    if (response != null) {
+                        return response;
+                    }
+                }
+                if (!originHeaders.isEmpty()) {
+                    WebResourceResponse response = originHeaders.fetch(request);
+                    if (response != null) {
+                        return response;
+                    }
+                }
+                return super.shouldInterceptRequest(view, request);
+            }
+
+            @Override
+            public void onPageStarted(WebView view, String url, Bitmap favicon) {
+                super.onPageStarted(view, url, favicon);
+                // Sessions in the background keep loading but do not report.
+                if (view != webView) {
+                    return;
+                }
+                if (messageChannel != null) {
+                    messageChannel.disconnect();
+                }
+                if (dataSaver != null) {
+                    updateNetworkConditions();
+                }
+                if (contentBlocking) {
+                    blockingPageUrl = url;
+                    pageBlockedCount.set(0);
+                    pageBlockedHeuristicBytes.set(0);
+                }
+                startupTrace.mark("pageStarted");
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null) {
+                    plugin.firePageStartedEvent(url);
+                }
+            }
+
+            @Override
+            public void doUpdateVisitedHistory(WebView view, String url, boolean isReload) {
+                super.doUpdateVisitedHistory(view, url, isReload);
+                WebViewSessions.Session session = sessions.find(view);
+                if (session != null) {
+                    session.url = url;
+                }
+                // Also called for same-document changes (pushState, fragments).
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null && !isReload && view == webView) {
+                    plugin.fireUrlChangedEvent(url);
+                }
+                if (view == webView) {
+                    pushWarmFix();
+                }
+            }
+
+            @Override
+            public void onReceivedHttpError(WebView view, WebResourceRequest request, WebResourceResponse errorResponse) {
+                super.onReceivedHttpError(view, request, errorResponse);
+                if (view == webView && diagnostics.isEnabled(Diagnostics.Event.HTTP_ERROR)) {
+                    diagnostics.record(Diagnostics.Event.HTTP_ERROR, errorResponse.getStatusCode(),
+                            request.isForMainFrame() ? 1 : 0, request.getUrl().toString());
+                }
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null && view == webView) {
+                    plugin.fireHttpErrorEvent(request.getUrl().toString(), errorResponse.getStatusCode(),
+                            errorResponse.getReasonPhrase(), request.isForMainFrame());
+                }
+            }
+
+            @Override
+            public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+                return handleRenderProcessGone(view, detail.didCrash());
+            }
+
+            @Override
+            public void onPageCommitVisible(WebView view, String url) {
+                super.onPageCommitVisible(view, url);
+                if (view != webView) {
+                    return;
+                }
+                startupTrace.mark("pageCommitVisible");
+                pushWarmFix();
+                // The channel script is already in place when scripts run at document start.
+                if (messageChannel != null && documentStartScripts) {
+                    messageChannel.connect(url);
+                }
+            }
+
             @Override
             public void onPageFinished(WebView view, String url) {
                 super.onPageFinished(view, url);
 
-                if (debug) {
-                    // Inject JavaScript to log network requests
-                    String js = "(function() {" +
-                            "const originalFetch = window.fetch;" +
-                            "window.fetch = function() {" +
-                            "  const url = arguments[0];" +
-                            "  return originalFetch.apply(this, arguments)" +
-                            "    .then(response => {" +
-                            "      window.NetworkLogger.log('fetch-response', url, response.status);" +
-                            "      return response;" +
-                            "    });" +
-                            "};" +
-                            "const originalXHROpen = XMLHttpRequest.prototype.open;" +
-                            "XMLHttpRequest.prototype.open = function(method, url) {" +
-                            "  this._url = url;" +
-                            "  return originalXHROpen.apply(this, arguments);" +
-                            "};" +
-                            "const originalXHRSend = XMLHttpRequest.prototype.send;" +
-                            "XMLHttpRequest.prototype.send = function() {" +
-                            "  this.addEventListener('loadend', function() {" +
-                            "    window.NetworkLogger.log('xhr-response', this._url, this.status);" +
-                            "  });" +
-                            "  return originalXHRSend.apply(this, arguments);" +
-                            "};" +
-                            "})();";
-                    view.evaluateJavascript(js, null);
-
-                    Log.d("CustomWebViewActivity", "[DEBUG] onPageFinished: " + url);
+                scriptRegistry.injectOnPageFinished(view, url);
+                if (view != webView) {
+                    return;
+                }
+                if (!startupTrace.isFinished()) {
+                    startupTrace.mark("pageFinished");
+                    JSObject timing = startupTrace.finish(url, prewarmed);
+                    startupTiming = timing;
+                    diagnostics.record(Diagnostics.Event.STARTUP_FINISHED,
+                            timing.optLong("totalMs"), prewarmed ? 1 : 0, url);
+                    CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                    if (plugin != null) {
+                        plugin.fireWebviewTimingEvent(timing);
+                    }
+                }
+                if (messageChannel != null) {
+                    messageChannel.connect(url);
                 }
+                diagnostics.record(Diagnostics.Event.PAGE_FINISHED, url);
             }
         });
 
         webView.setWebChromeClient(new WebChromeClient() {
+            @Override
+            public void onProgressChanged(WebView view, int newProgress) {
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null && view == webView) {
+                    plugin.firePageProgressEvent(newProgress);
+                }
+            }
+
+            @Override
+            public void onReceivedTitle(WebView view, String title) {
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null && view == webView) {
+                    plugin.fireTitleChangedEvent(title);
+                }
+            }
+
             @Override
             public void onPermissionRequest(final PermissionRequest request) {
                 if (checkSelfPermission(Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED &&
@@ -245,10 +739,17 @@ public class CustomWebViewActivity extends AppCompatActivity {
                     String origin,
                     GeolocationPermissions.Callback callback
             ) {
+                // Holding the permission only grants the origin for this open;
+                // grants are remembered once the user decided in the dialog.
                 if (hasLocationPermission()) {
+                    openGeolocationOrigins.add(GeolocationDecisions.originOf(origin));
                     callback.invoke(origin, true, false);
                     return;
                 }
+                if (Boolean.FALSE.equals(geolocationDecisions.get(origin))) {
+                    callback.invoke(origin, false, false);
+                    return;
+                }
 
                 pendingGeolocationCallback = callback;
                 pendingGeolocationOrigin = origin;
@@ -263,7 +764,7 @@ public class CustomWebViewActivity extends AppCompatActivity {
                 intent.putExtra(Intent.EXTRA_MIME_TYPES, mimeTypes);
                 mUploadMessage = filePathCallback;
                 startActivityForResult(intent, FILE_CHOOSER_REQUEST_CODE);
-                if (debug) Log.d("CustomWebViewActivity", "[DEBUG] File chooser opened");
+                diagnostics.record(Diagnostics.Event.FILE_CHOOSER_OPENED, fileChooserParams.getAcceptTypes().length);
                 return true;
             }
         });
@@ -271,9 +772,70 @@ public class CustomWebViewActivity extends AppCompatActivity {
         webView.setDownloadListener(new DownloadListener() {
             @Override
             public void onDownloadStart(String url, String userAgent, String contentDisposition, String mimetype, long contentLength) {
-                startFileDownload(url, userAgent, contentDisposition, mimetype);
+                int priority = downloadRules.matchesResponse(mimetype, contentDisposition)
+                        ? DownloadScheduler.PRIORITY_HIGH
+                        : DownloadScheduler.PRIORITY_NORMAL;
+                startFileDownload(url, userAgent, contentDisposition, mimetype, priority);
             }
         });
+
+        documentStartScripts = scriptRegistry.install(webView);
+        diagnostics.record(Diagnostics.Event.SCRIPTS_REGISTERED, documentStartScripts ? 1 : 0);
+
+        attachMessageChannel();
+    }
+
+    // Metered state and the width images are scaled to, read once per page.
+    private void updateNetworkConditions() {
+        ConnectivityManager connectivity = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        meteredNetwork = connectivity != null && connectivity.isActiveNetworkMetered();
+        int width = webView != null ? webView.getWidth() : 0;
+        viewportWidth = width > 0 ? width : getResources().getDisplayMetrics().widthPixels;
+    }
+
+    // Answers blocked sub-resources with an empty body instead of fetching them.
+    private WebResourceResponse blockRequest(WebView view, WebResourceRequest request) {
+        ContentBlocker blocker = ContentBlocker.getCurrent();
+        Uri url = request.getUrl();
+        if (blocker == null || !blocker.matches(url.getHost(), url.getEncodedPath())) {
+            return null;
+        }
+        if (view == webView) {
+            int blocked = pageBlockedCount.incrementAndGet();
+            long bytes = pageBlockedHeuristicBytes.addAndGet(
+                    ContentBlocker.heuristicBytes(url.getEncodedPath(), request.getRequestHeaders().get("Accept")));
+            CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+            if (plugin != null) {
+                plugin.fireContentBlockedEvent(blockingPageUrl, blocked, bytes);
+            }
+        }
+        if (diagnostics.isEnabled(Diagnostics.Event.REQUEST_BLOCKED)) {
+            diagnostics.record(Diagnostics.Event.REQUEST_BLOCKED, url.toString());
+        }
+        return new WebResourceResponse("text/plain", "utf-8", new ByteArrayInputStream(new byte[0]));
+    }
+
+    private void attachMessageChannel() {
+        if (messageChannelOrigins != null) {
+            messageChannel = new PageMessageChannel(webView, messageChannelOrigins, messageChannelNonce, new PageMessageChannel.Listener() {
+                @Override
+                public void onText(String[] messages) {
+                    CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                    if (plugin != null) {
+                        plugin.fireChannelMessageEvent(messages);
+                    }
+                }
+
+                @Override
+                public void onBinary(String base64) {
+                    CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                    if (plugin != null) {
+                        plugin.fireChannelBinaryEvent(base64);
+                    }
+                }
+            });
+            activeSession.messageChannel = messageChannel;
+        }
     }
 
     @Override
@@ -281,6 +843,8 @@ public class CustomWebViewActivity extends AppCompatActivity {
         super.onSaveInstanceState(outState);
         if (webView != null) {
             webView.saveState(outState);
+        } else if (activeSession != null && activeSession.state != null) {
+            outState.putAll(activeSession.state);
         }
     }
 
@@ -288,67 +852,467 @@ public class CustomWebViewActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         restoreImmersiveMode();
+        if (webView == null && !isFinishing()) {
+            rebuildWebView();
+        }
         if (webView != null) {
             webView.onResume();
+            if (timersPaused) {
+                webView.resumeTimers();
+                timersPaused = false;
+            }
         }
     }
 
-    @Override
-    public void onWindowFocusChanged(boolean hasFocus) {
-        super.onWindowFocusChanged(hasFocus);
-        if (hasFocus) {
-            restoreImmersiveMode();
+    // Returning true keeps the app alive; the dead WebView must not be used again.
+    private boolean handleRenderProcessGone(WebView view, boolean didCrash) {
+        if (view != webView) {
+            // A background session reloads its last URL when switched to.
+            WebViewSessions.Session session = sessions.find(view);
+            if (session != null) {
+                session.state = null;
+            }
+            destroyWebView(view);
+            return true;
         }
+        String lastCommittedUrl = activeSession.url;
+        long now = SystemClock.elapsedRealtime();
+        rendererGoneTimes[rendererGoneCount % MAX_RENDERER_LOSSES] = now;
+        rendererGoneCount++;
+        // The next slot holds the oldest of the last MAX_RENDERER_LOSSES losses, this one included.
+        boolean giveUp = rendererGoneCount >= MAX_RENDERER_LOSSES
+                && now - rendererGoneTimes[rendererGoneCount % MAX_RENDERER_LOSSES] < RENDERER_RECOVERY_WINDOW_MS;
+        diagnostics.record(Diagnostics.Event.RENDERER_GONE, didCrash ? 1 : 0, rendererGoneCount, lastCommittedUrl);
+
+        activeSession.state = null;
+        destroyWebView(webView);
+        CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+        if (giveUp) {
+            if (plugin != null) {
+                plugin.fireRenderProcessGoneEvent(didCrash, false, lastCommittedUrl);
+            }
+            Toast.makeText(this, "The page stopped responding", Toast.LENGTH_SHORT).show();
+            finish();
+            return true;
+        }
+        // In the background the WebView is rebuilt on resume instead.
+        if (isResumedState()) {
+            rebuildWebView();
+        }
+        if (plugin != null) {
+            plugin.fireRenderProcessGoneEvent(didCrash, true, lastCommittedUrl);
+        }
+        return true;
     }
 
-    private boolean shouldDownloadPdfFromUrl(Uri uri) {
-        if (uri == null) {
-            return false;
+    private boolean isResumedState() {
+        return getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED);
+    }
+
+    /**
+     * Creates a new WebView for the active session in place of a released,
+     * evicted or crashed one, restoring its history from the saved state, or
+     * reloading the last committed URL.
+     */
+    private void rebuildWebView() {
+        createWebView();
+        configureWebView();
+        Bundle state = activeSession.state;
+        activeSession.state = null;
+        if (state != null && webView.restoreState(state) != null) {
+            diagnostics.record(Diagnostics.Event.WEBVIEW_REBUILT, 1, activeSession.url);
+            return;
+        }
+        String url = activeSession.url != null ? activeSession.url : getIntent().getStringExtra(EXTRA_URL);
+        if (url != null && !url.isEmpty()) {
+            loadUrl(webView, url, null);
+        }
+        diagnostics.record(Diagnostics.Event.WEBVIEW_REBUILT, 0, url);
+    }
+
+    @VisibleForTesting
+    void destroyWebView(WebView view) {
+        if (view == null) {
+            return;
+        }
+        if (view == webView) {
+            if (messageChannel != null) {
+                messageChannel.close();
+                messageChannel = null;
+            }
+            // Timers are paused for every WebView in the process, not just this one.
+            if (timersPaused) {
+                view.resumeTimers();
+                timersPaused = false;
+            }
+            webView = null;
+        }
+        WebViewSessions.Session session = sessions.find(view);
+        if (session != null) {
+            session.webView = null;
+            if (session.messageChannel != null) {
+                session.messageChannel.close();
+                session.messageChannel = null;
+            }
+        }
+        scriptRegistry.uninstall(view);
+        ViewGroup parent = (ViewGroup) view.getParent();
+        if (parent != null) {
+            parent.removeView(view);
         }
+        view.destroy();
+    }
 
-        String path = uri.getLastPathSegment();
-        if (path != null && path.toLowerCase().endsWith(".pdf")) {
+    private void evictSession(WebViewSessions.Session session) {
+        session.state = new Bundle();
+        session.webView.saveState(session.state);
+        destroyWebView(session.webView);
+        diagnostics.record(Diagnostics.Event.SESSION_EVICTED, session.id);
+    }
+
+    /**
+     * Shows the session's page, creating the session when it does not exist
+     * and {@code url} is given. A live session is swapped in as is; an evicted
+     * one is rebuilt from its saved state. Returns false for an unknown session
+     * without a URL.
+     */
+    boolean switchSession(String id, String url) {
+        WebViewSessions.Session target = sessions.use(id);
+        boolean created = false;
+        if (target == null) {
+            if (url == null || url.isEmpty()) {
+                return false;
+            }
+            target = sessions.create(id, url);
+            created = true;
+        }
+        if (target == activeSession) {
             return true;
         }
+        if (webView != null) {
+            messageChannel = null;
+            webView.onPause();
+            ((ViewGroup) webView.getParent()).removeView(webView);
+        }
 
-        for (String queryKey : new String[]{"filename", "file", "name", "download"}) {
-            String value = uri.getQueryParameter(queryKey);
-            if (value != null && value.toLowerCase().endsWith(".pdf")) {
-                return true;
+        activeSession = target;
+        webView = target.webView;
+        if (webView != null) {
+            attachToContainer(webView);
+            webView.onResume();
+            messageChannel = target.messageChannel;
+            if (messageChannel != null) {
+                messageChannel.makeCurrent();
             }
+        } else if (created && snapshots != null) {
+            WebViewSessions.Session session = target;
+            restoreSnapshot(session, () -> {
+                if (session == activeSession && session.webView == null && !isFinishing()) {
+                    rebuildWebView();
+                }
+            });
+        } else {
+            rebuildWebView();
         }
+        sessions.trim(activeSession, this::evictSession);
+        diagnostics.record(Diagnostics.Event.SESSION_SWITCHED, sessions.size(), id);
+        return true;
+    }
 
+    /**
+     * Closes a session and drops its snapshot. Closing the active session
+     * switches to the most recently used one, or closes the activity when
+     * none is left.
+     */
+    boolean closeSession(String id) {
+        WebViewSessions.Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        if (snapshots != null) {
+            snapshots.clear(id);
+        }
+        if (session.messageChannel != null) {
+            session.messageChannel.close();
+            session.messageChannel = null;
+        }
+        if (session != activeSession) {
+            destroyWebView(session.webView);
+            return true;
+        }
+        destroyWebView(webView);
+        activeSession = null;
+        WebViewSessions.Session next = sessions.mostRecent(null);
+        if (next == null) {
+            finish();
+        } else {
+            switchSession(next.id, null);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the snapshot of a new session in the background into its saved
+     * state, so it is restored instead of loading its URL, then runs
+     * {@code then} on the main thread unless the activity is gone.
+     */
+    private void restoreSnapshot(WebViewSessions.Session session, Runnable then) {
+        snapshots.loadAsync(session.id, session.openUrl, snapshotMaxAgeMs, snapshot -> {
+            if (isDestroyed()) {
+                return;
+            }
+            // Only a session that has not been shown yet takes the snapshot.
+            if (snapshot != null && session.state == null && session.openUrl.equals(session.url)) {
+                session.state = snapshot.state;
+                session.url = snapshot.url;
+            }
+            then.run();
+        });
+    }
+
+    private boolean restoreSessionState(WebViewSessions.Session session) {
+        Bundle state = session.state;
+        session.state = null;
+        if (session.webView.restoreState(state) != null) {
+            return true;
+        }
+        session.url = session.openUrl;
         return false;
     }
 
-    private void startFileDownload(String url, String userAgent, String contentDisposition, String mimetype) {
+    // Runs once when the activity closes, while the WebViews are still alive.
+    private void saveSnapshots() {
+        if (snapshots == null || snapshotsSaved) {
+            return;
+        }
+        snapshotsSaved = true;
+        for (WebViewSessions.Session session : sessions.all()) {
+            Bundle state = session.state;
+            if (session.webView != null) {
+                state = new Bundle();
+                if (session.webView.saveState(state) == null) {
+                    continue;
+                }
+            }
+            if (state != null && session.openUrl != null && session.url != null) {
+                snapshots.save(session.id, session.openUrl, session.url, state);
+            }
+        }
+    }
+
+    // Pages reported by the message listener and evaluateJavascript callbacks, on the main thread.
+    private void addPageMetrics(String report) {
+        try {
+            JSONArray page = pageMetrics.addPage(report);
+            if (page != null) {
+                diagnostics.record(Diagnostics.Event.PAGE_METRICS, page.optLong(4), page.optLong(5), page.optString(0));
+            }
+        } catch (JSONException e) {
+            diagnostics.record(Diagnostics.Event.PAGE_METRICS_INVALID);
+        }
+    }
+
+    // Takes the open page of every live session; the summary is reported once
+    // all have answered, or PAGE_REPORT_TIMEOUT_MS after onDestroy at the latest.
+    private void collectPageMetrics() {
+        if (pageMetrics == null || pendingPageReports >= 0) {
+            return;
+        }
+        List<WebView> live = new ArrayList<>();
+        for (WebViewSessions.Session session : sessions.all()) {
+            if (session.webView != null) {
+                live.add(session.webView);
+            }
+        }
+        pendingPageReports = live.size();
+        if (live.isEmpty()) {
+            reportPageMetrics();
+            return;
+        }
+        for (WebView view : live) {
+            view.evaluateJavascript(PageMetrics.TAKE_SCRIPT, value -> {
+                addPageMetrics(value);
+                if (--pendingPageReports == 0) {
+                    finishPageReports();
+                }
+            });
+        }
+    }
+
+    // Reports the summary, then destroys the WebViews onDestroy left waiting for it.
+    private void finishPageReports() {
+        mainHandler.removeCallbacks(pageReportsTimeout);
+        pendingPageReports = 0;
+        reportPageMetrics();
+        for (WebView view : awaitingPageReports) {
+            destroyWebView(view);
+        }
+        awaitingPageReports.clear();
+    }
+
+    private void reportPageMetrics() {
+        if (pageMetrics == null || pageMetricsReported) {
+            return;
+        }
+        pageMetricsReported = true;
+        pageMetrics.close();
+        CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+        if (plugin != null) {
+            plugin.firePageMetricsEvent(pageMetrics.toJson());
+        }
+    }
+
+    JSArray getSessions() {
+        JSArray result = new JSArray();
+        for (WebViewSessions.Session session : sessions.all()) {
+            JSObject item = new JSObject();
+            item.put("id", session.id);
+            item.put("url", session.url);
+            item.put("live", session.isLive());
+            item.put("active", session == activeSession);
+            result.put(item);
+        }
+        return result;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        List<String> actions = new ArrayList<>();
+        // Android 14 only delivers UI_HIDDEN and BACKGROUND; RUNNING_* and MODERATE still arrive on older versions.
+        boolean pressure = level >= TRIM_MEMORY_BACKGROUND
+                || (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN);
+        if (pressure && sessions.evictAllBackground(activeSession, this::evictSession) > 0) {
+            actions.add("sessions");
+        }
+        if (pressure) {
+            if (assetCache != null) {
+                assetCache.flush();
+            }
+            if (dataSaver != null) {
+                DataSaver.clearCache();
+            }
+            if (webView != null) {
+                webView.clearCache(false);
+            }
+            actions.add("caches");
+        }
+        boolean background = !isResumedState();
+        if (background && level >= TRIM_MEMORY_UI_HIDDEN && webView != null && !timersPaused) {
+            // pauseTimers is process-wide; undone in onResume or when the WebView is released.
+            webView.pauseTimers();
+            timersPaused = true;
+            actions.add("timers");
+        }
+        if (background && level >= TRIM_MEMORY_BACKGROUND && webView != null) {
+            activeSession.state = new Bundle();
+            webView.saveState(activeSession.state);
+            destroyWebView(webView);
+            actions.add("webview");
+        }
+        if (diagnostics.isEnabled(Diagnostics.Event.MEMORY_TRIMMED)) {
+            diagnostics.record(Diagnostics.Event.MEMORY_TRIMMED, level, String.join(",", actions));
+        }
+        CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+        if (plugin != null) {
+            plugin.fireMemoryPressureEvent(level, background, actions);
+        }
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        super.onWindowFocusChanged(hasFocus);
+        if (hasFocus) {
+            restoreImmersiveMode();
+        }
+    }
+
+    private void startNavigationDownload(String url, String userAgent) {
+        String fileName = downloadRules.queryFileName(url);
+        String contentDisposition = fileName != null ? "attachment; filename=\"" + fileName + "\"" : null;
+        String extension = fileName != null
+                ? fileName.substring(fileName.lastIndexOf('.') + 1)
+                : MimeTypeMap.getFileExtensionFromUrl(url);
+        String mimetype = extension != null
+                ? MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase(Locale.US))
+                : null;
+        startFileDownload(url, userAgent, contentDisposition, mimetype, DownloadScheduler.PRIORITY_HIGH);
+    }
+
+    private void startFileDownload(String url, String userAgent, String contentDisposition, String mimetype, int priority) {
+        String cookies = CookieManager.getInstance().getCookie(url);
+        String agent = userAgent != null ? userAgent
+                : webView != null ? webView.getSettings().getUserAgentString() : WebSettings.getDefaultUserAgent(this);
+        String fileName = android.webkit.URLUtil.guessFileName(url, contentDisposition, mimetype);
+        Context appContext = getApplicationContext();
+        boolean parallel = parallelDownloads;
+
+        boolean queued = DownloadScheduler.getInstance(this).submit(url, fileName, priority, onFinished -> {
+            if (parallel) {
+                startParallelDownload(appContext, url, fileName, cookies, agent, onFinished);
+            } else {
+                startSystemDownload(appContext, url, fileName, mimetype, cookies, agent, onFinished);
+            }
+        });
+
+        CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+        if (queued && plugin != null) {
+            plugin.fireDownloadStartedEvent(url, fileName, mimetype);
+        }
+        if (queued) {
+            diagnostics.record(Diagnostics.Event.DOWNLOAD_QUEUED, priority, fileName);
+        } else {
+            diagnostics.record(Diagnostics.Event.DOWNLOAD_DUPLICATE, fileName);
+        }
+    }
+
+    private static void startSystemDownload(Context context, String url, String fileName, String mimetype,
+                                            String cookies, String userAgent, Runnable onFinished) {
         DownloadManager.Request request = new DownloadManager.Request(Uri.parse(url));
         if (mimetype != null && !mimetype.isEmpty()) {
             request.setMimeType(mimetype);
         }
-
-        String cookies = CookieManager.getInstance().getCookie(url);
         if (cookies != null) {
             request.addRequestHeader("cookie", cookies);
         }
-        if (userAgent != null) {
-            request.addRequestHeader("User-Agent", userAgent);
-        } else {
-            request.addRequestHeader("User-Agent", webView.getSettings().getUserAgentString());
-        }
+        request.addRequestHeader("User-Agent", userAgent);
 
-        String fileName = android.webkit.URLUtil.guessFileName(url, contentDisposition, mimetype);
         request.setTitle(fileName);
         request.setDescription("Downloading file...");
         request.setDestinationInExternalPublicDir(Environment.DIRECTORY_DOWNLOADS, fileName);
         request.setNotificationVisibility(DownloadManager.Request.VISIBILITY_VISIBLE_NOTIFY_COMPLETED);
 
-        DownloadManager dm = (DownloadManager) getSystemService(Context.DOWNLOAD_SERVICE);
-        dm.enqueue(request);
+        DownloadManager dm = (DownloadManager) context.getSystemService(Context.DOWNLOAD_SERVICE);
+        long downloadId = dm.enqueue(request);
+        DownloadScheduler.getInstance(context).trackSystemDownload(downloadId, onFinished);
+    }
 
-        Toast.makeText(CustomWebViewActivity.this, "File saved in Downloads", Toast.LENGTH_LONG).show();
+    private static void startParallelDownload(Context context, String url, String fileName, String cookies,
+                                              String userAgent, Runnable onFinished) {
+        Map<String, String> headers = new HashMap<>();
+        if (cookies != null) {
+            headers.put("Cookie", cookies);
+        }
+        headers.put("User-Agent", userAgent);
 
-        if (debug) Log.d("CustomWebViewActivity", "[DEBUG] Download started: " + fileName);
+        DownloadEngine.getInstance(context).start(url, fileName, headers, new DownloadEngine.Listener() {
+            @Override
+            public void onProgress(int id, String url, String fileName, long downloaded, long total) {
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null) {
+                    plugin.fireDownloadProgressEvent(id, url, fileName, downloaded, total);
+                }
+            }
+
+            @Override
+            public void onComplete(int id, String url, String fileName, String location, String error) {
+                onFinished.run();
+                CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                if (plugin != null) {
+                    plugin.fireDownloadCompleteEvent(id, url, fileName, location, error);
+                }
+            }
+        });
     }
 
     // File result handling
@@ -373,6 +1337,19 @@ public class CustomWebViewActivity extends AppCompatActivity {
                         results = new Uri[]{Uri.parse(dataString)};
                 }
             }
+            if (results != null && uploadImageProcessor != null) {
+                ValueCallback<Uri[]> uploadMessage = mUploadMessage;
+                mUploadMessage = null;
+                uploadImageProcessor.process(results, (processed, bytesSaved) -> {
+                    uploadMessage.onReceiveValue(processed);
+                    diagnostics.record(Diagnostics.Event.UPLOAD_PROCESSED, processed.length, bytesSaved);
+                    CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
+                    if (plugin != null) {
+                        plugin.fireUploadProcessedEvent(processed.length, bytesSaved);
+                    }
+                });
+                return;
+            }
             mUploadMessage.onReceiveValue(results);
             mUploadMessage = null;
         }
@@ -381,21 +1358,54 @@ public class CustomWebViewActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        if (isFinishing()) {
+            saveSnapshots();
+            collectPageMetrics();
+        }
         if (webView != null) {
             webView.onPause();
         }
         if (enableCookies) {
             CookieManager.getInstance().flush();
         }
+        if (assetCache != null) {
+            assetCache.flush();
+        }
     }
 
     @Override
     protected void onDestroy() {
         if (isFinishing()) {
+            saveSnapshots();
             CustomWebviewPlugin plugin = CustomWebviewPlugin.getInstance();
             if (plugin != null) {
                 plugin.fireWebviewClosedEvent();
             }
+            if (pendingPageReports > 0) {
+                mainHandler.postDelayed(pageReportsTimeout, PAGE_REPORT_TIMEOUT_MS);
+            } else {
+                reportPageMetrics();
+            }
+        }
+        if (locationWarmup != null) {
+            locationWarmup.stop();
+        }
+        if (uploadImageProcessor != null) {
+            uploadImageProcessor.release();
+        }
+        for (WebViewSessions.Session session : sessions.all()) {
+            // A view still answering collectPageMetrics() is destroyed by finishPageReports().
+            if (pendingPageReports > 0 && session.webView != null) {
+                awaitingPageReports.add(session.webView);
+            } else {
+                destroyWebView(session.webView);
+            }
+        }
+        if (current.get() == this) {
+            current = new WeakReference<>(null);
+        }
+        if (debug) {
+            diagnostics.setVerbose(false);
         }
         super.onDestroy();
     }
@@ -411,9 +1421,34 @@ public class CustomWebViewActivity extends AppCompatActivity {
     }
 
     private void ensureLocationPermission() {
-        if (!hasLocationPermission()) {
-            requestLocationPermission();
+        if (hasLocationPermission()) {
+            return;
+        }
+        // Origins granted while the app had the permission must not keep it.
+        GeolocationPermissions.getInstance().clearAll();
+        String origin = GeolocationDecisions.originOf(getIntent().getStringExtra(EXTRA_URL));
+        if (Boolean.FALSE.equals(geolocationDecisions.get(origin))) {
+            diagnostics.record(Diagnostics.Event.LOCATION_DENIAL_CACHED, origin);
+            return;
+        }
+        requestLocationPermission();
+    }
+
+    private void startLocationWarmup() {
+        if (locationWarmup != null && hasLocationPermission() && locationWarmup.start(this::pushWarmFix)) {
+            diagnostics.record(Diagnostics.Event.LOCATION_WARMUP_STARTED);
+        }
+    }
+
+    // Hands the warm fix to the current page if its origin was granted geolocation before.
+    private void pushWarmFix() {
+        if (locationWarmup == null || webView == null) {
+            return;
         }
+        String origin = GeolocationDecisions.originOf(webView.getUrl());
+        boolean allowed = hasLocationPermission()
+                && (openGeolocationOrigins.contains(origin) || geolocationDecisions.isGranted(origin));
+        webView.evaluateJavascript(locationWarmup.pushScript(allowed), null);
     }
 
     private void requestLocationPermission() {
@@ -432,7 +1467,8 @@ public class CustomWebViewActivity extends AppCompatActivity {
             return;
         }
 
-        pendingGeolocationCallback.invoke(pendingGeolocationOrigin, granted, false);
+        geolocationDecisions.put(pendingGeolocationOrigin, granted);
+        pendingGeolocationCallback.invoke(pendingGeolocationOrigin, granted, granted);
         pendingGeolocationCallback = null;
         pendingGeolocationOrigin = null;
     }
@@ -443,7 +1479,7 @@ public class CustomWebViewActivity extends AppCompatActivity {
         if (requestCode == CAMERA_AND_MICROPHONE_PERMISSION_CODE) {
             if (grantResults.length > 1 && grantResults[0] == PackageManager.PERMISSION_GRANTED
                     && grantResults[1] == PackageManager.PERMISSION_GRANTED) {
-                webView.reload();
+                if (webView != null) webView.reload();
             } else {
                 Toast.makeText(this, "Camera and microphone permissions are required", Toast.LENGTH_SHORT).show();
             }
@@ -453,9 +1489,16 @@ public class CustomWebViewActivity extends AppCompatActivity {
         if (requestCode == LOCATION_PERMISSION_CODE) {
             boolean granted = grantResults.length > 0
                     && grantResults[0] == PackageManager.PERMISSION_GRANTED;
-            resolvePendingGeolocationPermission(granted);
-            if (!granted && debug) {
-                Log.w("CustomWebViewActivity", "[DEBUG] Location permission denied — geolocation unavailable");
+            if (pendingGeolocationCallback != null) {
+                resolvePendingGeolocationPermission(granted);
+            } else if (!granted && grantResults.length > 0) {
+                // Asked at open: remember the denial for the opened page so the next open does not ask again.
+                geolocationDecisions.put(GeolocationDecisions.originOf(getIntent().getStringExtra(EXTRA_URL)), false);
+            }
+            if (granted) {
+                startLocationWarmup();
+            } else {
+                diagnostics.record(Diagnostics.Event.LOCATION_PERMISSION_DENIED);
             }
         }
     }
@@ -0,0 +1,7 @@
+package com.webview.capacitor.custom;
+
+import androidx.core.content.FileProvider;
+
+// Own subclass so the manifest entry does not clash with a FileProvider declared by the host app.
+public class CustomWebviewFileProvider extends FileProvider {
+}
@@ -1,29 +1,68 @@
 package com.webview.capacitor.custom;
 
+import android.content.Context;
 import android.content.Intent;
-import android.util.Log;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.webkit.CookieManager;
+import android.webkit.GeolocationPermissions;
 
+import androidx.activity.result.ActivityResult;
+
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @CapacitorPlugin(name = "CustomWebview")
 public class CustomWebviewPlugin extends Plugin {
 
-    private static final String TAG = "CustomWebviewPlugin";
     private static CustomWebviewPlugin instance;
     private CustomWebview implementation = new CustomWebview();
-
-    public CustomWebviewPlugin() {
-        super();
-        Log.d(TAG, "[PLUGIN DEBUG] CustomWebviewPlugin initialized");
-    }
+    // Superseded state updates are dropped and chatty event types are rate limited
+    // before they reach the bridge.
+    private final EventQueue<JSObject> events = new EventQueue<JSObject>("CustomWebviewEvents", this::notifyListeners)
+            .coalesce("pageProgress", 100)
+            .coalesce("titleChanged", 0)
+            .coalesce("urlChanged", 0)
+            .coalesce("downloadProgress", DownloadEngine.PROGRESS_INTERVAL_MS)
+            .coalesce("contentBlocked", 500)
+            .coalesce("geolocationServed", 0)
+            .coalesce("dataSaved", 500)
+            .limit("httpError", 10)
+            .limit("downloadStarted", 10);
+    // Runs slow setup work (rule compilation, pack extraction) off the bridge thread.
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
 
     @Override
     public void load() {
         instance = this;
+        Diagnostics.getInstance().record(Diagnostics.Event.PLUGIN_LOADED);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        WebViewPool.getInstance(getContext()).clear();
+        super.handleOnDestroy();
     }
 
     static CustomWebviewPlugin getInstance() {
@@ -31,29 +70,667 @@ public class CustomWebviewPlugin extends Plugin {
     }
 
     void fireWebviewClosedEvent() {
-        notifyListeners("webviewClosed", new JSObject());
+        events.post("webviewClosed", new JSObject());
+    }
+
+    void firePageStartedEvent(String url) {
+        JSObject data = new JSObject();
+        data.put("url", url);
+        events.post("pageStarted", data);
+    }
+
+    void firePageProgressEvent(int progress) {
+        JSObject data = new JSObject();
+        data.put("progress", progress);
+        events.post("pageProgress", data);
+    }
+
+    void fireTitleChangedEvent(String title) {
+        JSObject data = new JSObject();
+        data.put("title", title);
+        events.post("titleChanged", data);
+    }
+
+    void fireUrlChangedEvent(String url) {
+        JSObject data = new JSObject();
+        data.put("url", url);
+        events.post("urlChanged", data);
+    }
+
+    void fireHttpErrorEvent(String url, int statusCode, String reason, boolean mainFrame) {
+        JSObject data = new JSObject();
+        data.put("url", url);
+        data.put("statusCode", statusCode);
+        data.put("reason", reason);
+        data.put("isMainFrame", mainFrame);
+        events.post("httpError", data);
+    }
+
+    void fireDownloadStartedEvent(String url, String fileName, String mimeType) {
+        JSObject data = new JSObject();
+        data.put("url", url);
+        data.put("fileName", fileName);
+        data.put("mimeType", mimeType);
+        events.post("downloadStarted", data);
+    }
+
+    void fireContentBlockedEvent(String pageUrl, int blocked, long heuristicBytes) {
+        JSObject data = new JSObject();
+        data.put("url", pageUrl);
+        data.put("blocked", blocked);
+        data.put("heuristicBytesSaved", heuristicBytes);
+        events.post("contentBlocked", "contentBlocked:" + pageUrl, data);
+    }
+
+    void fireDataSavedEvent(int images, long bytesSaved) {
+        JSObject data = new JSObject();
+        data.put("images", images);
+        data.put("bytesSaved", bytesSaved);
+        events.post("dataSaved", data);
+    }
+
+    void fireGeolocationServedEvent(int fromWarmFix, int fallbacks) {
+        JSObject data = new JSObject();
+        data.put("fromWarmFix", fromWarmFix);
+        data.put("fallbacks", fallbacks);
+        events.post("geolocationServed", data);
+    }
+
+    void fireWebviewTimingEvent(JSObject timing) {
+        events.post("webviewTiming", timing);
+    }
+
+    void firePageMetricsEvent(JSObject summary) {
+        events.post("pageMetrics", summary);
+    }
+
+    void fireRenderProcessGoneEvent(boolean didCrash, boolean recovered, String url) {
+        JSObject data = new JSObject();
+        data.put("didCrash", didCrash);
+        data.put("recovered", recovered);
+        data.put("url", url);
+        events.post("renderProcessGone", data);
+    }
+
+    void fireMemoryPressureEvent(int level, boolean background, List<String> released) {
+        JSArray releasedArray = new JSArray();
+        for (String item : released) {
+            releasedArray.put(item);
+        }
+        JSObject data = new JSObject();
+        data.put("level", level);
+        data.put("background", background);
+        data.put("released", releasedArray);
+        events.post("memoryPressure", data);
+    }
+
+    void fireUploadProcessedEvent(int files, long bytesSaved) {
+        JSObject data = new JSObject();
+        data.put("files", files);
+        data.put("bytesSaved", bytesSaved);
+        events.post("uploadProcessed", data);
+    }
+
+    void fireDownloadProgressEvent(int id, String url, String fileName, long downloaded, long total) {
+        JSObject data = new JSObject();
+        data.put("id", id);
+        data.put("url", url);
+        data.put("fileName", fileName);
+        data.put("bytesDownloaded", downloaded);
+        data.put("totalBytes", total);
+        events.post("downloadProgress", "downloadProgress:" + id, data);
+    }
+
+    void fireDownloadCompleteEvent(int id, String url, String fileName, String location, String error) {
+        JSObject data = new JSObject();
+        data.put("id", id);
+        data.put("url", url);
+        data.put("fileName", fileName);
+        data.put("success", error == null);
+        if (location != null) {
+            data.put("path", location);
+        }
+        if (error != null) {
+            data.put("error", error);
+        }
+        events.post("downloadComplete", data);
+    }
+
+    void fireChannelMessageEvent(String[] messages) {
+        JSArray batch = new JSArray();
+        for (String message : messages) {
+            batch.put(message);
+        }
+        JSObject data = new JSObject();
+        data.put("messages", batch);
+        notifyListeners("channelMessage", data);
+    }
+
+    void fireChannelBinaryEvent(String base64) {
+        JSObject data = new JSObject();
+        data.put("data", base64);
+        notifyListeners("channelBinary", data);
     }
 
     @PluginMethod
     public void openWebview(PluginCall call) {
-        boolean debug = call.getBoolean("debug", false);
-        boolean enableCookies = call.getBoolean("enableCookies", false);
+        Diagnostics diagnostics = Diagnostics.getInstance();
         String url = call.getString("url");
-        if (debug) Log.d(TAG, "[PLUGIN DEBUG] openWebview called");
+        String contentPack = call.getString("contentPack");
+        if (contentPack != null) {
+            url = ContentPacks.getInstance(getContext()).urlFor(contentPack, url);
+            if (url == null) {
+                diagnostics.record(Diagnostics.Event.OPEN_REJECTED, "contentPackMissing");
+                call.reject("Content pack is not installed: " + contentPack);
+                return;
+            }
+        }
         if (url == null || url.isEmpty()) {
-            if (debug) Log.e(TAG, "[PLUGIN ERROR] URL is required");
+            diagnostics.record(Diagnostics.Event.OPEN_REJECTED, "urlMissing");
             call.reject("URL is required");
             return;
         }
 
-        if (debug) Log.d(TAG, "[PLUGIN DEBUG] Opening CustomWebViewActivity with URL: " + url);
-        Intent intent = new Intent(getActivity(), CustomWebViewActivity.class);
+        diagnostics.record(Diagnostics.Event.OPEN_REQUESTED, contentPack != null ? 1 : 0, url);
+        if ("customTabs".equals(call.getString("mode"))) {
+            CustomTabsLauncher launcher = CustomTabsLauncher.getInstance(getContext());
+            Intent tab = contentPack == null ? launcher.createIntent(url) : null;
+            if (tab != null) {
+                diagnostics.record(Diagnostics.Event.CUSTOM_TAB_OPENED, launcher.isPrepared() ? 1 : 0, url);
+                // The result arrives when the tab is closed.
+                startActivityForResult(call, tab, "customTabClosed");
+                call.resolve();
+                return;
+            }
+            diagnostics.record(Diagnostics.Event.CUSTOM_TABS_UNAVAILABLE, url);
+        }
+        String sessionId = call.getString("sessionId");
+        if (sessionId != null && !sessionId.isEmpty()) {
+            String sessionUrl = url;
+            // An open webview takes the session over instead of a second activity being stacked on it.
+            getActivity().runOnUiThread(() -> {
+                CustomWebViewActivity activity = CustomWebViewActivity.getCurrent();
+                if (activity != null && !activity.isFinishing()) {
+                    activity.switchSession(sessionId, sessionUrl);
+                } else {
+                    getActivity().startActivity(createIntent(getActivity(), sessionUrl, call.getData()));
+                }
+                call.resolve();
+            });
+            return;
+        }
+        getActivity().startActivity(createIntent(getActivity(), url, call.getData()));
+
+        call.resolve();
+    }
+
+    @ActivityCallback
+    private void customTabClosed(PluginCall call, ActivityResult result) {
+        if (call != null) {
+            bridge.releaseCall(call);
+        }
+        fireWebviewClosedEvent();
+    }
+
+    @PluginMethod
+    public void prepare(PluginCall call) {
+        CustomTabsLauncher launcher = CustomTabsLauncher.getInstance(getContext());
+        JSObject ret = new JSObject();
+        ret.put("supported", launcher.prepare(call.getString("url")));
+        String provider = launcher.getProviderPackage();
+        if (provider != null) {
+            ret.put("provider", provider);
+        }
+        call.resolve(ret);
+    }
+
+    /**
+     * Builds the CustomWebViewActivity intent for an openWebview call's
+     * options, with {@code url} already resolved.
+     */
+    static Intent createIntent(Context context, String url, JSONObject options) {
+        Intent intent = new Intent(context, CustomWebViewActivity.class);
+        intent.putExtra(CustomWebViewActivity.EXTRA_OPENED_AT, SystemClock.elapsedRealtimeNanos());
         intent.putExtra(CustomWebViewActivity.EXTRA_URL, url);
-        intent.putExtra("debug", debug);
-        intent.putExtra(CustomWebViewActivity.EXTRA_ENABLE_COOKIES, enableCookies);
-        intent.putExtra(CustomWebViewActivity.EXTRA_FULLSCREEN, call.getBoolean("fullscreen", false));
-        getActivity().startActivity(intent);
+        intent.putExtra("debug", options.optBoolean("debug", false));
+        intent.putExtra(CustomWebViewActivity.EXTRA_ENABLE_COOKIES, options.optBoolean("enableCookies", false));
+        intent.putExtra(CustomWebViewActivity.EXTRA_FULLSCREEN, options.optBoolean("fullscreen", false));
+        intent.putExtra(CustomWebViewActivity.EXTRA_CAPTURE_NETWORK, options.optBoolean("captureNetwork", false));
+        intent.putExtra(CustomWebViewActivity.EXTRA_DOWNLOAD_ENGINE, optString(options, "downloadEngine", "system"));
+        JSONArray scripts = options.optJSONArray("scripts");
+        if (scripts != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_SCRIPTS, scripts.toString());
+        }
+        JSONObject uploadImages = options.optJSONObject("uploadImages");
+        if (uploadImages != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_UPLOAD_IMAGES, true);
+            intent.putExtra(CustomWebViewActivity.EXTRA_UPLOAD_MAX_WIDTH,
+                    uploadImages.optInt("maxWidth", UploadImageProcessor.DEFAULT_MAX_DIMENSION));
+            intent.putExtra(CustomWebViewActivity.EXTRA_UPLOAD_MAX_HEIGHT,
+                    uploadImages.optInt("maxHeight", UploadImageProcessor.DEFAULT_MAX_DIMENSION));
+            intent.putExtra(CustomWebViewActivity.EXTRA_UPLOAD_QUALITY,
+                    uploadImages.optInt("quality", UploadImageProcessor.DEFAULT_QUALITY));
+        }
+        JSONObject dataSaver = options.optJSONObject("dataSaver");
+        if (dataSaver != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_DATA_SAVER, true);
+            intent.putExtra(CustomWebViewActivity.EXTRA_DATA_SAVER_QUALITY,
+                    dataSaver.optInt("quality", DataSaver.DEFAULT_QUALITY));
+            intent.putExtra(CustomWebViewActivity.EXTRA_DATA_SAVER_ALWAYS, dataSaver.optBoolean("always", false));
+        }
+        JSONObject downloadRules = options.optJSONObject("downloadRules");
+        if (downloadRules != null) {
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_DOWNLOAD_EXTENSIONS, downloadRules.optJSONArray("extensions"));
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_DOWNLOAD_QUERY_KEYS, downloadRules.optJSONArray("queryKeys"));
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_DOWNLOAD_MIME_TYPES, downloadRules.optJSONArray("mimeTypes"));
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_DOWNLOAD_HOSTS, downloadRules.optJSONArray("hosts"));
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_DOWNLOAD_PATH_PREFIXES, downloadRules.optJSONArray("pathPrefixes"));
+        }
+        JSONObject headers = options.optJSONObject("headers");
+        if (headers != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_HEADERS, headers.toString());
+        }
+        JSONObject originHeaders = options.optJSONObject("originHeaders");
+        if (originHeaders != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_ORIGIN_HEADERS, originHeaders.toString());
+        }
+        JSONObject messageChannel = options.optJSONObject("messageChannel");
+        if (messageChannel != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_MESSAGE_CHANNEL, true);
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_MESSAGE_CHANNEL_ORIGINS,
+                    messageChannel.optJSONArray("allowedOrigins"));
+        }
+        JSONObject assetCache = options.optJSONObject("assetCache");
+        if (assetCache != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_ASSET_CACHE, true);
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_ASSET_CACHE_PATTERNS, assetCache.optJSONArray("patterns"));
+            if (assetCache.has("maxSizeMb")) {
+                intent.putExtra(CustomWebViewActivity.EXTRA_ASSET_CACHE_MAX_BYTES,
+                        (long) (assetCache.optDouble("maxSizeMb") * 1024 * 1024));
+            }
+        }
+        String sessionId = optString(options, "sessionId", null);
+        if (sessionId != null && !sessionId.isEmpty()) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_SESSION_ID, sessionId);
+        }
+        intent.putExtra(CustomWebViewActivity.EXTRA_MAX_LIVE_SESSIONS,
+                options.optInt("maxLiveSessions", WebViewSessions.DEFAULT_MAX_LIVE));
+        intent.putExtra(CustomWebViewActivity.EXTRA_CONTENT_BLOCKING, options.optBoolean("contentBlocking", false));
+        intent.putExtra(CustomWebViewActivity.EXTRA_GEOLOCATION_WARMUP, options.optBoolean("geolocationWarmup", false));
+        JSONObject pageMetrics = options.optJSONObject("pageMetrics");
+        if (pageMetrics != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_PAGE_METRICS, true);
+            putStringArrayExtra(intent, CustomWebViewActivity.EXTRA_PAGE_METRICS_ORIGINS,
+                    pageMetrics.optJSONArray("allowedOrigins"));
+        } else {
+            intent.putExtra(CustomWebViewActivity.EXTRA_PAGE_METRICS, options.optBoolean("pageMetrics", false));
+        }
+        JSONObject sessionSnapshot = options.optJSONObject("sessionSnapshot");
+        if (sessionSnapshot != null) {
+            intent.putExtra(CustomWebViewActivity.EXTRA_SESSION_SNAPSHOT, true);
+            if (sessionSnapshot.has("maxAgeHours")) {
+                intent.putExtra(CustomWebViewActivity.EXTRA_SESSION_SNAPSHOT_MAX_AGE_MS,
+                        (long) (sessionSnapshot.optDouble("maxAgeHours") * 60 * 60 * 1000));
+            }
+        }
+        return intent;
+    }
+
+    private static String optString(JSONObject options, String name, String fallback) {
+        return options.has(name) && !options.isNull(name) ? options.optString(name) : fallback;
+    }
+
+    private static void putStringArrayExtra(Intent intent, String name, JSONArray array) {
+        if (array == null) {
+            return;
+        }
+        String[] values = new String[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.optString(i);
+        }
+        intent.putExtra(name, values);
+    }
+
+    @PluginMethod
+    public void prewarm(PluginCall call) {
+        int count = call.getInt("count", WebViewPool.DEFAULT_SIZE);
+        getActivity().runOnUiThread(() -> {
+            JSObject ret = new JSObject();
+            ret.put("pooled", WebViewPool.getInstance(getContext()).prewarm(count));
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void getNetworkLog(PluginCall call) {
+        NetworkLog log = NetworkLog.getInstance();
+        JSObject ret = new JSObject();
+        if ("har".equals(call.getString("format", "entries"))) {
+            ret.put("har", log.toHar());
+        } else {
+            ret.put("entries", log.toJson());
+        }
+        if (call.getBoolean("clear", false)) {
+            log.clear();
+        }
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getAssetCacheStats(PluginCall call) {
+        AssetCache cache = AssetCache.getInstance(getContext());
+        JSObject ret = new JSObject();
+        ret.put("hits", cache.getHits());
+        ret.put("misses", cache.getMisses());
+        ret.put("entries", cache.getEntryCount());
+        ret.put("sizeBytes", cache.getSizeBytes());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void prefetch(PluginCall call) {
+        JSArray urls = call.getArray("urls");
+        if (urls == null || urls.length() == 0) {
+            call.reject("urls is required");
+            return;
+        }
+
+        String[] values = new String[urls.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = urls.optString(i);
+        }
+        Map<String, String> headers = new HashMap<>();
+        JSObject headerObject = call.getObject("headers");
+        if (headerObject != null) {
+            Iterator<String> names = headerObject.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                headers.put(name, headerObject.getString(name));
+            }
+        }
+
+        int queued = PrefetchManager.getInstance(getContext())
+                .prefetch(values, headers, call.getBoolean("enableCookies", false));
+        JSObject ret = new JSObject();
+        ret.put("queued", queued);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void setCookies(PluginCall call) {
+        JSArray cookies = call.getArray("cookies");
+        if (cookies == null) {
+            call.reject("cookies is required");
+            return;
+        }
+
+        String[] urls = new String[cookies.length()];
+        String[] values = new String[cookies.length()];
+        for (int i = 0; i < urls.length; i++) {
+            JSONObject cookie = cookies.optJSONObject(i);
+            urls[i] = cookie != null ? cookie.optString("url", null) : null;
+            values[i] = cookie != null ? cookie.optString("value", null) : null;
+            if (urls[i] == null || values[i] == null) {
+                call.reject("Each cookie needs a url and a value");
+                return;
+            }
+        }
+
+        CookieManager cookieManager = CookieManager.getInstance();
+        cookieManager.setAcceptCookie(true);
+        for (int i = 0; i < urls.length; i++) {
+            cookieManager.setCookie(urls[i], values[i]);
+        }
+        // One flush for the whole batch, so the cookies are on disk before the page loads.
+        cookieManager.flush();
+
+        JSObject ret = new JSObject();
+        ret.put("count", urls.length);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void postChannelMessage(PluginCall call) {
+        String message = call.getString("data");
+        if (message == null) {
+            call.reject("data is required");
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            PageMessageChannel channel = PageMessageChannel.getCurrent();
+            if (channel == null || !channel.post(message)) {
+                call.reject("No page is connected to the message channel");
+                return;
+            }
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void switchSession(PluginCall call) {
+        String sessionId = call.getString("sessionId");
+        String url = call.getString("url");
+        if (sessionId == null || sessionId.isEmpty()) {
+            call.reject("sessionId is required");
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            CustomWebViewActivity activity = CustomWebViewActivity.getCurrent();
+            if (activity == null || activity.isFinishing()) {
+                call.reject("No webview is open");
+                return;
+            }
+            if (!activity.switchSession(sessionId, url)) {
+                call.reject("Unknown session: " + sessionId + " (pass a url to create it)");
+                return;
+            }
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void closeSession(PluginCall call) {
+        String sessionId = call.getString("sessionId");
+        if (sessionId == null || sessionId.isEmpty()) {
+            call.reject("sessionId is required");
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            CustomWebViewActivity activity = CustomWebViewActivity.getCurrent();
+            if (activity == null || activity.isFinishing()) {
+                call.reject("No webview is open");
+                return;
+            }
+            if (!activity.closeSession(sessionId)) {
+                call.reject("Unknown session: " + sessionId);
+                return;
+            }
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void getSessions(PluginCall call) {
+        getActivity().runOnUiThread(() -> {
+            CustomWebViewActivity activity = CustomWebViewActivity.getCurrent();
+            JSObject ret = new JSObject();
+            ret.put("sessions", activity == null || activity.isFinishing() ? new JSArray() : activity.getSessions());
+            call.resolve(ret);
+        });
+    }
 
+    @PluginMethod
+    public void clearSessionSnapshots(PluginCall call) {
+        String sessionId = call.getString("sessionId");
+        SessionSnapshots snapshots = SessionSnapshots.getInstance(getContext());
+        if (sessionId != null) {
+            snapshots.clear(sessionId);
+        } else {
+            snapshots.clearAll();
+        }
         call.resolve();
     }
+
+    @PluginMethod
+    public void loadContentBlockingRules(PluginCall call) {
+        JSArray rules = call.getArray("rules");
+        String assetPath = call.getString("assetPath");
+        if (rules == null && assetPath == null) {
+            call.reject("rules or assetPath is required");
+            return;
+        }
+        background.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            ContentBlocker.Builder builder = new ContentBlocker.Builder();
+            try {
+                if (rules != null) {
+                    for (int i = 0; i < rules.length(); i++) {
+                        builder.add(rules.optString(i));
+                    }
+                }
+                if (assetPath != null) {
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(getContext().getAssets().open(assetPath), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            builder.add(line);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                call.reject("Could not read " + assetPath, e);
+                return;
+            }
+            ContentBlocker blocker = builder.build();
+            ContentBlocker.setCurrent(blocker);
+            JSObject ret = new JSObject();
+            ret.put("rules", blocker.getRuleCount());
+            ret.put("invalid", builder.getInvalidCount());
+            ret.put("loadMs", SystemClock.elapsedRealtime() - start);
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void installContentPack(PluginCall call) {
+        String name = call.getString("name");
+        String assetPath = call.getString("assetPath");
+        String zipPath = call.getString("zipPath");
+        if (!ContentPacks.isValidName(name)) {
+            call.reject("name is required (letters, digits, '.', '_' or '-')");
+            return;
+        }
+        if ((assetPath == null) == (zipPath == null)) {
+            call.reject("Exactly one of assetPath or zipPath is required");
+            return;
+        }
+        String version = call.getString("version");
+        background.execute(() -> {
+            ContentPacks packs = ContentPacks.getInstance(getContext());
+            String url;
+            try {
+                url = assetPath != null
+                        ? packs.installAssets(name, assetPath)
+                        : packs.installZip(name, new File(zipPath.startsWith("file://") ? Uri.parse(zipPath).getPath() : zipPath), version);
+            } catch (IOException e) {
+                call.reject("Could not install content pack " + name + ": " + e.getMessage(), e);
+                return;
+            }
+            JSObject ret = new JSObject();
+            ret.put("url", url);
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void removeContentPack(PluginCall call) {
+        String name = call.getString("name");
+        if (name == null) {
+            call.reject("name is required");
+            return;
+        }
+        background.execute(() -> {
+            JSObject ret = new JSObject();
+            ret.put("removed", ContentPacks.getInstance(getContext()).remove(name));
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void clearGeolocationDecisions(PluginCall call) {
+        getActivity().runOnUiThread(() -> {
+            GeolocationDecisions.getInstance(getContext()).clear();
+            GeolocationPermissions.getInstance().clearAll();
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void configureDiagnostics(PluginCall call) {
+        Diagnostics diagnostics = Diagnostics.getInstance();
+        JSObject levels = call.getObject("levels");
+        if (levels != null) {
+            Map<Diagnostics.Category, Diagnostics.Level> changes = new HashMap<>();
+            Iterator<String> keys = levels.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Diagnostics.Level level = Diagnostics.Level.parse(levels.optString(key));
+                if (level == null) {
+                    call.reject("Unknown diagnostics level for " + key + ": " + levels.optString(key));
+                    return;
+                }
+                if ("all".equals(key)) {
+                    for (Diagnostics.Category category : Diagnostics.Category.values()) {
+                        changes.putIfAbsent(category, level);
+                    }
+                    continue;
+                }
+                Diagnostics.Category category = Diagnostics.Category.parse(key);
+                if (category == null) {
+                    call.reject("Unknown diagnostics category: " + key);
+                    return;
+                }
+                // A named category wins over "all".
+                changes.put(category, level);
+            }
+            for (Map.Entry<Diagnostics.Category, Diagnostics.Level> change : changes.entrySet()) {
+                diagnostics.setLevel(change.getKey(), change.getValue());
+            }
+        }
+        Boolean logcat = call.getBoolean("logcat");
+        if (logcat != null) {
+            diagnostics.setLogcat(logcat);
+        }
+
+        JSObject current = new JSObject();
+        for (Diagnostics.Category category : Diagnostics.Category.values()) {
+            current.put(category.name().toLowerCase(Locale.ROOT), diagnostics.getLevel(category).name().toLowerCase(Locale.ROOT));
+        }
+        JSObject ret = new JSObject();
+        ret.put("levels", current);
+        ret.put("logcat", diagnostics.isLogcat());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getDiagnostics(PluginCall call) {
+        Diagnostics diagnostics = Diagnostics.getInstance();
+        JSObject ret = new JSObject();
+        ret.put("events", diagnostics.toJson(Math.max(0, call.getInt("limit", Diagnostics.CAPACITY))));
+        ret.put("recorded", diagnostics.getRecordedCount());
+        if (call.getBoolean("clear", false)) {
+            diagnostics.clear();
+        }
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getPageMetrics(PluginCall call) {
+        PageMetrics metrics = PageMetrics.getLatest();
+        JSObject ret = new JSObject();
+        if (metrics != null) {
+            ret.put("summary", metrics.toJson());
+        }
+        call.resolve(ret);
+    }
 }
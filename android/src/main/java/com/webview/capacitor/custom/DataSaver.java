@@ -0,0 +1,352 @@
+package com.webview.capacitor.custom;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.LruCache;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves smaller images on constrained networks. JPEG and PNG sub-resources
+ * are fetched natively with {@code Save-Data: on}, downscaled to the
+ * viewport's width in device pixels and re-encoded as WebP. Results that are
+ * not smaller than the original are dropped, and the original is served.
+ *
+ * <p>A native fetch bypasses the WebView's HTTP cache, so requests that ask
+ * to bypass caches ({@code no-store}, {@code no-cache}) and images this saver
+ * already passed through unchanged are left to the WebView, which can then
+ * answer them from its own cache.</p>
+ *
+ * <p>Requests are fetched on the WebView's request thread. Decoding and
+ * encoding run on a pool of at most half the cores with a queue of the same
+ * size; when it is full, or a transcode takes more than
+ * {@link #TRANSCODE_TIMEOUT_MS}, the original bytes are served instead of
+ * waiting. Transcoded images are kept, while fresh by their
+ * {@code Cache-Control}, in a small memory cache shared by all webviews,
+ * keyed by URL and target width; {@code no-store} and {@code private}
+ * responses are not kept.</p>
+ */
+final class DataSaver {
+
+    interface Listener {
+        /** Running totals for this instance; called on request threads. */
+        void onSaved(int images, long bytesSaved);
+    }
+
+    static final int DEFAULT_QUALITY = 60;
+    static final int CACHE_BYTES = 4 * 1024 * 1024;
+    // Below this an image is not worth a decode; above it, decoding could exhaust memory.
+    static final int MIN_SOURCE_BYTES = 2 * 1024;
+    static final int MAX_SOURCE_BYTES = 8 * 1024 * 1024;
+
+    // Longest a request thread waits for a transcode before serving the original.
+    static final long TRANSCODE_TIMEOUT_MS = 750;
+
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int PASSED_THROUGH = 256;
+    private static final String WEBP = "image/webp";
+
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS,
+            30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(WORKERS));
+    private static final LruCache<String, Transcoded> cache = new LruCache<String, Transcoded>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Transcoded value) {
+            return value.data.length;
+        }
+    };
+    // URLs served unchanged before; the WebView fetches them again through its cache.
+    private static final LruCache<String, Boolean> passedThrough = new LruCache<>(PASSED_THROUGH);
+
+    static {
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    static final class Transcoded {
+        final byte[] data;
+        final int originalSize;
+        final Map<String, String> headers;
+        final long expiresAt;
+
+        Transcoded(byte[] data, int originalSize, Map<String, String> headers, long expiresAt) {
+            this.data = data;
+            this.originalSize = originalSize;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int quality;
+    private final boolean always;
+    private final Listener listener;
+    private final AtomicInteger images = new AtomicInteger();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @param always transcode on unmetered networks too, not only when the
+     *               network is metered or the request asks for Save-Data
+     */
+    DataSaver(int quality, boolean always, Listener listener) {
+        this.quality = quality > 0 && quality <= 100 ? quality : DEFAULT_QUALITY;
+        this.always = always;
+        this.listener = listener;
+    }
+
+    /**
+     * Whether the request is an image sub-resource this saver should fetch.
+     */
+    boolean applies(WebResourceRequest request, boolean metered) {
+        if (request.isForMainFrame() || !"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String scheme = request.getUrl().getScheme();
+        if (!"https".equals(scheme) && !"http".equals(scheme)) {
+            return false;
+        }
+        Map<String, String> headers = request.getRequestHeaders();
+        String accept = header(headers, "Accept");
+        if (accept == null || !accept.startsWith("image/")) {
+            return false;
+        }
+        if (HttpConnections.bypassesCache(header(headers, "Cache-Control"), header(headers, "Pragma"))) {
+            return false;
+        }
+        return always || metered || "on".equalsIgnoreCase(header(headers, "Save-Data"));
+    }
+
+    /**
+     * Fetches and transcodes an image request. Returns null when the request
+     * does not apply or the fetch fails, so the WebView loads it itself.
+     *
+     * @param targetWidth width in device pixels images are scaled down to
+     * @param extraHeaders headers added to the fetch, or null
+     */
+    WebResourceResponse intercept(WebResourceRequest request, boolean metered, int targetWidth,
+                                  Map<String, String> extraHeaders) {
+        if (targetWidth <= 0 || !applies(request, metered)) {
+            return null;
+        }
+        String url = request.getUrl().toString();
+        if (passedThrough.get(url) != null) {
+            return null;
+        }
+        String key = url + '|' + targetWidth;
+        Transcoded cached = cache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                return served(cached);
+            }
+            cache.remove(key);
+        }
+
+        Map<String, String> headers = new HashMap<>(request.getRequestHeaders());
+        if (extraHeaders != null) {
+            headers.putAll(extraHeaders);
+        }
+        headers.put("Save-Data", "on");
+        HttpURLConnection connection = null;
+        try {
+            connection = HttpConnections.open(url, headers, true);
+            int status = connection.getResponseCode();
+            HttpConnections.storeCookies(connection, url);
+            // WebResourceResponse cannot carry redirects; leave those to the WebView.
+            if (status >= 300 && status < 400) {
+                connection.disconnect();
+                return null;
+            }
+            String contentType = connection.getContentType();
+            String mimeType = HttpConnections.mimeType(contentType);
+            Map<String, String> responseHeaders = HttpConnections.responseHeaders(connection);
+            String reason = connection.getResponseMessage();
+            reason = reason == null || reason.isEmpty() ? "OK" : reason;
+            if (status != HttpURLConnection.HTTP_OK
+                    || !("image/jpeg".equals(mimeType) || "image/png".equals(mimeType))) {
+                if (status == HttpURLConnection.HTTP_OK) {
+                    passedThrough.put(url, Boolean.TRUE);
+                }
+                InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                return new WebResourceResponse(mimeType, HttpConnections.charset(contentType), status, reason,
+                        responseHeaders, body);
+            }
+
+            InputStream in = connection.getInputStream();
+            int length = connection.getContentLength();
+            ByteArrayOutputStream source = new ByteArrayOutputStream(Math.max(0, Math.min(length, MAX_SOURCE_BYTES)));
+            if (!readAtMost(in, source, MAX_SOURCE_BYTES)) {
+                // Too large to decode safely: hand over what was read followed by the rest.
+                passedThrough.put(url, Boolean.TRUE);
+                return new WebResourceResponse(mimeType, null, status, reason, responseHeaders,
+                        new SequenceInputStream(new ByteArrayInputStream(source.toByteArray()), in));
+            }
+            in.close();
+            byte[] original = source.toByteArray();
+            long expiresAt = System.currentTimeMillis() + HttpConnections.freshnessMs(connection);
+            Transcoded transcoded = original.length >= MIN_SOURCE_BYTES
+                    ? transcodeOnPool(url, original, targetWidth, responseHeaders, expiresAt)
+                    : null;
+            if (transcoded == null) {
+                if (original.length < MIN_SOURCE_BYTES) {
+                    passedThrough.put(url, Boolean.TRUE);
+                }
+                return new WebResourceResponse(mimeType, null, status, reason, responseHeaders,
+                        new ByteArrayInputStream(original));
+            }
+            if (HttpConnections.isStorable(connection.getHeaderField("Cache-Control"))
+                    && expiresAt > System.currentTimeMillis()) {
+                cache.put(key, transcoded);
+            }
+            Diagnostics diagnostics = Diagnostics.getInstance();
+            if (diagnostics.isEnabled(Diagnostics.Event.IMAGE_TRANSCODED)) {
+                diagnostics.record(Diagnostics.Event.IMAGE_TRANSCODED, original.length, transcoded.data.length, url);
+            }
+            int count = images.incrementAndGet();
+            long saved = bytesSaved.addAndGet(transcoded.originalSize - transcoded.data.length);
+            if (listener != null) {
+                listener.onSaved(count, saved);
+            }
+            return served(transcoded);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return null;
+        }
+    }
+
+    int getImages() {
+        return images.get();
+    }
+
+    long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    // Savings are counted once, when the image is transcoded, not again for memory cache hits.
+    private static WebResourceResponse served(Transcoded transcoded) {
+        return new WebResourceResponse(WEBP, null, HttpURLConnection.HTTP_OK, "OK", transcoded.headers,
+                new ByteArrayInputStream(transcoded.data));
+    }
+
+    // Null when the pool is busy or too slow, or the image does not get smaller; the latter is
+    // remembered so the WebView loads it next time.
+    private Transcoded transcodeOnPool(String url, byte[] original, int targetWidth,
+                                       Map<String, String> responseHeaders, long expiresAt) {
+        Future<byte[]> future;
+        try {
+            future = pool.submit(() -> transcode(original, targetWidth, quality));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        try {
+            byte[] data = future.get(TRANSCODE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (data == null || data.length >= original.length) {
+                passedThrough.put(url, Boolean.TRUE);
+                return null;
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+                if (!"Content-Type".equalsIgnoreCase(header.getKey())) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+            }
+            return new Transcoded(data, original.length, headers, expiresAt);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Decodes {@code source}, scales it down to at most {@code targetWidth}
+     * pixels wide and encodes it as WebP. Returns null when it cannot be decoded.
+     */
+    static byte[] transcode(byte[] source, int targetWidth, int quality) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(source, 0, source.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        // Subsample while decoding so the full-size bitmap is never allocated.
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= targetWidth) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap decoded = BitmapFactory.decodeByteArray(source, 0, source.length, options);
+        if (decoded == null) {
+            return null;
+        }
+        Bitmap output = decoded;
+        if (decoded.getWidth() > targetWidth) {
+            int height = Math.max(1, Math.round((float) decoded.getHeight() * targetWidth / decoded.getWidth()));
+            output = Bitmap.createScaledBitmap(decoded, targetWidth, height, true);
+            decoded.recycle();
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(source.length / 2);
+        output.compress(webpFormat(), quality, encoded);
+        output.recycle();
+        return encoded.toByteArray();
+    }
+
+    static void clearCache() {
+        cache.evictAll();
+        passedThrough.evictAll();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    // Returns false when the stream holds more than limit bytes; what was read is in out.
+    private static boolean readAtMost(InputStream in, ByteArrayOutputStream out, int limit) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Request header maps from the WebView are not case-insensitive.
+    private static String header(Map<String, String> headers, String name) {
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
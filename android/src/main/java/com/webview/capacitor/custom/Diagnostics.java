@@ -0,0 +1,384 @@
+package com.webview.capacitor.custom;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Structured diagnostics that can stay on in production. Each {@link Event}
+ * has a category and a level; an event is kept when its category's level
+ * allows it. Kept events go into a preallocated ring of the last
+ * {@link #CAPACITY} events as a code, two numbers and an optional string
+ * reference, so recording does not format or allocate. Events are only
+ * formatted when dumped with {@link #toJson} or mirrored to logcat. URL
+ * fields are reduced to scheme, host and path by {@link #stripUrl} when
+ * recorded, so query strings, fragments and credentials are never kept.
+ *
+ * <p>Verbose mode (the {@code debug} option) keeps every event and mirrors
+ * it to logcat while a debug webview is open, without touching the configured
+ * levels. Warnings and errors are mirrored to logcat at all times.</p>
+ *
+ * <p>Safe to call from any thread. A dump taken while events are recorded
+ * skips the slots being written.</p>
+ */
+final class Diagnostics {
+
+    static final int CAPACITY = 1024;
+
+    private static final String TAG = "CustomWebview";
+    private static final int MASK = CAPACITY - 1;
+
+    enum Level {
+        OFF, ERROR, WARN, INFO, DEBUG;
+
+        static Level parse(String name) {
+            for (Level level : values()) {
+                if (level.name().equalsIgnoreCase(name)) {
+                    return level;
+                }
+            }
+            return null;
+        }
+    }
+
+    enum Category {
+        LIFECYCLE, NAVIGATION, NETWORK, FILES, SESSION, GEOLOCATION, PLUGIN;
+
+        static Category parse(String name) {
+            for (Category category : values()) {
+                if (category.name().equalsIgnoreCase(name)) {
+                    return category;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Event codes. {@code first} and {@code second} name the numeric fields,
+     * {@code text} the string field; null when the event has none.
+     */
+    enum Event {
+        ACTIVITY_CREATED(Category.LIFECYCLE, Level.INFO, "activityCreated", "enableCookies", "fullscreen", "url"),
+        WEBVIEW_CREATED(Category.LIFECYCLE, Level.DEBUG, "webviewCreated", "prewarmed", null, null),
+        WEBVIEW_REBUILT(Category.LIFECYCLE, Level.INFO, "webviewRebuilt", "fromState", null, "url"),
+        STATE_RESTORED(Category.LIFECYCLE, Level.DEBUG, "stateRestored", "fromSnapshot", null, "url"),
+        STARTUP_FINISHED(Category.LIFECYCLE, Level.INFO, "startupFinished", "totalMs", "prewarmed", "url"),
+        RENDERER_GONE(Category.LIFECYCLE, Level.WARN, "rendererGone", "crashed", "recoveries", "url"),
+        MEMORY_TRIMMED(Category.LIFECYCLE, Level.INFO, "memoryTrimmed", "level", null, "actions"),
+        SCRIPTS_REGISTERED(Category.LIFECYCLE, Level.DEBUG, "scriptsRegistered", "documentStart", null, null),
+        INVALID_OPTION(Category.LIFECYCLE, Level.ERROR, "invalidOption", null, null, "option"),
+
+        PAGE_FINISHED(Category.NAVIGATION, Level.DEBUG, "pageFinished", null, null, "url"),
+        INSECURE_URL(Category.NAVIGATION, Level.WARN, "insecureUrl", null, null, "url"),
+        HTTP_ERROR(Category.NAVIGATION, Level.INFO, "httpError", "status", "mainFrame", "url"),
+        PAGE_METRICS(Category.NAVIGATION, Level.DEBUG, "pageMetrics", "lcpMs", "cls", "url"),
+        PAGE_METRICS_INVALID(Category.NAVIGATION, Level.WARN, "pageMetricsInvalid", null, null, null),
+
+        NETWORK_LOG_BATCH(Category.NETWORK, Level.DEBUG, "networkLogBatch", "entries", null, null),
+        NETWORK_LOG_INVALID(Category.NETWORK, Level.WARN, "networkLogInvalid", null, null, null),
+        REQUEST_BLOCKED(Category.NETWORK, Level.DEBUG, "requestBlocked", null, null, "url"),
+        IMAGE_TRANSCODED(Category.NETWORK, Level.DEBUG, "imageTranscoded", "originalBytes", "bytes", "url"),
+
+        DOWNLOAD_QUEUED(Category.FILES, Level.INFO, "downloadQueued", "priority", null, "fileName"),
+        DOWNLOAD_DUPLICATE(Category.FILES, Level.DEBUG, "downloadDuplicate", null, null, "fileName"),
+        FILE_CHOOSER_OPENED(Category.FILES, Level.DEBUG, "fileChooserOpened", "acceptTypes", null, null),
+        UPLOAD_PROCESSED(Category.FILES, Level.INFO, "uploadProcessed", "files", "bytesSaved", null),
+
+        SESSION_SWITCHED(Category.SESSION, Level.INFO, "sessionSwitched", "live", null, "sessionId"),
+        SESSION_EVICTED(Category.SESSION, Level.INFO, "sessionEvicted", null, null, "sessionId"),
+
+        LOCATION_DENIAL_CACHED(Category.GEOLOCATION, Level.DEBUG, "locationDenialCached", null, null, "origin"),
+        LOCATION_WARMUP_STARTED(Category.GEOLOCATION, Level.DEBUG, "locationWarmupStarted", null, null, null),
+        LOCATION_PERMISSION_DENIED(Category.GEOLOCATION, Level.WARN, "locationPermissionDenied", null, null, null),
+
+        PLUGIN_LOADED(Category.PLUGIN, Level.DEBUG, "pluginLoaded", null, null, null),
+        OPEN_REQUESTED(Category.PLUGIN, Level.INFO, "openRequested", "contentPack", null, "url"),
+        OPEN_REJECTED(Category.PLUGIN, Level.WARN, "openRejected", null, null, "reason"),
+        CUSTOM_TAB_OPENED(Category.PLUGIN, Level.INFO, "customTabOpened", "prepared", null, "url"),
+        CUSTOM_TABS_UNAVAILABLE(Category.PLUGIN, Level.INFO, "customTabsUnavailable", null, null, "url");
+
+        final Category category;
+        final Level level;
+        final String key;
+        final String first;
+        final String second;
+        final String text;
+        final boolean url;
+
+        Event(Category category, Level level, String key, String first, String second, String text) {
+            this.category = category;
+            this.level = level;
+            this.key = key;
+            this.first = first;
+            this.second = second;
+            this.text = text;
+            this.url = "url".equals(text);
+        }
+    }
+
+    /** One dumped event. */
+    static final class Record {
+        final long sequence;
+        final long time;
+        final Event event;
+        final long first;
+        final long second;
+        final String text;
+
+        Record(long sequence, long time, Event event, long first, long second, String text) {
+            this.sequence = sequence;
+            this.time = time;
+            this.event = event;
+            this.first = first;
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private static final Diagnostics instance = new Diagnostics();
+
+    // Ring slots as parallel arrays; published holds the sequence of the
+    // event in each slot, or -1 while it is being written.
+    private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private final long[] times = new long[CAPACITY];
+    private final Event[] events = new Event[CAPACITY];
+    private final long[] firsts = new long[CAPACITY];
+    private final long[] seconds = new long[CAPACITY];
+    private final String[] texts = new String[CAPACITY];
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    private final Level[] configured = new Level[Category.values().length];
+    // Levels in effect, replaced as a whole so record() reads them without locking.
+    private volatile Level[] levels;
+    private volatile boolean logcat;
+    private boolean configuredLogcat;
+    private int verbose;
+
+    Diagnostics() {
+        Arrays.fill(configured, Level.INFO);
+        levels = configured.clone();
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    static Diagnostics getInstance() {
+        return instance;
+    }
+
+    boolean isEnabled(Event event) {
+        return event.level.compareTo(levels[event.category.ordinal()]) <= 0;
+    }
+
+    void record(Event event) {
+        record(event, 0, 0, null);
+    }
+
+    void record(Event event, long first) {
+        record(event, first, 0, null);
+    }
+
+    void record(Event event, String text) {
+        record(event, 0, 0, text);
+    }
+
+    void record(Event event, long first, String text) {
+        record(event, first, 0, text);
+    }
+
+    void record(Event event, long first, long second) {
+        record(event, first, second, null);
+    }
+
+    void record(Event event, long first, long second, String text) {
+        if (event.level.compareTo(levels[event.category.ordinal()]) > 0) {
+            return;
+        }
+        if (event.url) {
+            text = stripUrl(text);
+        }
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & MASK);
+        long time = System.currentTimeMillis();
+        // getAndSet rather than set: the field writes below must not become visible before it.
+        published.getAndSet(slot, -1);
+        times[slot] = time;
+        events[slot] = event;
+        firsts[slot] = first;
+        seconds[slot] = second;
+        texts[slot] = text;
+        published.set(slot, sequence);
+        if (logcat || event.level.compareTo(Level.WARN) <= 0) {
+            Log.println(priority(event.level), TAG, format(new Record(sequence, time, event, first, second, text)));
+        }
+    }
+
+    synchronized void setLevel(Category category, Level level) {
+        configured[category.ordinal()] = level;
+        apply();
+    }
+
+    synchronized void setLogcat(boolean enabled) {
+        configuredLogcat = enabled;
+        apply();
+    }
+
+    /**
+     * Turns verbose mode on or off; calls are counted so that overlapping
+     * debug webviews keep it on until the last one ends.
+     */
+    synchronized void setVerbose(boolean enabled) {
+        verbose = Math.max(0, verbose + (enabled ? 1 : -1));
+        apply();
+    }
+
+    synchronized Level getLevel(Category category) {
+        return configured[category.ordinal()];
+    }
+
+    synchronized boolean isLogcat() {
+        return configuredLogcat;
+    }
+
+    private void apply() {
+        Level[] effective = configured.clone();
+        if (verbose > 0) {
+            Arrays.fill(effective, Level.DEBUG);
+        }
+        levels = effective;
+        logcat = configuredLogcat || verbose > 0;
+    }
+
+    /** Number of events recorded since app start, including overwritten ones. */
+    long getRecordedCount() {
+        return nextSequence.get();
+    }
+
+    /**
+     * The last {@code limit} events, oldest first.
+     */
+    List<Record> snapshot(int limit) {
+        long end = nextSequence.get();
+        long start = Math.max(0, end - Math.min(limit, CAPACITY));
+        List<Record> records = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence & MASK);
+            if (published.get(slot) != sequence) {
+                continue;
+            }
+            Record record = new Record(sequence, times[slot], events[slot], firsts[slot], seconds[slot], texts[slot]);
+            // A no-op compareAndSet orders the reads above before the check; it fails
+            // when the slot was overwritten while it was read.
+            if (published.compareAndSet(slot, sequence, sequence)) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            published.set(i, -1);
+            texts[i] = null;
+        }
+    }
+
+    JSArray toJson(int limit) {
+        JSArray result = new JSArray();
+        for (Record record : snapshot(limit)) {
+            Event event = record.event;
+            JSObject item = new JSObject();
+            item.put("sequence", record.sequence);
+            item.put("time", record.time);
+            item.put("category", event.category.name().toLowerCase(Locale.ROOT));
+            item.put("level", event.level.name().toLowerCase(Locale.ROOT));
+            item.put("event", event.key);
+            if (event.first != null) {
+                item.put(event.first, record.first);
+            }
+            if (event.second != null) {
+                item.put(event.second, record.second);
+            }
+            if (event.text != null && record.text != null) {
+                item.put(event.text, record.text);
+            }
+            result.put(item);
+        }
+        return result;
+    }
+
+    /**
+     * {@code url} without its query, fragment and user info, e.g.
+     * {@code https://example.com/account} for
+     * {@code https://user:pw@example.com/account?token=1#top}. URLs without a
+     * host, such as data: URLs, are reduced to their scheme.
+     */
+    static String stripUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        int separator = url.indexOf("://");
+        if (separator < 0 || separator >= end) {
+            int colon = url.indexOf(':');
+            return colon > 0 && colon < end ? url.substring(0, colon + 1) : url.substring(0, end);
+        }
+        int hostStart = separator + 3;
+        int pathStart = url.indexOf('/', hostStart);
+        if (pathStart < 0 || pathStart > end) {
+            pathStart = end;
+        }
+        int at = url.lastIndexOf('@', pathStart - 1);
+        if (at >= hostStart) {
+            return url.substring(0, hostStart) + url.substring(at + 1, end);
+        }
+        return end == url.length() ? url : url.substring(0, end);
+    }
+
+    private static String format(Record record) {
+        Event event = record.event;
+        StringBuilder line = new StringBuilder(64)
+                .append('[').append(event.category.name().toLowerCase(Locale.ROOT)).append("] ")
+                .append(event.key);
+        if (event.first != null) {
+            line.append(' ').append(event.first).append('=').append(record.first);
+        }
+        if (event.second != null) {
+            line.append(' ').append(event.second).append('=').append(record.second);
+        }
+        if (event.text != null && record.text != null) {
+            line.append(' ').append(event.text).append('=').append(record.text);
+        }
+        return line.toString();
+    }
+
+    private static int priority(Level level) {
+        switch (level) {
+            case ERROR:
+                return Log.ERROR;
+            case WARN:
+                return Log.WARN;
+            case INFO:
+                return Log.INFO;
+            default:
+                return Log.DEBUG;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.webview.capacitor.custom;
+
+import android.Manifest;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+
+import androidx.core.content.ContextCompat;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Downloads files over parallel HTTP Range requests into the public Downloads
+ * collection, like the system Download Manager does. Chunks are written to a
+ * partial file in the app's own storage, named after the URL, with progress in
+ * a sidecar file next to it, so an interrupted download resumes where each
+ * chunk stopped. The finished file is then published: through MediaStore on
+ * Android 10+, into the shared Downloads folder below that when storage
+ * permission is granted, and otherwise into the app's external Downloads
+ * folder. Existing files are never overwritten.
+ */
+final class DownloadEngine {
+
+    interface Listener {
+        void onProgress(int id, String url, String fileName, long downloaded, long total);
+
+        /**
+         * @param location file path or {@code content://} URI of the saved
+         *                 file, null when the download failed
+         */
+        void onComplete(int id, String url, String fileName, String location, String error);
+    }
+
+    static final int MAX_PARALLEL_CHUNKS = 4;
+    static final long MIN_CHUNK_BYTES = 1024 * 1024;
+    static final int MAX_ATTEMPTS = 5;
+    static final long PROGRESS_INTERVAL_MS = 250;
+
+    private static final String TAG = "DownloadEngine";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static DownloadEngine instance;
+
+    private final Context context;
+    // Partial files and their progress sidecars.
+    private final File parts;
+    private final ExecutorService downloads = Executors.newFixedThreadPool(2);
+    private final ExecutorService chunks = Executors.newFixedThreadPool(MAX_PARALLEL_CHUNKS);
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    // Part names of running downloads; a second download of the same file would overwrite the first one's chunks.
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    private DownloadEngine(Context context) {
+        this.context = context;
+        this.parts = new File(context.getFilesDir(), "customwebview/downloads");
+    }
+
+    static synchronized DownloadEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the download and returns its id. Headers (cookies, User-Agent) are
+     * sent with every chunk request.
+     */
+    int start(String url, String fileName, Map<String, String> headers, Listener listener) {
+        int id = nextId.getAndIncrement();
+        downloads.execute(() -> {
+            String name = partName(url, fileName);
+            if (!active.add(name)) {
+                listener.onComplete(id, url, fileName, null, "Already downloading " + fileName);
+                return;
+            }
+            File part = new File(parts, name + ".part");
+            File state = new File(parts, name + ".part.json");
+            try {
+                parts.mkdirs();
+                new Download(id, url, fileName, headers, listener).run(part, state);
+                String location = publish(part, fileName);
+                state.delete();
+                listener.onComplete(id, url, fileName, location, null);
+            } catch (IOException | InterruptedException e) {
+                Log.w(TAG, "Download failed: " + Diagnostics.stripUrl(url), e);
+                listener.onComplete(id, url, fileName, null, e.getMessage() != null ? e.getMessage() : e.toString());
+            } finally {
+                active.remove(name);
+            }
+        });
+        return id;
+    }
+
+    // Moves a finished partial file to its destination and returns where it went.
+    private String publish(File part, String fileName) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return publishToMediaStore(part, fileName);
+        }
+        File directory = ContextCompat.checkSelfPermission(context, Manifest.permission.WRITE_EXTERNAL_STORAGE)
+                == PackageManager.PERMISSION_GRANTED
+                ? Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS)
+                : context.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS);
+        if (directory == null) {
+            directory = new File(context.getFilesDir(), "downloads");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File target = uniqueFile(directory, fileName);
+        if (!part.renameTo(target)) {
+            try (InputStream in = new FileInputStream(part); OutputStream out = new FileOutputStream(target)) {
+                copy(in, out);
+            } catch (IOException e) {
+                target.delete();
+                throw e;
+            }
+            part.delete();
+        }
+        return target.getAbsolutePath();
+    }
+
+    // MediaStore picks a free display name itself when the file name is taken.
+    private String publishToMediaStore(File part, String fileName) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
+        String mimeType = mimeType(fileName);
+        if (mimeType != null) {
+            values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+        }
+        values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+        values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+        Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+        if (uri == null) {
+            throw new IOException("Cannot create " + fileName + " in Downloads");
+        }
+        try (InputStream in = new FileInputStream(part); OutputStream out = resolver.openOutputStream(uri)) {
+            if (out == null) {
+                throw new IOException("Cannot write " + uri);
+            }
+            copy(in, out);
+        } catch (IOException e) {
+            resolver.delete(uri, null, null);
+            throw e;
+        }
+        values.clear();
+        values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+        resolver.update(uri, values, null, null);
+        part.delete();
+        return uri.toString();
+    }
+
+    // "report.pdf", then "report (1).pdf", "report (2).pdf", ...
+    static File uniqueFile(File directory, String fileName) {
+        File file = new File(directory, fileName);
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int i = 1; file.exists(); i++) {
+            file = new File(directory, base + " (" + i + ")" + extension);
+        }
+        return file;
+    }
+
+    private static String mimeType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0
+                ? MimeTypeMap.getSingleton().getMimeTypeFromExtension(fileName.substring(dot + 1).toLowerCase(Locale.US))
+                : null;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_BYTES];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    // Partial files are named after the URL and file name, so a retried download finds its progress
+    // and the same URL saved under two names does not share one file.
+    static String partName(String url, String fileName) {
+        String key = url + '\n' + fileName;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private final class Download {
+        final int id;
+        final String url;
+        final String fileName;
+        final Map<String, String> headers;
+        final Listener listener;
+        long total = -1;
+        long[] starts;
+        long[] ends;
+        AtomicLongArray done;
+        long lastProgressAt;
+
+        Download(int id, String url, String fileName, Map<String, String> headers, Listener listener) {
+            this.id = id;
+            this.url = url;
+            this.fileName = fileName;
+            this.headers = headers;
+            this.listener = listener;
+        }
+
+        void run(File part, File state) throws IOException, InterruptedException {
+            if (!restore(part, state)) {
+                probe();
+                if (total <= 0) {
+                    downloadSingle(part);
+                    finish();
+                    return;
+                }
+                plan();
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(part, "rw"); FileChannel channel = file.getChannel()) {
+                file.setLength(total);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < starts.length; i++) {
+                    final int chunk = i;
+                    futures.add(chunks.submit(() -> {
+                        downloadChunk(channel, chunk);
+                        return null;
+                    }));
+                }
+                IOException failure = null;
+                for (Future<?> future : futures) {
+                    while (!future.isDone()) {
+                        try {
+                            future.get(1, TimeUnit.SECONDS);
+                        } catch (TimeoutException e) {
+                            save(state);
+                        } catch (ExecutionException e) {
+                            failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                        }
+                    }
+                }
+                if (failure != null) {
+                    save(state);
+                    throw failure;
+                }
+            }
+            finish();
+        }
+
+        // Asks for the first byte: a 206 with a Content-Range total means ranges are supported.
+        void probe() throws IOException {
+            HttpURLConnection connection = open("bytes=0-0");
+            try {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+                    String range = connection.getHeaderField("Content-Range");
+                    int slash = range != null ? range.lastIndexOf('/') : -1;
+                    if (slash >= 0 && !range.endsWith("*")) {
+                        total = Long.parseLong(range.substring(slash + 1).trim());
+                    }
+                }
+            } catch (NumberFormatException e) {
+                total = -1;
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        void plan() {
+            int count = (int) Math.max(1, Math.min(MAX_PARALLEL_CHUNKS, total / MIN_CHUNK_BYTES));
+            long size = total / count;
+            starts = new long[count];
+            ends = new long[count];
+            done = new AtomicLongArray(count);
+            for (int i = 0; i < count; i++) {
+                starts[i] = i * size;
+                ends[i] = i == count - 1 ? total - 1 : (i + 1) * size - 1;
+            }
+        }
+
+        void downloadChunk(FileChannel channel, int chunk) throws IOException, InterruptedException {
+            byte[] buffer = new byte[BUFFER_BYTES];
+            ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+            int attempt = 0;
+            while (starts[chunk] + done.get(chunk) <= ends[chunk]) {
+                long from = starts[chunk] + done.get(chunk);
+                HttpURLConnection connection = null;
+                try {
+                    connection = open("bytes=" + from + "-" + ends[chunk]);
+                    if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                        throw new IOException("Server ignored range request (HTTP " + connection.getResponseCode() + ")");
+                    }
+                    try (InputStream in = connection.getInputStream()) {
+                        int read;
+                        long position = from;
+                        // Never write past the chunk, whatever the server sends.
+                        while (position <= ends[chunk]
+                                && (read = in.read(buffer, 0, (int) Math.min(buffer.length, ends[chunk] - position + 1))) != -1) {
+                            wrapper.clear().limit(read);
+                            while (wrapper.hasRemaining()) {
+                                position += channel.write(wrapper, position);
+                            }
+                            done.addAndGet(chunk, read);
+                            attempt = 0;
+                            reportProgress();
+                        }
+                        if (position <= ends[chunk]) {
+                            throw new IOException("Connection closed " + (ends[chunk] - position + 1) + " bytes early");
+                        }
+                    }
+                } catch (IOException e) {
+                    if (++attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    // Network loss: back off and resume from the last written byte.
+                    Thread.sleep(1000L << (attempt - 1));
+                } finally {
+                    if (connection != null) {
+                        connection.disconnect();
+                    }
+                }
+            }
+        }
+
+        void downloadSingle(File part) throws IOException, InterruptedException {
+            int attempt = 0;
+            while (true) {
+                HttpURLConnection connection = open(null);
+                try (InputStream in = connection.getInputStream(); FileOutputStream out = new FileOutputStream(part)) {
+                    total = connection.getContentLengthLong();
+                    long downloaded = 0;
+                    byte[] buffer = new byte[BUFFER_BYTES];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                        downloaded += read;
+                        reportProgress(downloaded);
+                    }
+                    if (total > 0 && downloaded < total) {
+                        throw new IOException("Connection closed " + (total - downloaded) + " bytes early");
+                    }
+                    total = downloaded;
+                    return;
+                } catch (IOException e) {
+                    if (++attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    Thread.sleep(1000L << (attempt - 1));
+                } finally {
+                    connection.disconnect();
+                }
+            }
+        }
+
+        HttpURLConnection open(String range) throws IOException {
+            // Download links commonly redirect to a CDN; follow them like the Download Manager does.
+            HttpURLConnection connection = HttpConnections.open(url, headers, false, true);
+            // Ranges refer to the encoded body, so ask for it uncompressed.
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            if (range != null) {
+                connection.setRequestProperty("Range", range);
+            }
+            return connection;
+        }
+
+        void reportProgress() {
+            long downloaded = 0;
+            for (int i = 0; i < done.length(); i++) {
+                downloaded += done.get(i);
+            }
+            reportProgress(downloaded);
+        }
+
+        synchronized void reportProgress(long downloaded) {
+            long now = SystemClock.elapsedRealtime();
+            if (now - lastProgressAt < PROGRESS_INTERVAL_MS) {
+                return;
+            }
+            lastProgressAt = now;
+            listener.onProgress(id, url, fileName, downloaded, total);
+        }
+
+        void finish() {
+            listener.onProgress(id, url, fileName, total, total);
+        }
+
+        synchronized void save(File state) {
+            try {
+                JSONArray chunkState = new JSONArray();
+                for (int i = 0; i < starts.length; i++) {
+                    chunkState.put(new JSONArray().put(starts[i]).put(ends[i]).put(done.get(i)));
+                }
+                JSONObject json = new JSONObject();
+                json.put("url", url);
+                json.put("total", total);
+                json.put("chunks", chunkState);
+                try (OutputStream out = new FileOutputStream(state)) {
+                    out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (JSONException | IOException e) {
+                Log.w(TAG, "Failed to save download state", e);
+            }
+        }
+
+        boolean restore(File part, File state) {
+            if (!part.exists() || !state.exists()) {
+                return false;
+            }
+            try {
+                byte[] data = new byte[(int) state.length()];
+                try (DataInputStream in = new DataInputStream(new FileInputStream(state))) {
+                    in.readFully(data);
+                }
+                JSONObject json = new JSONObject(new String(data, StandardCharsets.UTF_8));
+                if (!url.equals(json.getString("url")) || part.length() != json.getLong("total")) {
+                    return false;
+                }
+                JSONArray chunkState = json.getJSONArray("chunks");
+                total = json.getLong("total");
+                starts = new long[chunkState.length()];
+                ends = new long[chunkState.length()];
+                done = new AtomicLongArray(chunkState.length());
+                for (int i = 0; i < chunkState.length(); i++) {
+                    JSONArray chunk = chunkState.getJSONArray(i);
+                    starts[i] = chunk.getLong(0);
+                    ends[i] = chunk.getLong(1);
+                    done.set(i, chunk.getLong(2));
+                }
+                return true;
+            } catch (JSONException | IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.webview.capacitor.custom;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Locale;
+
+/**
+ * Decides which navigations and responses are file downloads. Rules are
+ * normalized once when built; {@link #matchesUrl} and {@link #matchesResponse}
+ * scan the input strings in place and do not allocate.
+ *
+ * <p>A URL matches when its host is allowed (any host if no host patterns are
+ * set) and either its last path segment or one of the configured query
+ * parameter values ends with a configured extension, or its path starts with a
+ * configured prefix.</p>
+ */
+final class DownloadRules {
+
+    static final String[] DEFAULT_EXTENSIONS = {"pdf"};
+    static final String[] DEFAULT_QUERY_KEYS = {"filename", "file", "name", "download"};
+    static final String[] DEFAULT_MIME_TYPES = {"application/pdf"};
+
+    private final String[] extensions;
+    private final String[] queryKeys;
+    private final String[] mimeTypes;
+    private final String[] hosts;
+    private final boolean[] hostWildcards;
+    private final String[] pathPrefixes;
+
+    DownloadRules(String[] extensions, String[] queryKeys, String[] mimeTypes, String[] hosts, String[] pathPrefixes) {
+        this.extensions = normalize(extensions != null ? extensions : DEFAULT_EXTENSIONS, true);
+        this.queryKeys = queryKeys != null ? queryKeys.clone() : DEFAULT_QUERY_KEYS.clone();
+        this.mimeTypes = normalize(mimeTypes != null ? mimeTypes : DEFAULT_MIME_TYPES, false);
+        String[] hostPatterns = normalize(hosts != null ? hosts : new String[0], false);
+        this.hosts = new String[hostPatterns.length];
+        this.hostWildcards = new boolean[hostPatterns.length];
+        for (int i = 0; i < hostPatterns.length; i++) {
+            // "*.example.com" is stored as ".example.com" and matched as a suffix.
+            hostWildcards[i] = hostPatterns[i].startsWith("*.");
+            this.hosts[i] = hostWildcards[i] ? hostPatterns[i].substring(1) : hostPatterns[i];
+        }
+        this.pathPrefixes = pathPrefixes != null ? pathPrefixes.clone() : new String[0];
+    }
+
+    static DownloadRules defaults() {
+        return new DownloadRules(null, null, null, null, null);
+    }
+
+    private static String[] normalize(String[] values, boolean extensions) {
+        String[] normalized = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i].trim().toLowerCase(Locale.US);
+            // Extensions are stored with their dot so a match cannot start mid-name.
+            normalized[i] = extensions && !value.startsWith(".") ? "." + value : value;
+        }
+        return normalized;
+    }
+
+    boolean matchesUrl(String url) {
+        if (url == null) {
+            return false;
+        }
+        int length = url.length();
+        int fragment = url.indexOf('#');
+        int end = fragment >= 0 ? fragment : length;
+
+        int schemeEnd = url.indexOf("://");
+        int authorityStart = schemeEnd >= 0 && schemeEnd < end ? schemeEnd + 3 : 0;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < end) {
+            char c = url.charAt(authorityEnd);
+            if (c == '/' || c == '?') {
+                break;
+            }
+            authorityEnd++;
+        }
+        if (schemeEnd >= 0 && !hostMatches(url, authorityStart, authorityEnd)) {
+            return false;
+        }
+
+        int query = url.indexOf('?', authorityEnd);
+        int pathEnd = query >= 0 && query < end ? query : end;
+        int pathStart = schemeEnd >= 0 ? authorityEnd : 0;
+
+        for (String prefix : pathPrefixes) {
+            if (pathEnd - pathStart >= prefix.length() && url.startsWith(prefix, pathStart)) {
+                return true;
+            }
+        }
+
+        int segmentEnd = pathEnd;
+        while (segmentEnd > pathStart && url.charAt(segmentEnd - 1) == '/') {
+            segmentEnd--;
+        }
+        if (endsWithExtension(url, pathStart, segmentEnd)) {
+            return true;
+        }
+
+        if (query < 0 || query >= end || queryKeys.length == 0) {
+            return false;
+        }
+        int paramStart = query + 1;
+        while (paramStart < end) {
+            int paramEnd = url.indexOf('&', paramStart);
+            if (paramEnd < 0 || paramEnd > end) {
+                paramEnd = end;
+            }
+            int equals = url.indexOf('=', paramStart);
+            if (equals >= 0 && equals < paramEnd
+                    && isQueryKey(url, paramStart, equals)
+                    && endsWithExtension(url, equals + 1, paramEnd)) {
+                return true;
+            }
+            paramStart = paramEnd + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the decoded value of the query parameter that made the URL match,
+     * e.g. "statement.pdf" for "/get?filename=statement.pdf", or null when the
+     * match came from the path. Only meant for URLs that already matched.
+     */
+    String queryFileName(String url) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        int fragment = url.indexOf('#', query);
+        String[] params = url.substring(query + 1, fragment >= 0 ? fragment : url.length()).split("&");
+        for (String param : params) {
+            int equals = param.indexOf('=');
+            if (equals > 0 && isQueryKey(param, 0, equals) && endsWithExtension(param, equals + 1, param.length())) {
+                try {
+                    return URLDecoder.decode(param.substring(equals + 1), "UTF-8");
+                } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                    return param.substring(equals + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks a response's Content-Type and Content-Disposition, as reported to
+     * the WebView's DownloadListener.
+     */
+    boolean matchesResponse(String contentType, String contentDisposition) {
+        if (contentType != null) {
+            int typeEnd = contentType.indexOf(';');
+            if (typeEnd < 0) {
+                typeEnd = contentType.length();
+            }
+            while (typeEnd > 0 && contentType.charAt(typeEnd - 1) == ' ') {
+                typeEnd--;
+            }
+            for (String mimeType : mimeTypes) {
+                if (typeEnd == mimeType.length() && contentType.regionMatches(true, 0, mimeType, 0, typeEnd)) {
+                    return true;
+                }
+            }
+        }
+        if (contentDisposition == null) {
+            return false;
+        }
+        int length = contentDisposition.length();
+        int index = 0;
+        while ((index = indexOfIgnoreCase(contentDisposition, "filename", index)) >= 0) {
+            int valueStart = contentDisposition.indexOf('=', index);
+            if (valueStart < 0) {
+                return false;
+            }
+            valueStart++;
+            int valueEnd = contentDisposition.indexOf(';', valueStart);
+            if (valueEnd < 0) {
+                valueEnd = length;
+            }
+            while (valueEnd > valueStart) {
+                char c = contentDisposition.charAt(valueEnd - 1);
+                if (c != '"' && c != ' ' && c != '\'') {
+                    break;
+                }
+                valueEnd--;
+            }
+            if (endsWithExtension(contentDisposition, valueStart, valueEnd)) {
+                return true;
+            }
+            index = valueEnd;
+        }
+        return false;
+    }
+
+    private boolean hostMatches(String url, int authorityStart, int authorityEnd) {
+        if (hosts.length == 0) {
+            return true;
+        }
+        int hostStart = authorityStart;
+        for (int i = authorityStart; i < authorityEnd; i++) {
+            if (url.charAt(i) == '@') {
+                hostStart = i + 1;
+            }
+        }
+        int hostEnd = authorityEnd;
+        for (int i = authorityEnd - 1; i >= hostStart; i--) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                hostEnd = i;
+                break;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+        }
+        int hostLength = hostEnd - hostStart;
+        for (int i = 0; i < hosts.length; i++) {
+            String host = hosts[i];
+            if (hostWildcards[i]) {
+                if (hostLength > host.length()
+                        && url.regionMatches(true, hostEnd - host.length(), host, 0, host.length())) {
+                    return true;
+                }
+            } else if (hostLength == host.length() && url.regionMatches(true, hostStart, host, 0, hostLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isQueryKey(String url, int start, int end) {
+        for (String key : queryKeys) {
+            if (end - start == key.length() && url.startsWith(key, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean endsWithExtension(String value, int start, int end) {
+        for (String extension : extensions) {
+            int length = extension.length();
+            if (end - start >= length && value.regionMatches(true, end - length, extension, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOfIgnoreCase(String value, String token, int from) {
+        int last = value.length() - token.length();
+        for (int i = Math.max(0, from); i <= last; i++) {
+            if (value.regionMatches(true, i, token, 0, token.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
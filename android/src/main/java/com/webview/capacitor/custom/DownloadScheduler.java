@@ -0,0 +1,200 @@
+package com.webview.capacitor.custom;
+
+import android.app.DownloadManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Queue in front of every download started from the webview. Identical
+ * URL + file name pairs that are queued or running are dropped, at most
+ * {@link #MAX_CONCURRENT} downloads run at once, and bursts of downloads
+ * share a single notice. All methods must be called on the main thread.
+ */
+final class DownloadScheduler {
+
+    static final int PRIORITY_HIGH = 0;
+    static final int PRIORITY_NORMAL = 1;
+    static final int MAX_CONCURRENT = 2;
+    static final long NOTICE_DELAY_MS = 600;
+
+    interface Task {
+        /** Starts the download; {@code onFinished} must be run once it ends, on any thread. */
+        void start(Runnable onFinished);
+    }
+
+    private static DownloadScheduler instance;
+
+    private static final class Pending implements Comparable<Pending> {
+        final String key;
+        final int priority;
+        final long sequence;
+        final Task task;
+
+        Pending(String key, int priority, long sequence, Task task) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>();
+    private final Set<String> active = new HashSet<>();
+    private final Map<Long, Runnable> systemDownloads = new HashMap<>();
+    private final List<String> noticeNames = new ArrayList<>();
+    private long nextSequence;
+    private int running;
+    private boolean receiverRegistered;
+
+    private final BroadcastReceiver completionReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            long id = intent.getLongExtra(DownloadManager.EXTRA_DOWNLOAD_ID, -1);
+            Runnable onFinished = systemDownloads.remove(id);
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+    };
+
+    private final Runnable showNotice = this::showNotice;
+
+    private DownloadScheduler(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    static DownloadScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a download. Returns false when the same URL and file name is
+     * already queued or running.
+     */
+    boolean submit(String url, String fileName, int priority, Task task) {
+        reconcileSystemDownloads();
+        String key = url + "\n" + fileName;
+        if (!active.add(key)) {
+            return false;
+        }
+        queue.add(new Pending(key, priority, nextSequence++, task));
+        noticeNames.add(fileName);
+        mainHandler.removeCallbacks(showNotice);
+        mainHandler.postDelayed(showNotice, NOTICE_DELAY_MS);
+        drain();
+        return true;
+    }
+
+    /**
+     * Ties a DownloadManager id to its completion callback, since the system
+     * reports completion through a broadcast.
+     */
+    void trackSystemDownload(long downloadId, Runnable onFinished) {
+        if (!receiverRegistered) {
+            ContextCompat.registerReceiver(appContext, completionReceiver,
+                    new IntentFilter(DownloadManager.ACTION_DOWNLOAD_COMPLETE), ContextCompat.RECEIVER_EXPORTED);
+            receiverRegistered = true;
+        }
+        systemDownloads.put(downloadId, onFinished);
+    }
+
+    int getQueuedCount() {
+        return queue.size();
+    }
+
+    int getRunningCount() {
+        return running;
+    }
+
+    private void drain() {
+        while (running < MAX_CONCURRENT && !queue.isEmpty()) {
+            Pending next = queue.poll();
+            running++;
+            boolean[] finished = {false};
+            next.task.start(() -> mainHandler.post(() -> {
+                if (finished[0]) {
+                    return;
+                }
+                finished[0] = true;
+                running--;
+                active.remove(next.key);
+                drain();
+            }));
+        }
+    }
+
+    // Downloads removed by the user never broadcast completion; free their slots.
+    private void reconcileSystemDownloads() {
+        if (systemDownloads.isEmpty()) {
+            return;
+        }
+        long[] ids = new long[systemDownloads.size()];
+        int index = 0;
+        for (Long id : systemDownloads.keySet()) {
+            ids[index++] = id;
+        }
+        Set<Long> alive = new HashSet<>();
+        DownloadManager manager = (DownloadManager) appContext.getSystemService(Context.DOWNLOAD_SERVICE);
+        try (Cursor cursor = manager.query(new DownloadManager.Query().setFilterById(ids))) {
+            if (cursor == null) {
+                return;
+            }
+            int idColumn = cursor.getColumnIndex(DownloadManager.COLUMN_ID);
+            int statusColumn = cursor.getColumnIndex(DownloadManager.COLUMN_STATUS);
+            while (cursor.moveToNext()) {
+                int status = cursor.getInt(statusColumn);
+                if (status != DownloadManager.STATUS_SUCCESSFUL && status != DownloadManager.STATUS_FAILED) {
+                    alive.add(cursor.getLong(idColumn));
+                }
+            }
+        }
+        for (long id : ids) {
+            if (!alive.contains(id)) {
+                Runnable onFinished = systemDownloads.remove(id);
+                if (onFinished != null) {
+                    onFinished.run();
+                }
+            }
+        }
+    }
+
+    private void showNotice() {
+        if (noticeNames.isEmpty()) {
+            return;
+        }
+        String message = noticeNames.size() == 1
+                ? "Downloading " + noticeNames.get(0)
+                : "Downloading " + noticeNames.size() + " files";
+        noticeNames.clear();
+        Toast.makeText(appContext, message, Toast.LENGTH_SHORT).show();
+    }
+}
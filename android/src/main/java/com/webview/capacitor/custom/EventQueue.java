@@ -0,0 +1,207 @@
+package com.webview.capacitor.custom;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Ordered queue of plugin events drained by a single consumer thread, so
+ * WebView callbacks never call into the Capacitor bridge directly.
+ *
+ * <p>Events registered with {@link #coalesce} are state updates: a newer
+ * event with the same key replaces the undelivered one, and consecutive
+ * deliveries per key are spaced at least the given interval apart. Events
+ * registered with {@link #limit} are dropped beyond a per-second budget.
+ * Other events are always delivered, unless {@link #MAX_QUEUED} events are
+ * already waiting.</p>
+ */
+final class EventQueue<T> {
+
+    interface Sink<T> {
+        void deliver(String name, T data);
+    }
+
+    static final int MAX_QUEUED = 256;
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+    private static final int MAX_TRACKED_KEYS = 64;
+
+    private static final class Policy {
+        boolean coalesce;
+        long intervalNanos;
+        int maxPerSecond;
+        long windowStart;
+        int windowCount;
+    }
+
+    private static final class Event<T> {
+        final String name;
+        final String key;
+        final T data;
+
+        Event(String name, String key, T data) {
+            this.name = name;
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    private final Sink<T> sink;
+    private final String threadName;
+    private final ArrayDeque<Event<T>> queue = new ArrayDeque<>();
+    private final Map<String, Policy> policies = new HashMap<>();
+    private final Map<String, Event<T>> pending = new HashMap<>();
+    private final Map<String, Long> lastDelivered = new HashMap<>();
+    private Thread consumer;
+    private long dropped;
+    private long coalesced;
+
+    EventQueue(String threadName, Sink<T> sink) {
+        this.threadName = threadName;
+        this.sink = sink;
+    }
+
+    /**
+     * Keeps only the latest undelivered event per key for {@code name}, and
+     * delivers at most one per key every {@code intervalMs}.
+     */
+    synchronized EventQueue<T> coalesce(String name, long intervalMs) {
+        Policy policy = policy(name);
+        policy.coalesce = true;
+        policy.intervalNanos = intervalMs * 1_000_000L;
+        return this;
+    }
+
+    /**
+     * Drops {@code name} events beyond {@code maxPerSecond}.
+     */
+    synchronized EventQueue<T> limit(String name, int maxPerSecond) {
+        policy(name).maxPerSecond = maxPerSecond;
+        return this;
+    }
+
+    boolean post(String name, T data) {
+        return post(name, name, data);
+    }
+
+    /**
+     * Queues an event. Returns false when it was dropped by a rate limit or
+     * because the queue is full.
+     */
+    synchronized boolean post(String name, String key, T data) {
+        Policy policy = policies.get(name);
+        if (policy != null && policy.maxPerSecond > 0) {
+            long now = System.nanoTime();
+            if (now - policy.windowStart >= SECOND_NANOS) {
+                policy.windowStart = now;
+                policy.windowCount = 0;
+            }
+            if (policy.windowCount >= policy.maxPerSecond) {
+                dropped++;
+                return false;
+            }
+            policy.windowCount++;
+        }
+
+        Event<T> event = new Event<>(name, key, data);
+        Event<T> superseded = policy != null && policy.coalesce ? pending.put(key, event) : null;
+        if (superseded != null) {
+            queue.removeFirstOccurrence(superseded);
+            coalesced++;
+        } else if (queue.size() >= MAX_QUEUED) {
+            if (policy != null && policy.coalesce) {
+                pending.remove(key);
+            }
+            dropped++;
+            return false;
+        }
+        queue.add(event);
+        if (consumer == null) {
+            consumer = new Thread(this::drain, threadName);
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Events dropped by rate limits or a full queue.
+     */
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Events replaced by a newer event with the same key before delivery.
+     */
+    synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+        while (true) {
+            Event<T> event;
+            try {
+                event = next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            sink.deliver(event.name, event.data);
+        }
+    }
+
+    private synchronized Event<T> next() throws InterruptedException {
+        while (true) {
+            Event<T> event = queue.peek();
+            if (event == null) {
+                wait();
+                continue;
+            }
+            Policy policy = policies.get(event.name);
+            long now = System.nanoTime();
+            if (policy != null && policy.intervalNanos > 0) {
+                Long last = lastDelivered.get(event.key);
+                long waitNanos = last == null ? 0 : last + policy.intervalNanos - now;
+                if (waitNanos > 0) {
+                    // A newer update may replace this one while waiting; re-check the head afterwards.
+                    wait(Math.max(1, waitNanos / 1_000_000L));
+                    continue;
+                }
+                lastDelivered.put(event.key, now);
+                if (lastDelivered.size() > MAX_TRACKED_KEYS) {
+                    pruneLastDelivered(now);
+                }
+            }
+            queue.poll();
+            if (pending.get(event.key) == event) {
+                pending.remove(event.key);
+            }
+            return event;
+        }
+    }
+
+    private void pruneLastDelivered(long now) {
+        Iterator<Map.Entry<String, Long>> entries = lastDelivered.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (now - entries.next().getValue() > SECOND_NANOS) {
+                entries.remove();
+            }
+        }
+    }
+
+    private Policy policy(String name) {
+        Policy policy = policies.get(name);
+        if (policy == null) {
+            policy = new Policy();
+            policy.windowStart = System.nanoTime() - SECOND_NANOS;
+            policies.put(name, policy);
+        }
+        return policy;
+    }
+}
@@ -0,0 +1,98 @@
+package com.webview.capacitor.custom;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import java.util.Locale;
+
+/**
+ * Geolocation decisions the user made in the runtime dialog, per origin,
+ * kept across opens so pages are not bridged through the native prompt
+ * again on every page. A grant is kept
+ * until cleared; a denial expires after {@link #DENIAL_TTL_MS}, so the user
+ * is eventually asked again. Both are only meaningful while the app holds,
+ * or lacks, the location permission they were made under.
+ */
+final class GeolocationDecisions {
+
+    static final long DENIAL_TTL_MS = 24L * 60 * 60 * 1000;
+
+    private static final String PREFERENCES = "customwebview_geolocation";
+    private static final String GRANTED = "granted";
+
+    private static GeolocationDecisions instance;
+
+    private final SharedPreferences preferences;
+
+    GeolocationDecisions(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    static synchronized GeolocationDecisions getInstance(Context context) {
+        if (instance == null) {
+            instance = new GeolocationDecisions(
+                    context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE));
+        }
+        return instance;
+    }
+
+    /**
+     * {@link Boolean#TRUE} or {@link Boolean#FALSE} for a known origin, null
+     * when it has no decision or its denial expired.
+     */
+    Boolean get(String origin) {
+        String value = origin != null ? preferences.getString(key(origin), null) : null;
+        if (value == null) {
+            return null;
+        }
+        if (GRANTED.equals(value)) {
+            return Boolean.TRUE;
+        }
+        try {
+            if (System.currentTimeMillis() - Long.parseLong(value) < DENIAL_TTL_MS) {
+                return Boolean.FALSE;
+            }
+        } catch (NumberFormatException ignored) {
+            // Unknown value, treated as no decision.
+        }
+        return null;
+    }
+
+    boolean isGranted(String origin) {
+        return Boolean.TRUE.equals(get(origin));
+    }
+
+    void put(String origin, boolean granted) {
+        if (origin == null) {
+            return;
+        }
+        preferences.edit()
+                .putString(key(origin), granted ? GRANTED : Long.toString(System.currentTimeMillis()))
+                .apply();
+    }
+
+    void clear() {
+        preferences.edit().clear().apply();
+    }
+
+    /**
+     * The origin of a page URL, in the form used for decisions, or null.
+     */
+    static String originOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        Uri uri = Uri.parse(url);
+        if (uri.getScheme() == null || uri.getEncodedAuthority() == null) {
+            return null;
+        }
+        return key(uri.getScheme() + "://" + uri.getEncodedAuthority());
+    }
+
+    // WebView reports prompt origins with a trailing slash ("https://example.com/").
+    private static String key(String origin) {
+        String key = origin.toLowerCase(Locale.ROOT);
+        return key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+    }
+}
@@ -0,0 +1,87 @@
+package com.webview.capacitor.custom;
+
+/**
+ * Counts values into fixed buckets. Bucket {@code i} holds values up to and
+ * including {@code bounds[i]}; one extra bucket holds everything above the
+ * last bound. Fixed bounds keep summaries from different opens and devices
+ * mergeable by adding counts.
+ *
+ * <p>Not thread-safe; callers synchronize.</p>
+ */
+final class Histogram {
+
+    private final long[] bounds;
+    private final int[] counts;
+    private int count;
+    private long sum;
+    private long max;
+
+    Histogram(long... bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bounds must be ascending");
+            }
+        }
+        this.bounds = bounds.clone();
+        this.counts = new int[bounds.length + 1];
+    }
+
+    void add(long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= bounds[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        counts[low]++;
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        count++;
+        sum += value;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getSum() {
+        return sum;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    long[] getBounds() {
+        return bounds.clone();
+    }
+
+    int[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Estimates the value at {@code fraction} (0 to 1) as the upper bound of
+     * the bucket it falls in, capped at the largest value seen. Returns -1
+     * when empty.
+     */
+    long percentile(double fraction) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bounds[i], max);
+            }
+        }
+        return max;
+    }
+}
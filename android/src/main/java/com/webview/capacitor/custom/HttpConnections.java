@@ -0,0 +1,186 @@
+package com.webview.capacitor.custom;
+
+import android.webkit.CookieManager;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Helpers for the requests the plugin makes natively on behalf of the page,
+ * so they carry the same cookies and headers the WebView would send.
+ */
+final class HttpConnections {
+
+    static final int CONNECT_TIMEOUT_MS = 15000;
+    static final int READ_TIMEOUT_MS = 30000;
+    static final long HEURISTIC_FRESHNESS_MAX_MS = 24L * 60 * 60 * 1000;
+
+    // Headers that no longer describe the body once HttpURLConnection has decoded it.
+    private static final String[] DROPPED_RESPONSE_HEADERS = {"content-encoding", "content-length", "transfer-encoding", "set-cookie"};
+
+    private HttpConnections() {
+    }
+
+    /**
+     * Opens a request that does not follow redirects: the headers were built
+     * for {@code url}'s origin and must not be sent to another, and a 3xx
+     * is left for the WebView to follow.
+     */
+    static HttpURLConnection open(String url, Map<String, String> headers, boolean withCookies) throws IOException {
+        return open(url, headers, withCookies, false);
+    }
+
+    static HttpURLConnection open(String url, Map<String, String> headers, boolean withCookies,
+                                  boolean followRedirects) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setInstanceFollowRedirects(followRedirects);
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                // HttpURLConnection only decompresses transparently when it negotiates the encoding itself.
+                if (!"Accept-Encoding".equalsIgnoreCase(header.getKey())) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+        }
+        if (withCookies) {
+            String cookies = CookieManager.getInstance().getCookie(url);
+            if (cookies != null) {
+                connection.setRequestProperty("Cookie", cookies);
+            }
+        }
+        return connection;
+    }
+
+    static void storeCookies(HttpURLConnection connection, String url) {
+        List<String> cookies = connection.getHeaderFields().get("Set-Cookie");
+        if (cookies == null) {
+            return;
+        }
+        CookieManager cookieManager = CookieManager.getInstance();
+        for (String cookie : cookies) {
+            cookieManager.setCookie(url, cookie);
+        }
+    }
+
+    /**
+     * Whether a response may be kept in the plugin's caches: not when
+     * {@code Cache-Control} says {@code no-store} or {@code private}.
+     */
+    static boolean isStorable(String cacheControl) {
+        return !hasDirective(cacheControl, "no-store") && !hasDirective(cacheControl, "private");
+    }
+
+    /**
+     * Whether a request asks to bypass caches, as a reload does: its
+     * {@code Cache-Control} has {@code no-store} or {@code no-cache}, or it
+     * sends {@code Pragma: no-cache}.
+     */
+    static boolean bypassesCache(String cacheControl, String pragma) {
+        return hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "no-cache")
+                || "no-cache".equalsIgnoreCase(pragma);
+    }
+
+    /**
+     * How long a response may be served without revalidation, in ms, from
+     * {@code Cache-Control}, else {@code Expires}, else 10% of its age since
+     * {@code Last-Modified} (at most a day). Dates are epoch ms, 0 when absent.
+     */
+    static long freshnessMs(HttpURLConnection connection) {
+        return freshnessMs(connection.getHeaderField("Cache-Control"), connection.getDate(),
+                connection.getExpiration(), connection.getLastModified(), System.currentTimeMillis());
+    }
+
+    static long freshnessMs(String cacheControl, long date, long expires, long lastModified, long now) {
+        if (hasDirective(cacheControl, "no-cache")) {
+            return 0;
+        }
+        String maxAge = directive(cacheControl, "max-age");
+        if (maxAge != null) {
+            try {
+                return Math.max(0, Long.parseLong(maxAge) * 1000);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        long served = date > 0 ? date : now;
+        if (expires > 0) {
+            return Math.max(0, expires - served);
+        }
+        if (lastModified > 0 && lastModified < served) {
+            return Math.min((served - lastModified) / 10, HEURISTIC_FRESHNESS_MAX_MS);
+        }
+        return 0;
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        return directive(cacheControl, name) != null;
+    }
+
+    // The directive's value, "" for a directive without one, null when absent.
+    private static String directive(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return null;
+        }
+        for (String part : cacheControl.split(",")) {
+            String directive = part.trim();
+            int equals = directive.indexOf('=');
+            String key = equals >= 0 ? directive.substring(0, equals).trim() : directive;
+            if (key.equalsIgnoreCase(name)) {
+                return equals >= 0 ? directive.substring(equals + 1).trim().replace("\"", "") : "";
+            }
+        }
+        return null;
+    }
+
+    static String mimeType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int separator = contentType.indexOf(';');
+        String mimeType = separator >= 0 ? contentType.substring(0, separator) : contentType;
+        return mimeType.trim().toLowerCase(Locale.US);
+    }
+
+    static String charset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int index = contentType.toLowerCase(Locale.US).indexOf("charset=");
+        if (index < 0) {
+            return null;
+        }
+        String charset = contentType.substring(index + "charset=".length());
+        int end = charset.indexOf(';');
+        return (end >= 0 ? charset.substring(0, end) : charset).trim().replace("\"", "");
+    }
+
+    /**
+     * Response headers to hand to a WebResourceResponse, without the ones that
+     * describe the transfer rather than the decoded body.
+     */
+    static Map<String, String> responseHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null && !header.getValue().isEmpty() && !isDropped(header.getKey())) {
+                headers.put(header.getKey(), header.getValue().get(header.getValue().size() - 1));
+            }
+        }
+        return headers;
+    }
+
+    private static boolean isDropped(String header) {
+        for (String dropped : DROPPED_RESPONSE_HEADERS) {
+            if (dropped.equalsIgnoreCase(header)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package com.webview.capacitor.custom;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Acquires a location fix natively while the page loads, so the page's
+ * first navigator.geolocation.getCurrentPosition call can be answered at
+ * once instead of waiting for the WebView's own location request.
+ *
+ * <p>{@link #SCRIPT} wraps getCurrentPosition in the main frame. Calls made
+ * while the fix is pending wait for it (at most 10 s, or the call's own
+ * timeout); calls that cannot use it, because it is older than the call's
+ * maximumAge or 30 s, whichever is shorter, or too coarse for
+ * enableHighAccuracy, go to the original implementation. The fix is pushed
+ * with {@link #pushScript}, only to pages whose origin was granted
+ * geolocation in this open or by the user before. Each answered call is
+ * reported to the {@code CustomWebviewGeolocation} interface.</p>
+ *
+ * <p>All methods must be called on the main thread.</p>
+ */
+final class LocationWarmup {
+
+    interface Listener {
+        void onUpdate();
+    }
+
+    static final long FRESH_MS = 30_000;
+    static final long TIMEOUT_MS = 30_000;
+
+    private static final String TAG = "LocationWarmup";
+
+    static final String SCRIPT = "(function() {" +
+            "if (window.top !== window || !navigator.geolocation || window.__customWebviewWarmFix) return;" +
+            "var geo = navigator.geolocation, original = geo.getCurrentPosition.bind(geo);" +
+            "var fix = null, pending = true, waiting = [];" +
+            "var FRESH_MS = " + FRESH_MS + ", WAIT_MS = 10000, ACCURATE_M = 100;" +
+            "function report(warm) {" +
+            "  try { if (window.CustomWebviewGeolocation) window.CustomWebviewGeolocation.served(warm); } catch (e) {}" +
+            "}" +
+            "function usable(options) {" +
+            "  if (!fix) return false;" +
+            "  var maxAge = options && typeof options.maximumAge === 'number' ? Math.min(options.maximumAge, FRESH_MS) : FRESH_MS;" +
+            "  if (Date.now() - fix.timestamp > maxAge) return false;" +
+            "  return !(options && options.enableHighAccuracy && fix.accuracy > ACCURATE_M);" +
+            "}" +
+            "function settle(call) {" +
+            "  if (!usable(call.options)) {" +
+            "    report(false);" +
+            "    original(call.success, call.error, call.options);" +
+            "    return;" +
+            "  }" +
+            "  report(true);" +
+            "  var coords = {latitude: fix.latitude, longitude: fix.longitude, accuracy: fix.accuracy," +
+            "    altitude: fix.altitude, altitudeAccuracy: fix.altitudeAccuracy, heading: fix.heading, speed: fix.speed};" +
+            "  var position = {coords: coords, timestamp: fix.timestamp," +
+            "    toJSON: function() { return {coords: coords, timestamp: fix.timestamp}; }};" +
+            "  setTimeout(function() { call.success(position); }, 0);" +
+            "}" +
+            "geo.getCurrentPosition = function(success, error, options) {" +
+            "  var call = {success: success, error: error, options: options};" +
+            "  if (!pending || usable(options)) { settle(call); return; }" +
+            "  var wait = Math.min(options && options.timeout || WAIT_MS, WAIT_MS);" +
+            "  call.timer = setTimeout(function() {" +
+            "    var i = waiting.indexOf(call);" +
+            "    if (i >= 0) { waiting.splice(i, 1); pending = false; settle(call); }" +
+            "  }, wait);" +
+            "  waiting.push(call);" +
+            "};" +
+            "Object.defineProperty(window, '__customWebviewWarmFix', {value: function(next, stillPending) {" +
+            "  if (next) fix = next;" +
+            "  pending = !!stillPending;" +
+            "  if (pending && !fix) return;" +
+            "  var calls = waiting;" +
+            "  waiting = [];" +
+            "  calls.forEach(function(call) { clearTimeout(call.timer); settle(call); });" +
+            "}});" +
+            "})();";
+
+    private final Context context;
+    private final LocationManager locationManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+    private Location fix;
+    private boolean pending;
+    private CancellationSignal cancellation;
+    private LocationListener legacyListener;
+
+    LocationWarmup(Context context) {
+        this.context = context;
+        this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    /**
+     * Starts one location request, seeded with a recent last known location.
+     * Returns false without the location permission or an enabled provider.
+     */
+    boolean start(Listener listener) {
+        if (pending || locationManager == null) {
+            return pending;
+        }
+        boolean fine = context.checkSelfPermission(Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        boolean coarse = context.checkSelfPermission(Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        if (!fine && !coarse) {
+            return false;
+        }
+        this.listener = listener;
+        String provider = provider(fine);
+        try {
+            seedFromLastKnown(fine);
+            if (provider == null) {
+                return fix != null;
+            }
+            pending = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                cancellation = new CancellationSignal();
+                locationManager.getCurrentLocation(provider, cancellation, context.getMainExecutor(), this::onLocation);
+            } else {
+                requestSingleUpdate(provider);
+            }
+            handler.postDelayed(this::stop, TIMEOUT_MS);
+        } catch (SecurityException | IllegalArgumentException e) {
+            Log.w(TAG, "Location warm-up failed", e);
+            pending = false;
+        }
+        return true;
+    }
+
+    void stop() {
+        handler.removeCallbacksAndMessages(null);
+        if (cancellation != null) {
+            cancellation.cancel();
+            cancellation = null;
+        }
+        if (legacyListener != null) {
+            locationManager.removeUpdates(legacyListener);
+            legacyListener = null;
+        }
+        if (pending) {
+            pending = false;
+            notifyListener();
+        }
+    }
+
+    boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * Script handing the current fix to the page, or telling it to stop
+     * waiting when {@code allowed} is false.
+     */
+    String pushScript(boolean allowed) {
+        String json = allowed ? fixJson() : null;
+        return "window.__customWebviewWarmFix && window.__customWebviewWarmFix("
+                + json + ", " + (allowed && pending) + ");";
+    }
+
+    private void onLocation(Location location) {
+        if (location != null) {
+            fix = location;
+        }
+        handler.removeCallbacksAndMessages(null);
+        cancellation = null;
+        legacyListener = null;
+        pending = false;
+        notifyListener();
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            listener.onUpdate();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void requestSingleUpdate(String provider) {
+        // Anonymous class rather than a lambda: before API 30 every method is abstract.
+        legacyListener = new LocationListener() {
+            @Override
+            public void onLocationChanged(Location location) {
+                onLocation(location);
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
+
+            @Override
+            public void onProviderEnabled(String provider) {
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        };
+        locationManager.requestSingleUpdate(provider, legacyListener, Looper.getMainLooper());
+    }
+
+    private String provider(boolean fine) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                && locationManager.hasProvider(LocationManager.FUSED_PROVIDER)
+                && locationManager.isProviderEnabled(LocationManager.FUSED_PROVIDER)) {
+            return LocationManager.FUSED_PROVIDER;
+        }
+        if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
+            return LocationManager.NETWORK_PROVIDER;
+        }
+        if (fine && locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
+            return LocationManager.GPS_PROVIDER;
+        }
+        return null;
+    }
+
+    private void seedFromLastKnown(boolean fine) {
+        String[] providers = fine
+                ? new String[]{LocationManager.NETWORK_PROVIDER, LocationManager.GPS_PROVIDER}
+                : new String[]{LocationManager.NETWORK_PROVIDER};
+        for (String provider : providers) {
+            Location location = locationManager.getLastKnownLocation(provider);
+            if (location != null && ageMs(location) < FRESH_MS && (fix == null || ageMs(location) < ageMs(fix))) {
+                fix = location;
+            }
+        }
+    }
+
+    private static long ageMs(Location location) {
+        return (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1_000_000L;
+    }
+
+    private String fixJson() {
+        if (fix == null) {
+            return null;
+        }
+        JSONObject json = new JSONObject();
+        try {
+            json.put("latitude", fix.getLatitude());
+            json.put("longitude", fix.getLongitude());
+            json.put("accuracy", fix.hasAccuracy() ? fix.getAccuracy() : 1000);
+            json.put("altitude", fix.hasAltitude() ? fix.getAltitude() : JSONObject.NULL);
+            json.put("altitudeAccuracy", Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && fix.hasVerticalAccuracy()
+                    ? fix.getVerticalAccuracyMeters() : JSONObject.NULL);
+            json.put("heading", fix.hasBearing() ? fix.getBearing() : JSONObject.NULL);
+            json.put("speed", fix.hasSpeed() ? fix.getSpeed() : JSONObject.NULL);
+            // Wall-clock time derived from the fix's age, since getTime() comes from the provider's clock.
+            json.put("timestamp", System.currentTimeMillis() - ageMs(fix));
+        } catch (JSONException e) {
+            return null;
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.webview.capacitor.custom;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Bounded ring buffer of fetch/XHR entries reported by the page. The oldest
+ * entries are overwritten once the buffer is full. Shared across webview opens.
+ */
+final class NetworkLog {
+
+    static final int CAPACITY = 500;
+
+    private static final NetworkLog instance = new NetworkLog(CAPACITY);
+
+    static final class Entry {
+        final String type;
+        final String method;
+        final String url;
+        final int status;
+        final double startTime;
+        final double endTime;
+        final long bytes;
+        final String error;
+
+        Entry(String type, String method, String url, int status, double startTime, double endTime, long bytes, String error) {
+            this.type = type;
+            this.method = method;
+            this.url = url;
+            this.status = status;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.bytes = bytes;
+            this.error = error;
+        }
+    }
+
+    private final Entry[] entries;
+    private int next;
+    private int count;
+
+    private NetworkLog(int capacity) {
+        entries = new Entry[capacity];
+    }
+
+    static NetworkLog getInstance() {
+        return instance;
+    }
+
+    synchronized void add(Entry entry) {
+        entries[next] = entry;
+        next = (next + 1) % entries.length;
+        if (count < entries.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Parses a batch sent by the injected logger script. Each item is a compact
+     * array: [type, method, url, status, start, end, bytes, error].
+     */
+    int addBatch(String batch) throws JSONException {
+        JSONArray items = new JSONArray(batch);
+        for (int i = 0; i < items.length(); i++) {
+            JSONArray item = items.getJSONArray(i);
+            add(new Entry(
+                    item.optString(0, "fetch"),
+                    item.optString(1, "GET").toUpperCase(Locale.US),
+                    item.optString(2, ""),
+                    item.optInt(3, 0),
+                    item.optDouble(4, 0),
+                    item.optDouble(5, 0),
+                    item.optLong(6, -1),
+                    item.isNull(7) ? null : item.optString(7)
+            ));
+        }
+        return items.length();
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        next = 0;
+        count = 0;
+    }
+
+    synchronized Entry[] snapshot() {
+        Entry[] copy = new Entry[count];
+        int start = (next - count + entries.length) % entries.length;
+        for (int i = 0; i < count; i++) {
+            copy[i] = entries[(start + i) % entries.length];
+        }
+        return copy;
+    }
+
+    JSArray toJson() {
+        JSArray result = new JSArray();
+        for (Entry entry : snapshot()) {
+            JSObject item = new JSObject();
+            item.put("type", entry.type);
+            item.put("method", entry.method);
+            item.put("url", entry.url);
+            item.put("status", entry.status);
+            item.put("startTime", entry.startTime);
+            item.put("endTime", entry.endTime);
+            item.put("duration", entry.endTime - entry.startTime);
+            item.put("bytes", entry.bytes);
+            if (entry.error != null) {
+                item.put("error", entry.error);
+            }
+            result.put(item);
+        }
+        return result;
+    }
+
+    JSObject toHar() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        JSArray harEntries = new JSArray();
+        for (Entry entry : snapshot()) {
+            double time = Math.max(0, entry.endTime - entry.startTime);
+
+            JSObject request = new JSObject();
+            request.put("method", entry.method);
+            request.put("url", entry.url);
+            request.put("httpVersion", "");
+            request.put("cookies", new JSArray());
+            request.put("headers", new JSArray());
+            request.put("queryString", new JSArray());
+            request.put("headersSize", -1);
+            request.put("bodySize", -1);
+
+            JSObject content = new JSObject();
+            content.put("size", Math.max(0, entry.bytes));
+            content.put("mimeType", "");
+
+            JSObject response = new JSObject();
+            response.put("status", entry.status);
+            response.put("statusText", "");
+            response.put("httpVersion", "");
+            response.put("cookies", new JSArray());
+            response.put("headers", new JSArray());
+            response.put("content", content);
+            response.put("redirectURL", "");
+            response.put("headersSize", -1);
+            response.put("bodySize", entry.bytes);
+            if (entry.error != null) {
+                response.put("_error", entry.error);
+            }
+
+            JSObject timings = new JSObject();
+            timings.put("send", 0);
+            timings.put("wait", time);
+            timings.put("receive", 0);
+
+            JSObject harEntry = new JSObject();
+            harEntry.put("startedDateTime", iso.format(new Date((long) entry.startTime)));
+            harEntry.put("time", time);
+            harEntry.put("request", request);
+            harEntry.put("response", response);
+            harEntry.put("cache", new JSObject());
+            harEntry.put("timings", timings);
+            harEntry.put("_initiatorType", entry.type);
+            harEntries.put(harEntry);
+        }
+
+        JSObject creator = new JSObject();
+        creator.put("name", "capacitor-webview");
+        creator.put("version", "");
+
+        JSObject log = new JSObject();
+        log.put("version", "1.2");
+        log.put("creator", creator);
+        log.put("entries", harEntries);
+
+        JSObject har = new JSObject();
+        har.put("log", log);
+        return har;
+    }
+}
@@ -0,0 +1,142 @@
+package com.webview.capacitor.custom;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Extra request headers per origin ("scheme://host[:port]"). Sub-resource GET
+ * requests to a configured origin are fetched natively with the headers
+ * added, since the WebView has no way to add headers to its own requests.
+ */
+final class OriginHeaders {
+
+    private static final String TAG = "OriginHeaders";
+
+    private final Map<String, Map<String, String>> headersByOrigin = new HashMap<>();
+
+    /**
+     * Parses {@code {"https://api.example.com": {"Authorization": "..."}}}.
+     */
+    static OriginHeaders parse(String json) throws JSONException {
+        OriginHeaders originHeaders = new OriginHeaders();
+        if (json == null) {
+            return originHeaders;
+        }
+        JSONObject origins = new JSONObject(json);
+        Iterator<String> keys = origins.keys();
+        while (keys.hasNext()) {
+            String origin = keys.next();
+            String normalized = origin(Uri.parse(origin));
+            if (normalized == null) {
+                Log.w(TAG, "Ignoring invalid origin: " + origin);
+                continue;
+            }
+            Map<String, String> headers = toMap(origins.getJSONObject(origin));
+            if (!headers.isEmpty()) {
+                originHeaders.headersByOrigin.put(normalized, Collections.unmodifiableMap(headers));
+            }
+        }
+        return originHeaders;
+    }
+
+    static Map<String, String> toMap(JSONObject object) throws JSONException {
+        Map<String, String> map = new HashMap<>();
+        if (object == null) {
+            return map;
+        }
+        Iterator<String> names = object.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            map.put(name, object.getString(name));
+        }
+        return map;
+    }
+
+    boolean isEmpty() {
+        return headersByOrigin.isEmpty();
+    }
+
+    /**
+     * Headers configured for the URL's origin, or null.
+     */
+    Map<String, String> headersFor(Uri uri) {
+        if (headersByOrigin.isEmpty()) {
+            return null;
+        }
+        String origin = origin(uri);
+        return origin != null ? headersByOrigin.get(origin) : null;
+    }
+
+    /**
+     * Fetches the request with the origin's headers added. Returns null when
+     * no headers are configured for the origin, the request cannot be replayed
+     * natively, or the fetch fails, so the WebView loads it itself.
+     */
+    WebResourceResponse fetch(WebResourceRequest request) {
+        if (request.isForMainFrame() || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        Map<String, String> extra = headersFor(request.getUrl());
+        if (extra == null) {
+            return null;
+        }
+
+        String url = request.getUrl().toString();
+        Map<String, String> headers = new HashMap<>(request.getRequestHeaders());
+        headers.putAll(extra);
+        HttpURLConnection connection = null;
+        try {
+            connection = HttpConnections.open(url, headers, true);
+            int status = connection.getResponseCode();
+            HttpConnections.storeCookies(connection, url);
+            // WebResourceResponse cannot carry redirects; leave those to the WebView.
+            if (status >= 300 && status < 400) {
+                connection.disconnect();
+                return null;
+            }
+            String contentType = connection.getContentType();
+            String reason = connection.getResponseMessage();
+            return new WebResourceResponse(
+                    HttpConnections.mimeType(contentType),
+                    HttpConnections.charset(contentType),
+                    status,
+                    reason == null || reason.isEmpty() ? "OK" : reason,
+                    HttpConnections.responseHeaders(connection),
+                    status >= 400 ? connection.getErrorStream() : connection.getInputStream()
+            );
+        } catch (IOException e) {
+            Log.w(TAG, "Fetch failed, falling back to the WebView: " + Diagnostics.stripUrl(url), e);
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return null;
+        }
+    }
+
+    private static String origin(Uri uri) {
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return null;
+        }
+        scheme = scheme.toLowerCase(Locale.US);
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "https".equals(scheme) ? 443 : "http".equals(scheme) ? 80 : -1;
+        }
+        return scheme + "://" + host.toLowerCase(Locale.US) + ":" + port;
+    }
+}
@@ -0,0 +1,284 @@
+package com.webview.capacitor.custom;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Message channel between the page and the app built on a WebMessagePort,
+ * handed to the page after each navigation. Unlike a JavascriptInterface it
+ * is only offered to allowed origins in the main frame, carries ArrayBuffers
+ * without copying them into strings, and keeps the binder thread free.
+ *
+ * <p>Wire format, page to native: {@code "t" + JSON array of strings} for a
+ * batch of text messages, an ArrayBuffer, or {@code "b" + base64} when the
+ * WebView cannot transfer ArrayBuffers. Native to page: {@code "a" + count}
+ * returns credits and {@code "m" + text} delivers an app message. The page
+ * keeps at most {@link #CREDITS} messages in flight and queues the rest, so a
+ * fast producer cannot outrun the bridge.</p>
+ *
+ * <p>The page takes the port from the first init message of each document
+ * and ignores any later one. The init must come from native code (no source
+ * window, no origin) and carry the nonce baked into the page script by
+ * {@link #script}, which frames and other windows cannot read, so they cannot
+ * hand the page a port of their own.</p>
+ *
+ * <p>All methods must be called on the main thread.</p>
+ */
+final class PageMessageChannel {
+
+    interface Listener {
+        void onText(String[] messages);
+
+        void onBinary(String base64);
+    }
+
+    static final int CREDITS = 8;
+
+    private static final String TAG = "PageMessageChannel";
+    private static final String INIT_MESSAGE = "customwebview:channel";
+
+    // Defines window.CustomWebviewChannel: send(string | ArrayBuffer | view) returns false
+    // once more than 8 MB is queued, onDrain fires when the queue falls below half of that.
+    private static final String CHANNEL_SCRIPT = "(function() {" +
+            "if (window.CustomWebviewChannel) return;" +
+            "var NONCE = __NONCE__;" +
+            "var port = null, arrayBuffers = false, credits = 0, scheduled = false, full = false;" +
+            "var queue = [], queuedBytes = 0, messageListeners = [], drainListeners = [];" +
+            "var MAX_BATCH = 64, HIGH_WATER = 8 * 1024 * 1024;" +
+            "function base64(buffer) {" +
+            "  var bytes = new Uint8Array(buffer), chunks = [];" +
+            "  for (var i = 0; i < bytes.length; i += 32768) chunks.push(String.fromCharCode.apply(null, bytes.subarray(i, i + 32768)));" +
+            "  return btoa(chunks.join(''));" +
+            "}" +
+            "function schedule() {" +
+            "  if (scheduled || !port || !credits) return;" +
+            "  scheduled = true;" +
+            "  Promise.resolve().then(flush);" +
+            "}" +
+            "function flush() {" +
+            "  scheduled = false;" +
+            "  while (port && credits > 0 && queue.length) {" +
+            "    credits--;" +
+            "    if (typeof queue[0] !== 'string') {" +
+            "      var buffer = queue.shift();" +
+            "      queuedBytes -= buffer.byteLength;" +
+            "      if (arrayBuffers) port.postMessage(buffer, [buffer]); else port.postMessage('b' + base64(buffer));" +
+            "      continue;" +
+            "    }" +
+            "    var batch = [];" +
+            "    while (queue.length && typeof queue[0] === 'string' && batch.length < MAX_BATCH) {" +
+            "      var text = queue.shift();" +
+            "      queuedBytes -= text.length * 2;" +
+            "      batch.push(text);" +
+            "    }" +
+            "    port.postMessage('t' + JSON.stringify(batch));" +
+            "  }" +
+            "  if (full && queuedBytes < HIGH_WATER / 2) {" +
+            "    full = false;" +
+            "    drainListeners.forEach(function(listener) { listener(); });" +
+            "  }" +
+            "}" +
+            "function receive(event) {" +
+            "  var data = event.data;" +
+            "  if (data.charAt(0) === 'a') { credits += parseInt(data.substring(1), 10); schedule(); return; }" +
+            "  if (data.charAt(0) === 'm') { var text = data.substring(1); messageListeners.forEach(function(listener) { listener(text); }); }" +
+            "}" +
+            "window.addEventListener('message', function(event) {" +
+            "  if (port || event.source !== null || event.origin || !event.ports || !event.ports.length" +
+            "      || typeof event.data !== 'string' || event.data.indexOf('" + INIT_MESSAGE + "') !== 0) return;" +
+            "  var init;" +
+            "  try { init = JSON.parse(event.data.substring(" + INIT_MESSAGE.length() + ")); } catch (e) { return; }" +
+            "  if (!init || init.nonce !== NONCE) return;" +
+            "  port = event.ports[0];" +
+            "  arrayBuffers = init.arrayBuffers;" +
+            "  credits = init.credits;" +
+            "  port.onmessage = receive;" +
+            "  schedule();" +
+            "});" +
+            "window.CustomWebviewChannel = {" +
+            "  send: function(data) {" +
+            "    if (typeof data !== 'string') {" +
+            "      data = ArrayBuffer.isView(data) ? data.buffer.slice(data.byteOffset, data.byteOffset + data.byteLength) : data;" +
+            "      if (!(data instanceof ArrayBuffer)) throw new TypeError('Expected a string, ArrayBuffer or typed array');" +
+            "    }" +
+            "    queue.push(data);" +
+            "    queuedBytes += typeof data === 'string' ? data.length * 2 : data.byteLength;" +
+            "    schedule();" +
+            "    if (queuedBytes >= HIGH_WATER) full = true;" +
+            "    return !full;" +
+            "  }," +
+            "  onMessage: function(listener) { messageListeners.push(listener); }," +
+            "  onDrain: function(listener) { drainListeners.push(listener); }," +
+            "  get bufferedAmount() { return queuedBytes; }," +
+            "  get connected() { return port !== null; }" +
+            "};" +
+            "})();";
+
+    private static PageMessageChannel current;
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final WebView webView;
+    private final Set<String> allowedOrigins;
+    private final String nonce;
+    private final Listener listener;
+    private WebMessagePortCompat port;
+
+    /**
+     * @param nonce the nonce the page script was built with by {@link #script}
+     */
+    PageMessageChannel(WebView webView, Set<String> allowedOrigins, String nonce, Listener listener) {
+        this.webView = webView;
+        this.allowedOrigins = allowedOrigins;
+        this.nonce = nonce;
+        this.listener = listener;
+        current = this;
+    }
+
+    /** A random nonce for {@link #script}; one per activity, shared by its WebViews. */
+    static String newNonce() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.encodeToString(bytes, Base64.NO_WRAP | Base64.NO_PADDING | Base64.URL_SAFE);
+    }
+
+    /** The page script defining {@code window.CustomWebviewChannel}, accepting only inits carrying {@code nonce}. */
+    static String script(String nonce) {
+        return CHANNEL_SCRIPT.replace("__NONCE__", JSONObject.quote(nonce));
+    }
+
+    static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE);
+    }
+
+    /**
+     * The channel of the open webview, or null.
+     */
+    static PageMessageChannel getCurrent() {
+        return current;
+    }
+
+    /**
+     * Makes this the channel {@link #getCurrent} returns, when its WebView is
+     * shown again. Its page keeps the port it was given.
+     */
+    void makeCurrent() {
+        current = this;
+    }
+
+    /**
+     * Hands a fresh port to the page at {@code url} unless it already has one.
+     * Call once the page's scripts are in place (page commit or page finish);
+     * the page accepts a single port per document.
+     */
+    void connect(String url) {
+        if (url == null || port != null) {
+            return;
+        }
+        Uri uri = Uri.parse(url);
+        if (uri.getScheme() == null || uri.getHost() == null || !ScriptRegistry.isAllowed(allowedOrigins, uri)) {
+            return;
+        }
+        disconnect();
+
+        WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+        port = ports[0];
+        port.setWebMessageCallback(new WebMessagePortCompat.WebMessageCallbackCompat() {
+            @Override
+            public void onMessage(@NonNull WebMessagePortCompat source, @Nullable WebMessageCompat message) {
+                if (source == port && message != null) {
+                    receive(source, message);
+                }
+            }
+        });
+        boolean arrayBuffers = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+        String init = INIT_MESSAGE + "{\"arrayBuffers\":" + arrayBuffers + ",\"credits\":" + CREDITS
+                + ",\"nonce\":" + JSONObject.quote(nonce) + "}";
+        // Targeting the page's own origin means a navigation in between drops the port instead of leaking it.
+        Uri origin = Uri.parse(uri.getScheme() + "://" + uri.getEncodedAuthority());
+        WebViewCompat.postWebMessage(webView, new WebMessageCompat(init, new WebMessagePortCompat[]{ports[1]}), origin);
+    }
+
+    /**
+     * Closes the page's port; called when a new page starts loading.
+     */
+    void disconnect() {
+        if (port != null) {
+            port.close();
+            port = null;
+        }
+    }
+
+    void close() {
+        disconnect();
+        if (current == this) {
+            current = null;
+        }
+    }
+
+    /**
+     * Delivers a text message from the app to the page. Returns false when the
+     * page has no port yet.
+     */
+    boolean post(String message) {
+        if (port == null) {
+            return false;
+        }
+        port.postMessage(new WebMessageCompat("m" + message));
+        return true;
+    }
+
+    private void receive(WebMessagePortCompat source, WebMessageCompat message) {
+        int type = message.getType();
+        byte[] buffer = type == WebMessageCompat.TYPE_ARRAY_BUFFER ? message.getArrayBuffer() : null;
+        String data = type == WebMessageCompat.TYPE_STRING ? message.getData() : null;
+        // Decoding and forwarding happen off the main thread; the credit goes back once done.
+        executor.execute(() -> {
+            try {
+                if (buffer != null) {
+                    listener.onBinary(Base64.encodeToString(buffer, Base64.NO_WRAP));
+                } else if (data != null && data.startsWith("t")) {
+                    JSONArray batch = new JSONArray(data.substring(1));
+                    String[] messages = new String[batch.length()];
+                    for (int i = 0; i < messages.length; i++) {
+                        messages[i] = batch.getString(i);
+                    }
+                    listener.onText(messages);
+                } else if (data != null && data.startsWith("b")) {
+                    listener.onBinary(data.substring(1));
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "Dropping malformed channel message", e);
+            } finally {
+                mainHandler.post(() -> {
+                    if (source == port) {
+                        port.postMessage(new WebMessageCompat("a1"));
+                    }
+                });
+            }
+        });
+    }
+}
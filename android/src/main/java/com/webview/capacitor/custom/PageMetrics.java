@@ -0,0 +1,186 @@
+package com.webview.capacitor.custom;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Per-page performance metrics for one open of the webview, kept as
+ * fixed-bucket {@link Histogram}s so a long session costs the same memory as
+ * a short one.
+ *
+ * <p>{@link #SCRIPT} observes the main frame's largest contentful paint,
+ * layout shifts, long tasks and resource timing, and reports one compact
+ * array per page the first time the page is hidden or unloaded, to the
+ * {@code CustomWebviewMetrics} web message listener, which only accepts
+ * main-frame messages from the allowed origins. A page still open when the
+ * activity closes is collected with {@link #TAKE_SCRIPT} instead; without
+ * web message listener support that is the only page collected. The array
+ * holds the URL followed by the values of {@link #NAMES} in order, -1 when a
+ * value is not available.</p>
+ *
+ * <p>Times are milliseconds from navigation start; {@code cls} is the
+ * largest session window of layout shifts multiplied by 1000.</p>
+ */
+final class PageMetrics {
+
+    static final String[] NAMES = {
+            "ttfb", "domContentLoaded", "load", "lcp", "cls", "longTasks", "totalBlockingTime",
+            "resources", "resourceKb", "slowestResource"
+    };
+
+    private static final long[] TIME_BOUNDS = {
+            50, 100, 200, 300, 500, 750, 1000, 1500, 2000, 2500, 3000, 4000, 5000, 7500, 10000, 20000
+    };
+    private static final long[] CLS_BOUNDS = {0, 10, 25, 50, 100, 150, 250, 400, 600, 1000};
+    private static final long[] COUNT_BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500};
+    private static final long[] KB_BOUNDS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000};
+    private static final long[][] BOUNDS = {
+            TIME_BOUNDS, TIME_BOUNDS, TIME_BOUNDS, TIME_BOUNDS, CLS_BOUNDS, COUNT_BOUNDS, TIME_BOUNDS,
+            COUNT_BOUNDS, KB_BOUNDS, TIME_BOUNDS
+    };
+
+    static final String SCRIPT = "(function() {" +
+            "if (window.top !== window || window.__customWebviewMetrics || !window.PerformanceObserver) return;" +
+            "var lcp = -1, cls = 0, windowValue = 0, windowStart = 0, windowLast = 0;" +
+            "var longTasks = 0, blocking = 0, resources = 0, bytes = 0, slowest = -1, taken = false;" +
+            "function observe(type, handle) {" +
+            "  try {" +
+            "    new PerformanceObserver(function(list) { list.getEntries().forEach(handle); })" +
+            "      .observe({ type: type, buffered: true });" +
+            "    return true;" +
+            "  } catch (e) {" +
+            "    return false;" +
+            "  }" +
+            "}" +
+            "observe('largest-contentful-paint', function(e) { lcp = e.startTime; });" +
+            "var shifts = observe('layout-shift', function(e) {" +
+            "  if (e.hadRecentInput) return;" +
+            "  if (windowValue && (e.startTime - windowLast > 1000 || e.startTime - windowStart > 5000)) windowValue = 0;" +
+            "  if (!windowValue) windowStart = e.startTime;" +
+            "  windowValue += e.value;" +
+            "  windowLast = e.startTime;" +
+            "  if (windowValue > cls) cls = windowValue;" +
+            "});" +
+            "var tasks = observe('longtask', function(e) { longTasks++; blocking += Math.max(0, e.duration - 50); });" +
+            "observe('resource', function(e) {" +
+            "  resources++;" +
+            "  bytes += e.transferSize || 0;" +
+            "  if (e.duration > slowest) slowest = e.duration;" +
+            "});" +
+            "function ms(value) { return value > 0 ? Math.round(value) : -1; }" +
+            "function take() {" +
+            "  if (taken) return null;" +
+            "  taken = true;" +
+            "  var nav = performance.getEntriesByType('navigation')[0] || {};" +
+            "  return [location.href, ms(nav.responseStart), ms(nav.domContentLoadedEventEnd), ms(nav.loadEventEnd)," +
+            "    ms(lcp), shifts ? Math.round(cls * 1000) : -1, tasks ? longTasks : -1, tasks ? Math.round(blocking) : -1, resources," +
+            "    Math.round(bytes / 1024), ms(slowest)];" +
+            "}" +
+            "function report() {" +
+            "  var page = take();" +
+            "  try { if (page && window.CustomWebviewMetrics) window.CustomWebviewMetrics.postMessage(JSON.stringify(page)); } catch (e) {}" +
+            "}" +
+            "document.addEventListener('visibilitychange', function() {" +
+            "  if (document.visibilityState === 'hidden') report();" +
+            "});" +
+            "window.addEventListener('pagehide', report);" +
+            "Object.defineProperty(window, '__customWebviewMetrics', { value: { take: take } });" +
+            "})();";
+
+    /** Evaluates to the current page's array, or null when it was already reported. */
+    static final String TAKE_SCRIPT = "window.__customWebviewMetrics ? window.__customWebviewMetrics.take() : null";
+
+    private static volatile PageMetrics latest;
+
+    private final String url;
+    private final long startedAt = System.currentTimeMillis();
+    private final Histogram[] histograms = new Histogram[NAMES.length];
+    private int pages;
+    private long closedAt;
+
+    private PageMetrics(String url) {
+        this.url = url;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram(BOUNDS[i]);
+        }
+    }
+
+    /** Starts the metrics of a new open; it replaces the one returned by {@link #getLatest}. */
+    static PageMetrics open(String url) {
+        PageMetrics metrics = new PageMetrics(url);
+        latest = metrics;
+        return metrics;
+    }
+
+    /** The metrics of the open or last closed webview, or null when none collected metrics. */
+    static PageMetrics getLatest() {
+        return latest;
+    }
+
+    /**
+     * Adds one page report from {@link #SCRIPT} or {@link #TAKE_SCRIPT}.
+     *
+     * @return the report, or null for a JSON {@code null}
+     */
+    synchronized JSONArray addPage(String report) throws JSONException {
+        if (report == null || "null".equals(report)) {
+            return null;
+        }
+        JSONArray page = new JSONArray(report);
+        if (page.length() != NAMES.length + 1) {
+            throw new JSONException("Expected " + (NAMES.length + 1) + " values");
+        }
+        for (int i = 0; i < NAMES.length; i++) {
+            long value = page.getLong(i + 1);
+            if (value >= 0) {
+                histograms[i].add(value);
+            }
+        }
+        pages++;
+        return page;
+    }
+
+    synchronized void close() {
+        if (closedAt == 0) {
+            closedAt = System.currentTimeMillis();
+        }
+    }
+
+    synchronized JSObject toJson() {
+        JSObject result = new JSObject();
+        result.put("url", url);
+        result.put("startedAt", startedAt);
+        if (closedAt != 0) {
+            result.put("closedAt", closedAt);
+        }
+        result.put("pages", pages);
+        JSObject metrics = new JSObject();
+        for (int i = 0; i < NAMES.length; i++) {
+            Histogram histogram = histograms[i];
+            JSObject metric = new JSObject();
+            metric.put("count", histogram.getCount());
+            if (histogram.getCount() > 0) {
+                metric.put("p50", histogram.percentile(0.5));
+                metric.put("p95", histogram.percentile(0.95));
+                metric.put("max", histogram.getMax());
+                metric.put("mean", histogram.getSum() / histogram.getCount());
+            }
+            JSArray bounds = new JSArray();
+            for (long bound : histogram.getBounds()) {
+                bounds.put(bound);
+            }
+            JSArray counts = new JSArray();
+            for (int count : histogram.getCounts()) {
+                counts.put(count);
+            }
+            metric.put("bounds", bounds);
+            metric.put("counts", counts);
+            metrics.put(NAMES[i], metric);
+        }
+        result.put("metrics", metrics);
+        return result;
+    }
+}
@@ -0,0 +1,251 @@
+package com.webview.capacitor.custom;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads resources before the webview opens and hands them to the
+ * WebView from memory. Each URL is served once, then the WebView's own
+ * cache takes over.
+ */
+final class PrefetchManager implements ComponentCallbacks2 {
+
+    static final int MAX_THREADS = 2;
+    static final int MAX_QUEUED = 32;
+    static final long MAX_ENTRY_BYTES = 2L * 1024 * 1024;
+    static final long MAX_TOTAL_BYTES = 8L * 1024 * 1024;
+    static final long TTL_MS = 5 * 60 * 1000;
+    /** How long a page request waits for an in-flight download before the WebView loads it itself. */
+    static final long TAKE_WAIT_MS = 500;
+
+    private static final String TAG = "PrefetchManager";
+
+    private static PrefetchManager instance;
+
+    private static final class Prefetched {
+        final byte[] body;
+        final String mimeType;
+        final String encoding;
+        final int status;
+        final String reason;
+        final Map<String, String> headers;
+        final long fetchedAt;
+
+        Prefetched(byte[] body, String mimeType, String encoding, int status, String reason, Map<String, String> headers) {
+            this.body = body;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.fetchedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED));
+    private final ConcurrentHashMap<String, FutureTask<Prefetched>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Prefetched> ready = new LinkedHashMap<>(16, 0.75f, true);
+    private long readyBytes;
+
+    private PrefetchManager(Context appContext) {
+        executor.allowCoreThreadTimeOut(true);
+        appContext.registerComponentCallbacks(this);
+    }
+
+    static synchronized PrefetchManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new PrefetchManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Queues the URLs for download. Returns how many were queued; URLs that are
+     * already downloading or ready are merged into the existing download.
+     */
+    int prefetch(String[] urls, Map<String, String> headers, boolean withCookies) {
+        int queued = 0;
+        for (String url : urls) {
+            String key = key(url, withCookies);
+            synchronized (this) {
+                if (isFresh(ready.get(key))) {
+                    continue;
+                }
+            }
+            FutureTask<Prefetched> task = new FutureTask<>(() -> download(url, key, headers, withCookies));
+            if (inFlight.putIfAbsent(key, task) != null) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    task.run();
+                    inFlight.remove(key, task);
+                });
+                queued++;
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, task);
+                Log.w(TAG, "Prefetch queue full, skipping " + Diagnostics.stripUrl(url));
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Returns the response prefetched for the URL with the same cookie mode,
+     * waiting up to {@link #TAKE_WAIT_MS} for an in-flight download of it
+     * instead of starting a second one.
+     */
+    WebResourceResponse take(String url, boolean withCookies) {
+        String key = key(url, withCookies);
+        FutureTask<Prefetched> pending = inFlight.get(key);
+        if (pending != null) {
+            try {
+                pending.get(TAKE_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | TimeoutException | CancellationException e) {
+                return null;
+            }
+        }
+
+        Prefetched prefetched;
+        synchronized (this) {
+            prefetched = ready.remove(key);
+            if (prefetched == null) {
+                return null;
+            }
+            readyBytes -= prefetched.body.length;
+        }
+        if (!isFresh(prefetched)) {
+            return null;
+        }
+        InputStream body = new ByteArrayInputStream(prefetched.body);
+        return new WebResourceResponse(prefetched.mimeType, prefetched.encoding,
+                prefetched.status, prefetched.reason, prefetched.headers, body);
+    }
+
+    synchronized boolean isEmpty() {
+        return ready.isEmpty() && inFlight.isEmpty();
+    }
+
+    void cancelAll() {
+        for (FutureTask<Prefetched> task : inFlight.values()) {
+            task.cancel(true);
+        }
+        inFlight.clear();
+        executor.getQueue().clear();
+        synchronized (this) {
+            ready.clear();
+            readyBytes = 0;
+        }
+    }
+
+    private Prefetched download(String url, String key, Map<String, String> headers, boolean withCookies) throws IOException {
+        HttpURLConnection connection = HttpConnections.open(url, headers, withCookies);
+        try {
+            int status = connection.getResponseCode();
+            // Redirects are not followed: their bodies would be served under the original URL and break relative links.
+            if (status != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            if (withCookies) {
+                HttpConnections.storeCookies(connection, url);
+            }
+            long length = connection.getContentLengthLong();
+            if (length > MAX_ENTRY_BYTES) {
+                return null;
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? (int) length : 16 * 1024);
+            byte[] buffer = new byte[16 * 1024];
+            try (InputStream in = connection.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (Thread.currentThread().isInterrupted() || body.size() + read > MAX_ENTRY_BYTES) {
+                        return null;
+                    }
+                    body.write(buffer, 0, read);
+                }
+            }
+
+            String contentType = connection.getContentType();
+            String reason = connection.getResponseMessage();
+            Prefetched prefetched = new Prefetched(
+                    body.toByteArray(),
+                    HttpConnections.mimeType(contentType),
+                    HttpConnections.charset(contentType),
+                    status,
+                    reason == null || reason.isEmpty() ? "OK" : reason,
+                    HttpConnections.responseHeaders(connection)
+            );
+            store(key, prefetched);
+            return prefetched;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private synchronized void store(String key, Prefetched prefetched) {
+        Prefetched previous = ready.put(key, prefetched);
+        if (previous != null) {
+            readyBytes -= previous.body.length;
+        }
+        readyBytes += prefetched.body.length;
+        Iterator<Prefetched> iterator = ready.values().iterator();
+        while (readyBytes > MAX_TOTAL_BYTES && iterator.hasNext()) {
+            readyBytes -= iterator.next().body.length;
+            iterator.remove();
+        }
+    }
+
+    /** Entries are kept per cookie mode: a response fetched with cookies is never served to a cookieless webview, or the reverse. */
+    private static String key(String url, boolean withCookies) {
+        return (withCookies ? "cookies " : "none ") + url;
+    }
+
+    private static boolean isFresh(Prefetched prefetched) {
+        return prefetched != null && SystemClock.elapsedRealtime() - prefetched.fetchedAt < TTL_MS;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            cancelAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cancelAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
@@ -0,0 +1,278 @@
+package com.webview.capacitor.custom;
+
+import android.net.Uri;
+import android.webkit.WebView;
+
+import androidx.webkit.ScriptHandler;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scripts injected into every page of a CustomWebViewActivity. Scripts are
+ * registered once at document start when the WebView supports it, so they
+ * run before any page script; otherwise they are evaluated on page finish.
+ */
+final class ScriptRegistry {
+
+    static final Set<String> ALL_ORIGINS = Collections.singleton("*");
+
+    // Buffers fetch/XHR entries in the page and hands them over in batches,
+    // once per frame or every 20 entries, so logging costs one bridge call per batch.
+    static final String NETWORK_LOGGER_SCRIPT = "(function() {" +
+            "if (window.__customWebviewNetworkLogger) return;" +
+            "window.__customWebviewNetworkLogger = true;" +
+            "var queue = [];" +
+            "var scheduled = false;" +
+            "var timeOrigin = performance.timeOrigin || (Date.now() - performance.now());" +
+            "function now() { return timeOrigin + performance.now(); }" +
+            "function absolute(url) { try { return new URL(url, location.href).href; } catch (e) { return String(url); } }" +
+            "function size(value) { var n = parseInt(value, 10); return isNaN(n) ? -1 : n; }" +
+            "function flush() {" +
+            "  scheduled = false;" +
+            "  if (!queue.length) return;" +
+            "  var batch = queue;" +
+            "  queue = [];" +
+            "  window.NetworkLogger.logBatch(JSON.stringify(batch));" +
+            "}" +
+            "function record(entry) {" +
+            "  queue.push(entry);" +
+            "  if (queue.length >= 20) { flush(); return; }" +
+            "  if (scheduled) return;" +
+            "  scheduled = true;" +
+            "  if (window.requestAnimationFrame) { requestAnimationFrame(flush); } else { setTimeout(flush, 16); }" +
+            "}" +
+            "var originalFetch = window.fetch;" +
+            "window.fetch = function(input, init) {" +
+            "  var start = now();" +
+            "  var url = absolute(input && input.url ? input.url : input);" +
+            "  var method = (init && init.method) || (input && input.method) || 'GET';" +
+            "  return originalFetch.apply(this, arguments).then(function(response) {" +
+            "    record(['fetch', method, url, response.status, start, now(), size(response.headers.get('content-length')), null]);" +
+            "    return response;" +
+            "  }, function(error) {" +
+            "    record(['fetch', method, url, 0, start, now(), -1, String(error)]);" +
+            "    throw error;" +
+            "  });" +
+            "};" +
+            "var originalXHROpen = XMLHttpRequest.prototype.open;" +
+            "XMLHttpRequest.prototype.open = function(method, url) {" +
+            "  this._method = method;" +
+            "  this._url = absolute(url);" +
+            "  return originalXHROpen.apply(this, arguments);" +
+            "};" +
+            "var originalXHRSend = XMLHttpRequest.prototype.send;" +
+            "XMLHttpRequest.prototype.send = function() {" +
+            "  var xhr = this;" +
+            "  var start = now();" +
+            "  var error = null;" +
+            "  function fail(event) { error = event.type; }" +
+            "  xhr.addEventListener('error', fail);" +
+            "  xhr.addEventListener('timeout', fail);" +
+            "  xhr.addEventListener('abort', fail);" +
+            "  xhr.addEventListener('loadend', function() {" +
+            "    var bytes = size(xhr.getResponseHeader('content-length'));" +
+            "    if (bytes < 0 && (xhr.responseType === '' || xhr.responseType === 'text')) bytes = xhr.responseText.length;" +
+            "    record(['xhr', xhr._method, xhr._url, xhr.status, start, now(), bytes, error]);" +
+            "  });" +
+            "  return originalXHRSend.apply(this, arguments);" +
+            "};" +
+            "window.addEventListener('pagehide', flush);" +
+            "})();";
+
+    private static final class Script {
+        final String source;
+        final Set<String> allowedOrigins;
+
+        Script(String source, Set<String> allowedOrigins) {
+            this.source = source;
+            this.allowedOrigins = allowedOrigins;
+        }
+    }
+
+    private final List<Script> scripts = new ArrayList<>();
+    private final Map<WebView, List<ScriptHandler>> handlers = new HashMap<>();
+    private boolean documentStart = false;
+
+    /**
+     * Adds a script for {@code allowedOrigins}, or every origin when empty.
+     * Rules addDocumentStartJavaScript would reject are dropped and recorded
+     * as an invalid option; a script left without rules is not added.
+     */
+    void add(String source, Set<String> allowedOrigins) {
+        if (allowedOrigins.isEmpty()) {
+            scripts.add(new Script(source, ALL_ORIGINS));
+            return;
+        }
+        Set<String> valid = new HashSet<>();
+        for (String rule : allowedOrigins) {
+            if (isValidOriginRule(rule)) {
+                valid.add(rule);
+            } else {
+                Diagnostics.getInstance().record(Diagnostics.Event.INVALID_OPTION, "allowedOrigins");
+            }
+        }
+        if (!valid.isEmpty()) {
+            scripts.add(new Script(source, valid));
+        }
+    }
+
+    /**
+     * Adds scripts from the {@code scripts} option: a JSON array of
+     * {@code { source, allowedOrigins? }} objects.
+     */
+    void addAll(String json) throws JSONException {
+        JSONArray items = new JSONArray(json);
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            Set<String> origins = new HashSet<>();
+            JSONArray allowed = item.optJSONArray("allowedOrigins");
+            if (allowed != null) {
+                for (int j = 0; j < allowed.length(); j++) {
+                    origins.add(allowed.getString(j));
+                }
+            }
+            add(item.getString("source"), origins);
+        }
+    }
+
+    boolean isEmpty() {
+        return scripts.isEmpty();
+    }
+
+    /**
+     * Registers the scripts as document-start scripts. Returns false when the
+     * WebView does not support it and {@link #injectOnPageFinished} must be used.
+     */
+    boolean install(WebView webView) {
+        if (scripts.isEmpty() || !WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT)) {
+            return false;
+        }
+        List<ScriptHandler> installed = new ArrayList<>();
+        for (Script script : scripts) {
+            try {
+                installed.add(WebViewCompat.addDocumentStartJavaScript(webView, script.source, script.allowedOrigins));
+            } catch (IllegalArgumentException e) {
+                Diagnostics.getInstance().record(Diagnostics.Event.INVALID_OPTION, "allowedOrigins");
+            }
+        }
+        handlers.put(webView, installed);
+        documentStart = true;
+        return true;
+    }
+
+    void uninstall(WebView webView) {
+        List<ScriptHandler> installed = handlers.remove(webView);
+        if (installed != null) {
+            for (ScriptHandler handler : installed) {
+                handler.remove();
+            }
+        }
+    }
+
+    void injectOnPageFinished(WebView webView, String url) {
+        if (documentStart || scripts.isEmpty()) {
+            return;
+        }
+        Uri uri = Uri.parse(url);
+        for (Script script : scripts) {
+            if (isAllowed(script.allowedOrigins, uri)) {
+                webView.evaluateJavascript(script.source, null);
+            }
+        }
+    }
+
+    /**
+     * Whether addDocumentStartJavaScript accepts {@code rule}: {@code "*"},
+     * {@code "scheme://host[:port]"} or {@code "scheme://*.host[:port]"},
+     * without a path or trailing slash.
+     */
+    static boolean isValidOriginRule(String rule) {
+        if ("*".equals(rule)) {
+            return true;
+        }
+        int separator = rule == null ? -1 : rule.indexOf("://");
+        if (separator <= 0) {
+            return false;
+        }
+        for (int i = 0; i < separator; i++) {
+            char c = rule.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '+' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        String host = rule.substring(separator + 3);
+        int colon = host.lastIndexOf(':');
+        if (colon >= 0 && !host.endsWith("]")) {
+            String port = host.substring(colon + 1);
+            if (port.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < port.length(); i++) {
+                if (!Character.isDigit(port.charAt(i))) {
+                    return false;
+                }
+            }
+            host = host.substring(0, colon);
+        }
+        if (host.startsWith("*.")) {
+            host = host.substring(2);
+        }
+        if (host.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || c == '@' || c == '*' || Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Mirrors the origin rules of addDocumentStartJavaScript: "*", "scheme://host[:port]"
+    // and "scheme://*.host[:port]".
+    static boolean isAllowed(Set<String> allowedOrigins, Uri uri) {
+        if (allowedOrigins.contains("*")) {
+            return true;
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.US);
+        for (String rule : allowedOrigins) {
+            Uri ruleUri = Uri.parse(rule);
+            String ruleHost = ruleUri.getHost();
+            if (!scheme.equalsIgnoreCase(ruleUri.getScheme()) || ruleHost == null) {
+                continue;
+            }
+            if (ruleUri.getPort() != uri.getPort()) {
+                continue;
+            }
+            ruleHost = ruleHost.toLowerCase(Locale.US);
+            if (ruleHost.startsWith("*.")) {
+                String suffix = ruleHost.substring(1);
+                if (host.endsWith(suffix)) {
+                    return true;
+                }
+            } else if (host.equals(ruleHost)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
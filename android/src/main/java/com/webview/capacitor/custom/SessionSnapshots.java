@@ -0,0 +1,331 @@
+package com.webview.capacitor.custom;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.webkit.WebViewCompat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists WebView.saveState bundles per session id in app-private storage,
+ * so a closed webview can be reopened with its back/forward list and scroll
+ * position. Snapshots are gzipped, capped in size and count, and only used on
+ * the same OS build and WebView version, because the bundle is a Parcel dump.
+ * Files are read and written on one background thread, in call order.
+ */
+final class SessionSnapshots {
+
+    static final long DEFAULT_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    static final int MAX_SNAPSHOT_BYTES = 512 * 1024;
+    static final int MAX_SNAPSHOTS = 8;
+
+    private static final String TAG = "SessionSnapshots";
+    private static final int FORMAT_VERSION = 1;
+
+    private static SessionSnapshots instance;
+
+    interface Callback {
+        /** Called on the main thread with the snapshot, or null. */
+        void onLoaded(Snapshot snapshot);
+    }
+
+    static final class Snapshot {
+        final String url;
+        final Bundle state;
+
+        Snapshot(String url, Bundle state) {
+            this.url = url;
+            this.state = state;
+        }
+    }
+
+    // A saved snapshot before it is written.
+    private static final class Pending {
+        final long savedAt;
+        final String openUrl;
+        final String url;
+        final byte[] marshalled;
+
+        Pending(long savedAt, String openUrl, String url, byte[] marshalled) {
+            this.savedAt = savedAt;
+            this.openUrl = openUrl;
+            this.url = url;
+            this.marshalled = marshalled;
+        }
+    }
+
+    private final Context context;
+    private final File directory;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Snapshots queued for writing, so a quick reopen does not read a stale file.
+    private final Map<String, Pending> pending = new HashMap<>();
+    private String runtime;
+
+    private SessionSnapshots(Context context, File directory) {
+        this.context = context;
+        this.directory = directory;
+    }
+
+    static synchronized SessionSnapshots getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new SessionSnapshots(app, new File(app.getFilesDir(), "customwebview/snapshots"));
+        }
+        return instance;
+    }
+
+    /**
+     * Saves {@code state} for the session opened with {@code openUrl}. The
+     * bundle is marshalled on the calling thread and written in the background.
+     */
+    void save(String sessionId, String openUrl, String url, Bundle state) {
+        Parcel parcel = Parcel.obtain();
+        byte[] marshalled;
+        try {
+            parcel.writeBundle(state);
+            marshalled = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+        String file = fileName(sessionId);
+        String runtime = runtime();
+        Pending snapshot = new Pending(System.currentTimeMillis(), openUrl, url, marshalled);
+        synchronized (this) {
+            pending.put(file, snapshot);
+        }
+        io.execute(() -> {
+            try {
+                byte[] data = encode(runtime, snapshot);
+                if (data.length > MAX_SNAPSHOT_BYTES) {
+                    Log.w(TAG, "Snapshot for session " + sessionId + " is too large (" + data.length + " bytes), dropped");
+                    delete(file);
+                } else {
+                    write(file, data);
+                    trim();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not encode snapshot for session " + sessionId, e);
+            } finally {
+                synchronized (this) {
+                    if (pending.get(file) == snapshot) {
+                        pending.remove(file);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the session's snapshot in the background, as {@link #load} does,
+     * and delivers it on the main thread.
+     */
+    void loadAsync(String sessionId, String openUrl, long maxAgeMs, Callback callback) {
+        io.execute(() -> {
+            Snapshot snapshot = load(sessionId, openUrl, maxAgeMs);
+            mainHandler.post(() -> callback.onLoaded(snapshot));
+        });
+    }
+
+    /**
+     * Returns the session's snapshot when it was taken from a session opened
+     * with {@code openUrl} no longer than {@code maxAgeMs} ago on this runtime,
+     * or null. Unusable snapshots are deleted. Reads from disk; prefer
+     * {@link #loadAsync} on the main thread.
+     */
+    Snapshot load(String sessionId, String openUrl, long maxAgeMs) {
+        String file = fileName(sessionId);
+        Pending unwritten;
+        synchronized (this) {
+            unwritten = pending.get(file);
+        }
+        try {
+            Snapshot snapshot;
+            if (unwritten != null) {
+                snapshot = usable(unwritten, openUrl, maxAgeMs)
+                        ? new Snapshot(unwritten.url, unmarshall(unwritten.marshalled)) : null;
+            } else {
+                byte[] data = read(new File(directory, file));
+                if (data == null) {
+                    return null;
+                }
+                snapshot = decode(data, openUrl, maxAgeMs);
+            }
+            if (snapshot == null) {
+                delete(file);
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable snapshot for session " + sessionId, e);
+            delete(file);
+            return null;
+        }
+    }
+
+    void clear(String sessionId) {
+        String file = fileName(sessionId);
+        synchronized (this) {
+            pending.remove(file);
+        }
+        io.execute(() -> delete(file));
+    }
+
+    void clearAll() {
+        synchronized (this) {
+            pending.clear();
+        }
+        io.execute(() -> {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    private static byte[] encode(String runtime, Pending snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(snapshot.marshalled.length / 4 + 256);
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(runtime);
+            out.writeLong(snapshot.savedAt);
+            out.writeUTF(snapshot.openUrl);
+            out.writeUTF(snapshot.url);
+            out.writeInt(snapshot.marshalled.length);
+            out.write(snapshot.marshalled);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Snapshot decode(byte[] data, String openUrl, long maxAgeMs) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            if (in.readInt() != FORMAT_VERSION || !runtime().equals(in.readUTF())) {
+                return null;
+            }
+            long savedAt = in.readLong();
+            String savedOpenUrl = in.readUTF();
+            String url = in.readUTF();
+            byte[] marshalled = new byte[in.readInt()];
+            in.readFully(marshalled);
+            Pending snapshot = new Pending(savedAt, savedOpenUrl, url, marshalled);
+            return usable(snapshot, openUrl, maxAgeMs) ? new Snapshot(url, unmarshall(marshalled)) : null;
+        }
+    }
+
+    private static boolean usable(Pending snapshot, String openUrl, long maxAgeMs) {
+        return System.currentTimeMillis() - snapshot.savedAt <= maxAgeMs && snapshot.openUrl.equals(openUrl);
+    }
+
+    private static Bundle unmarshall(byte[] marshalled) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(marshalled, 0, marshalled.length);
+            parcel.setDataPosition(0);
+            Bundle state = parcel.readBundle(SessionSnapshots.class.getClassLoader());
+            if (state == null) {
+                throw new IllegalStateException("Empty snapshot");
+            }
+            return state;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private void write(String file, byte[] data) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create " + directory);
+            return;
+        }
+        File temp = new File(directory, file + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write snapshot", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(new File(directory, file))) {
+            temp.delete();
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        if (file.length() > MAX_SNAPSHOT_BYTES) {
+            throw new IOException("Snapshot exceeds " + MAX_SNAPSHOT_BYTES + " bytes");
+        }
+        byte[] data = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    private void delete(String file) {
+        new File(directory, file).delete();
+    }
+
+    // Keeps the most recently written snapshots.
+    private void trim() {
+        File[] files = directory.listFiles((dir, name) -> !name.endsWith(".tmp"));
+        if (files == null || files.length <= MAX_SNAPSHOTS) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_SNAPSHOTS; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    private synchronized String runtime() {
+        if (runtime == null) {
+            PackageInfo webViewPackage = WebViewCompat.getCurrentWebViewPackage(context);
+            runtime = Build.FINGERPRINT + "|" + (webViewPackage != null
+                    ? webViewPackage.packageName + "/" + webViewPackage.versionName : "unknown");
+        }
+        return runtime;
+    }
+
+    private static String fileName(String sessionId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(sessionId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(sessionId.hashCode());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.webview.capacitor.custom;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import com.getcapacitor.JSObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times one open of CustomWebViewActivity, from the openWebview call to the
+ * first page finish. Synchronous phases are also emitted as android.os.Trace
+ * sections and the whole open as an async section, so they show up in
+ * Perfetto/systrace captures. Must be used on the main thread.
+ */
+final class StartupTrace {
+
+    private static final String SECTION_PREFIX = "CustomWebview.";
+    private static final AtomicInteger nextCookie = new AtomicInteger(1);
+
+    private final long openedAt;
+    private final int cookie = nextCookie.getAndIncrement();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private String phase;
+    private long phaseStart;
+    private boolean finished;
+
+    /**
+     * @param openedAt {@link SystemClock#elapsedRealtimeNanos()} when openWebview was
+     *                 called, or 0 when unknown (the activity was recreated).
+     */
+    StartupTrace(long openedAt) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        this.openedAt = openedAt > 0 && openedAt <= now ? openedAt : now;
+        phases.put("intentDispatch", now - this.openedAt);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(SECTION_PREFIX + "open", cookie);
+        }
+    }
+
+    void begin(String name) {
+        phase = name;
+        phaseStart = SystemClock.elapsedRealtimeNanos();
+        Trace.beginSection(SECTION_PREFIX + name);
+    }
+
+    void end() {
+        Trace.endSection();
+        phases.put(phase, SystemClock.elapsedRealtimeNanos() - phaseStart);
+        phase = null;
+    }
+
+    /**
+     * Records the first time {@code name} happened, relative to the open.
+     */
+    void mark(String name) {
+        if (!finished && !marks.containsKey(name)) {
+            marks.put(name, SystemClock.elapsedRealtimeNanos() - openedAt);
+        }
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Closes the trace and returns the breakdown in milliseconds.
+     */
+    JSObject finish(String url, boolean prewarmed) {
+        finished = true;
+        long total = SystemClock.elapsedRealtimeNanos() - openedAt;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTION_PREFIX + "open", cookie);
+        }
+
+        JSObject phaseTimes = new JSObject();
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            phaseTimes.put(entry.getKey(), millis(entry.getValue()));
+        }
+        JSObject markTimes = new JSObject();
+        for (Map.Entry<String, Long> entry : marks.entrySet()) {
+            markTimes.put(entry.getKey(), millis(entry.getValue()));
+        }
+        JSObject data = new JSObject();
+        data.put("url", url);
+        data.put("prewarmed", prewarmed);
+        data.put("phases", phaseTimes);
+        data.put("marks", markTimes);
+        data.put("totalMs", millis(total));
+        return data;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.webview.capacitor.custom;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.core.content.FileProvider;
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downscales and recompresses JPEG/PNG files picked for upload before they
+ * are handed to the page. Files that are not images, or that would not get
+ * smaller, are passed through untouched.
+ *
+ * <p>Processed files keep the picked file's base name and are written to a
+ * cache directory of their own per processor, deleted by {@link #release}.
+ * Directories left behind by a killed process are deleted when the next
+ * processor is created.</p>
+ */
+final class UploadImageProcessor {
+
+    interface Callback {
+        void onProcessed(Uri[] results, long bytesSaved);
+    }
+
+    static final int DEFAULT_MAX_DIMENSION = 1920;
+    static final int DEFAULT_QUALITY = 80;
+
+    private static final String TAG = "UploadImageProcessor";
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final AtomicInteger nextId = new AtomicInteger();
+    // Directories of processors not yet released; only touched from the worker thread.
+    private static final Set<File> liveDirectories = new HashSet<>();
+
+    private final Context appContext;
+    private final File directory;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final int quality;
+    // Reused across files; only touched from the single worker thread.
+    private final byte[] decodeBuffer = new byte[16 * 1024];
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(512 * 1024);
+
+    UploadImageProcessor(Context context, int maxWidth, int maxHeight, int quality) {
+        this.appContext = context.getApplicationContext();
+        this.maxWidth = maxWidth > 0 ? maxWidth : DEFAULT_MAX_DIMENSION;
+        this.maxHeight = maxHeight > 0 ? maxHeight : DEFAULT_MAX_DIMENSION;
+        this.quality = quality > 0 && quality <= 100 ? quality : DEFAULT_QUALITY;
+        File uploads = new File(appContext.getCacheDir(), "customwebview/uploads");
+        this.directory = new File(uploads, System.currentTimeMillis() + "_" + nextId.incrementAndGet());
+        executor.execute(() -> {
+            liveDirectories.add(directory);
+            File[] existing = uploads.listFiles();
+            if (existing != null) {
+                for (File file : existing) {
+                    if (!liveDirectories.contains(file)) {
+                        delete(file);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the files this processor wrote, once pending work is done.
+     * Call when the page they were handed to is gone.
+     */
+    void release() {
+        executor.execute(() -> {
+            liveDirectories.remove(directory);
+            delete(directory);
+        });
+    }
+
+    static String authority(Context context) {
+        return context.getPackageName() + ".customwebview.fileprovider";
+    }
+
+    /**
+     * Processes the files off the main thread and delivers the results on it.
+     */
+    void process(Uri[] uris, Callback callback) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        executor.execute(() -> {
+            Uri[] results = new Uri[uris.length];
+            long saved = 0;
+            for (int i = 0; i < uris.length; i++) {
+                results[i] = uris[i];
+                try {
+                    long[] savedBytes = {0};
+                    results[i] = processOne(uris[i], i, savedBytes);
+                    saved += savedBytes[0];
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    Log.w(TAG, "Uploading original file: " + uris[i], e);
+                }
+            }
+            long bytesSaved = saved;
+            mainHandler.post(() -> callback.onProcessed(results, bytesSaved));
+        });
+    }
+
+    private Uri processOne(Uri uri, int index, long[] savedBytes) throws IOException {
+        ContentResolver resolver = appContext.getContentResolver();
+        String type = resolver.getType(uri);
+        boolean png = "image/png".equals(type);
+        if (!png && !"image/jpeg".equals(type)) {
+            return uri;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inTempStorage = decodeBuffer;
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return uri;
+        }
+
+        int orientation = ExifInterface.ORIENTATION_NORMAL;
+        if (!png) {
+            try (InputStream in = resolver.openInputStream(uri)) {
+                orientation = new ExifInterface(in)
+                        .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            }
+        }
+        boolean swapped = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+        int width = swapped ? options.outHeight : options.outWidth;
+        int height = swapped ? options.outWidth : options.outHeight;
+        float scale = Math.min(1f, Math.min((float) maxWidth / width, (float) maxHeight / height));
+
+        // Subsample while decoding so the full-size bitmap is never allocated.
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= width * scale && height / (sampleSize * 2) >= height * scale) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            return uri;
+        }
+
+        Matrix matrix = orientationMatrix(orientation);
+        float remaining = scale * sampleSize;
+        if (remaining < 1f) {
+            matrix.postScale(remaining, remaining);
+        }
+        Bitmap output = matrix.isIdentity()
+                ? decoded
+                : Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (output != decoded) {
+            decoded.recycle();
+        }
+
+        encoded.reset();
+        output.compress(png ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, quality, encoded);
+        output.recycle();
+
+        long originalSize = originalSize(resolver, uri);
+        if (originalSize > 0 && encoded.size() >= originalSize) {
+            return uri;
+        }
+
+        directory.mkdirs();
+        File file = DownloadEngine.uniqueFile(directory, baseName(resolver, uri, index) + (png ? ".png" : ".jpg"));
+        try (OutputStream out = new FileOutputStream(file)) {
+            encoded.writeTo(out);
+        }
+        if (originalSize > 0) {
+            savedBytes[0] = originalSize - encoded.size();
+        }
+        return FileProvider.getUriForFile(appContext, authority(appContext), file);
+    }
+
+    // The picked file's name without its extension, as the page would have seen it.
+    private static String baseName(ContentResolver resolver, Uri uri, int index) {
+        String name = null;
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                name = cursor.getString(0);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No display name for " + uri, e);
+        }
+        if (name == null) {
+            name = uri.getLastPathSegment();
+        }
+        if (name != null) {
+            name = name.substring(name.lastIndexOf('/') + 1);
+            int dot = name.lastIndexOf('.');
+            name = dot > 0 ? name.substring(0, dot) : name;
+        }
+        return name == null || name.trim().isEmpty() || name.startsWith(".") ? "upload_" + index : name;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static long originalSize(ContentResolver resolver, Uri uri) {
+        try (AssetFileDescriptor descriptor = resolver.openAssetFileDescriptor(uri, "r")) {
+            return descriptor != null ? descriptor.getLength() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static Matrix orientationMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+        return matrix;
+    }
+}
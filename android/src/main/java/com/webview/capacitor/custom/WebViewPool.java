@@ -0,0 +1,110 @@
+package com.webview.capacitor.custom;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.webkit.CookieManager;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps a few configured WebViews ready so CustomWebViewActivity can skip the
+ * WebView construction cost on open. All methods must be called on the main thread.
+ */
+final class WebViewPool implements ComponentCallbacks2 {
+
+    static final int DEFAULT_SIZE = 1;
+    static final int MAX_SIZE = 3;
+
+    private static WebViewPool instance;
+
+    private final Context appContext;
+    private final ArrayDeque<WebView> idle = new ArrayDeque<>();
+
+    private WebViewPool(Context appContext) {
+        this.appContext = appContext;
+        appContext.registerComponentCallbacks(this);
+    }
+
+    static WebViewPool getInstance(Context context) {
+        if (instance == null) {
+            instance = new WebViewPool(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void applyBaseSettings(WebView webView, Context context) {
+        WebSettings settings = webView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setAllowFileAccess(true);
+        settings.setAllowContentAccess(true);
+        settings.setMediaPlaybackRequiresUserGesture(false);
+        settings.setGeolocationEnabled(true);
+        settings.setGeolocationDatabasePath(context.getFilesDir().getPath());
+    }
+
+    /**
+     * Fills the pool up to {@code count} WebViews (capped at {@link #MAX_SIZE}).
+     * Returns the number of WebViews ready after the call.
+     */
+    int prewarm(int count) {
+        int target = Math.max(0, Math.min(count, MAX_SIZE));
+        while (idle.size() < target) {
+            idle.add(create());
+        }
+        return idle.size();
+    }
+
+    /**
+     * Takes a pooled WebView and rebinds it to the given activity context,
+     * or returns null when the pool is empty.
+     */
+    WebView acquire(Context activityContext) {
+        WebView webView = idle.poll();
+        if (webView == null) {
+            return null;
+        }
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(activityContext);
+        return webView;
+    }
+
+    int size() {
+        return idle.size();
+    }
+
+    void clear() {
+        WebView webView;
+        while ((webView = idle.poll()) != null) {
+            webView.destroy();
+        }
+    }
+
+    private WebView create() {
+        WebView webView = new WebView(new MutableContextWrapper(appContext));
+        applyBaseSettings(webView, appContext);
+        // Touching the CookieManager here loads the cookie store off the open path.
+        CookieManager.getInstance().setAcceptCookie(true);
+        return webView;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.webview.capacitor.custom;
+
+import android.os.Bundle;
+import android.webkit.WebView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Named webview sessions of a CustomWebViewActivity, in least recently used
+ * order. A live session owns a WebView; an evicted session keeps only its
+ * saved state (back/forward list and scroll position) and last URL, so it
+ * can be rebuilt without starting over. All methods must be called on the
+ * main thread.
+ */
+final class WebViewSessions {
+
+    static final String DEFAULT_ID = "default";
+    static final int DEFAULT_MAX_LIVE = 3;
+
+    interface Evictor {
+        /** Saves the session's WebView into {@code session.state} and destroys it. */
+        void evict(Session session);
+    }
+
+    static final class Session {
+        final String id;
+        // The URL the session was opened with; url follows navigation.
+        final String openUrl;
+        WebView webView;
+        // The live page's message channel; it outlives switches so the page keeps its port.
+        PageMessageChannel messageChannel;
+        Bundle state;
+        String url;
+
+        Session(String id, String url) {
+            this.id = id;
+            this.openUrl = url;
+            this.url = url;
+        }
+
+        boolean isLive() {
+            return webView != null;
+        }
+    }
+
+    // Access order: the most recently used session is last.
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(8, 0.75f, true);
+    private final int maxLive;
+
+    WebViewSessions(int maxLive) {
+        this.maxLive = Math.max(1, maxLive);
+    }
+
+    /**
+     * Returns the session and marks it most recently used, or null.
+     */
+    Session use(String id) {
+        return sessions.get(id);
+    }
+
+    Session create(String id, String url) {
+        Session session = new Session(id, url);
+        sessions.put(id, session);
+        return session;
+    }
+
+    Session remove(String id) {
+        return sessions.remove(id);
+    }
+
+    Session find(WebView webView) {
+        for (Session session : sessions.values()) {
+            if (session.webView == webView) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The most recently used session other than {@code except}, or null.
+     */
+    Session mostRecent(Session except) {
+        Session recent = null;
+        for (Session session : sessions.values()) {
+            if (session != except) {
+                recent = session;
+            }
+        }
+        return recent;
+    }
+
+    List<Session> all() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Evicts the least recently used live sessions, never {@code active},
+     * until at most {@code maxLive} WebViews remain. Returns the number evicted.
+     */
+    int trim(Session active, Evictor evictor) {
+        return evictBackground(active, maxLive, evictor);
+    }
+
+    /**
+     * Evicts every live session except {@code active}.
+     */
+    int evictAllBackground(Session active, Evictor evictor) {
+        return evictBackground(active, 1, evictor);
+    }
+
+    private int evictBackground(Session active, int limit, Evictor evictor) {
+        int live = 0;
+        for (Session session : sessions.values()) {
+            if (session.isLive()) {
+                live++;
+            }
+        }
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (live <= limit) {
+                break;
+            }
+            if (session != active && session.isLive()) {
+                evictor.evict(session);
+                live--;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,83 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ContentBlockerTest {
+
+    private static ContentBlocker compile(String... rules) {
+        ContentBlocker.Builder builder = new ContentBlocker.Builder();
+        for (String rule : rules) {
+            builder.add(rule);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void domainRules_blockDomainAndSubdomains() {
+        ContentBlocker blocker = compile("ads.example.com", "tracker.net");
+
+        assertTrue(blocker.matches("ads.example.com", "/"));
+        assertTrue(blocker.matches("eu.ads.example.com", "/pixel.gif"));
+        assertTrue(blocker.matches("TRACKER.net", "/"));
+        assertFalse(blocker.matches("example.com", "/"));
+        assertFalse(blocker.matches("bads.example.com", "/"));
+        assertFalse(blocker.matches("ads.example.com.evil.org", "/"));
+        assertFalse(blocker.matches("nottracker.net", "/"));
+        assertFalse(blocker.matches("", "/"));
+        assertFalse(blocker.matches(null, "/"));
+    }
+
+    @Test
+    public void pathRules_matchPrefixOnDomain() {
+        ContentBlocker blocker = compile("example.com/ads/", "cdn.example.org/js/analytics");
+
+        assertTrue(blocker.matches("example.com", "/ads/banner.js"));
+        assertTrue(blocker.matches("www.example.com", "/ads/"));
+        assertTrue(blocker.matches("cdn.example.org", "/js/analytics.min.js"));
+        assertFalse(blocker.matches("example.com", "/news/ads/"));
+        assertFalse(blocker.matches("example.com", null));
+        assertFalse(blocker.matches("cdn.example.org", "/js/app.js"));
+    }
+
+    @Test
+    public void listFormats_areParsedAndInvalidLinesCounted() {
+        ContentBlocker.Builder builder = new ContentBlocker.Builder();
+        assertTrue(builder.add("# hosts file"));
+        assertTrue(builder.add("0.0.0.0 ads.example.com # comment"));
+        assertTrue(builder.add("127.0.0.1\tpixel.example.net"));
+        assertTrue(builder.add("||metrics.example.io^"));
+        assertTrue(builder.add("! filter list comment"));
+        assertTrue(builder.add("   "));
+        assertFalse(builder.add("10.0.0.1 intranet.example.com"));
+        assertFalse(builder.add("example.com##.ad-banner"));
+        assertFalse(builder.add("/banner/*/img^"));
+        assertFalse(builder.add("exa mple.com"));
+        ContentBlocker blocker = builder.build();
+
+        assertEquals(3, blocker.getRuleCount());
+        assertEquals(4, builder.getInvalidCount());
+        assertTrue(blocker.matches("ads.example.com", "/"));
+        assertTrue(blocker.matches("pixel.example.net", "/"));
+        assertTrue(blocker.matches("a.metrics.example.io", "/"));
+        assertFalse(blocker.matches("intranet.example.com", "/"));
+    }
+
+    @Test
+    public void emptyBlocker_matchesNothing() {
+        ContentBlocker blocker = compile();
+
+        assertEquals(0, blocker.getRuleCount());
+        assertFalse(blocker.matches("example.com", "/"));
+    }
+
+    @Test
+    public void heuristicBytes_dependsOnResourceType() {
+        assertEquals(22 * 1024, ContentBlocker.heuristicBytes("/tag.js", "*/*"));
+        assertEquals(12 * 1024, ContentBlocker.heuristicBytes("/p", "image/avif,image/webp,*/*"));
+        assertEquals(2 * 1024, ContentBlocker.heuristicBytes("/collect", "*/*"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ContentPacksTest {
+
+    @Test
+    public void extract_writesEntriesWithinLimits() throws IOException {
+        File zip = zip(new String[]{"index.html", "js/app.js"}, 1000);
+        File directory = Files.createTempDirectory("pack").toFile();
+
+        ContentPacks.extract(zip, directory, 2000, 1000);
+
+        assertEquals(1000, new File(directory, "index.html").length());
+        assertEquals(1000, new File(directory, "js/app.js").length());
+    }
+
+    @Test
+    public void extract_rejectsOversizedEntry() throws IOException {
+        File zip = zip(new String[]{"big.bin"}, 4096);
+        assertRejected(zip, 1_000_000, 4095, "exceeds 4095 bytes");
+    }
+
+    @Test
+    public void extract_rejectsOversizedTotal() throws IOException {
+        File zip = zip(new String[]{"a.bin", "b.bin", "c.bin"}, 4096);
+        assertRejected(zip, 10_000, 1_000_000, "contents exceed 10000 bytes");
+    }
+
+    @Test
+    public void extract_rejectsEntriesOutsideThePack() throws IOException {
+        File zip = zip(new String[]{"../escape.txt"}, 10);
+        assertRejected(zip, 1_000_000, 1_000_000, "Invalid zip entry");
+    }
+
+    private static void assertRejected(File zip, long maxTotal, long maxEntry, String message) throws IOException {
+        try {
+            ContentPacks.extract(zip, Files.createTempDirectory("pack").toFile(), maxTotal, maxEntry);
+            fail("Expected the zip to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    // Highly compressible entries, as a zip bomb would be.
+    private static File zip(String[] names, int size) throws IOException {
+        File zip = File.createTempFile("pack", ".zip");
+        byte[] body = new String(new char[size]).replace('\0', 'x').getBytes(StandardCharsets.US_ASCII);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(body);
+                out.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
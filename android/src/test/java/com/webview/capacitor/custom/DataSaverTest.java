@@ -0,0 +1,292 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.net.Uri;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs DataSaver against a local HTTP server standing in for an image host.
+ * Native graphics mode gives Robolectric real image decoding and encoding.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class DataSaverTest {
+
+    private static final String IMAGE_ACCEPT = "image/avif,image/webp,image/apng,image/*,*/*;q=0.8";
+
+    private HttpServer server;
+    private byte[] photo;
+    private final AtomicInteger photoRequests = new AtomicInteger();
+    private final AtomicReference<String> saveDataHeader = new AtomicReference<>();
+    private final AtomicReference<String> cookieHeader = new AtomicReference<>();
+    private final AtomicInteger privatePhotoRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        DataSaver.clearCache();
+        photo = noisyJpeg(1600, 1200);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/photo.jpg", exchange -> {
+            photoRequests.incrementAndGet();
+            saveDataHeader.set(exchange.getRequestHeaders().getFirst("Save-Data"));
+            cookieHeader.set(exchange.getRequestHeaders().getFirst("Cookie"));
+            exchange.getResponseHeaders().add("Set-Cookie", "seen=1; Path=/");
+            exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=3600");
+            exchange.sendResponseHeaders(200, photo.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(photo);
+            }
+        });
+        server.createContext("/private.jpg", exchange -> {
+            privatePhotoRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+            exchange.getResponseHeaders().add("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, photo.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(photo);
+            }
+        });
+        server.createContext("/logo.svg", exchange -> {
+            byte[] body = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "image/svg+xml");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void meteredImage_isScaledToViewportAndReencodedAsWebp() throws IOException {
+        int[] reported = {0};
+        long[] reportedSaved = {0};
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, (images, bytesSaved) -> {
+            reported[0] = images;
+            reportedSaved[0] = bytesSaved;
+        });
+
+        WebResourceResponse response = saver.intercept(image("/photo.jpg"), true, 400, null);
+
+        assertNotNull(response);
+        assertEquals("image/webp", response.getMimeType());
+        assertEquals("*", response.getResponseHeaders().get("Access-Control-Allow-Origin"));
+        byte[] body = readAll(response.getData());
+        assertTrue(body.length < photo.length);
+        Bitmap decoded = BitmapFactory.decodeByteArray(body, 0, body.length);
+        assertEquals(400, decoded.getWidth());
+        assertEquals(300, decoded.getHeight());
+        assertEquals("on", saveDataHeader.get());
+        assertEquals(1, reported[0]);
+        assertEquals(photo.length - body.length, reportedSaved[0]);
+        assertEquals(reportedSaved[0], saver.getBytesSaved());
+    }
+
+    @Test
+    public void repeatedImage_isServedFromMemoryCache() throws IOException {
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+
+        byte[] first = readAll(saver.intercept(image("/photo.jpg"), true, 400, null).getData());
+        byte[] second = readAll(saver.intercept(image("/photo.jpg"), true, 400, null).getData());
+
+        assertEquals(1, photoRequests.get());
+        assertEquals(first.length, second.length);
+        // Only the transcode counts as a saving, not the cache hit.
+        assertEquals(1, saver.getImages());
+
+        // Another viewport width is another entry.
+        saver.intercept(image("/photo.jpg"), true, 800, null);
+        assertEquals(2, photoRequests.get());
+    }
+
+    @Test
+    public void noStoreResponse_isTranscodedButNotCached() {
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+
+        assertEquals("image/webp", saver.intercept(image("/private.jpg"), true, 400, null).getMimeType());
+        assertEquals("image/webp", saver.intercept(image("/private.jpg"), true, 400, null).getMimeType());
+
+        assertEquals(2, privatePhotoRequests.get());
+        assertEquals(2, saver.getImages());
+    }
+
+    @Test
+    public void cacheBypassingAndPassedThroughRequests_areLeftToTheWebView() {
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+
+        WebResourceRequest reload = image("/photo.jpg");
+        reload.getRequestHeaders().put("Cache-Control", "no-cache");
+        assertNull(saver.intercept(reload, true, 400, null));
+        assertEquals(0, photoRequests.get());
+
+        // Served as fetched once, then the WebView loads it through its own cache.
+        assertEquals("image/svg+xml", saver.intercept(image("/logo.svg"), true, 400, null).getMimeType());
+        assertNull(saver.intercept(image("/logo.svg"), true, 400, null));
+    }
+
+    @Test
+    public void cookies_areSentAndStoredWithoutEnableCookies() {
+        // enableCookies only controls third-party cookies and DOM storage; the
+        // WebView itself always sends and stores first-party cookies.
+        CookieManager cookies = CookieManager.getInstance();
+        cookies.setCookie(url("/"), "session=abc; Path=/");
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+
+        assertNotNull(saver.intercept(image("/photo.jpg"), true, 400, null));
+
+        assertEquals("session=abc", cookieHeader.get());
+        assertTrue(cookies.getCookie(url("/photo.jpg")).contains("seen=1"));
+    }
+
+    @Test
+    public void unmeteredNetwork_onlyAppliesWithSaveDataOrAlways() {
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+        assertNull(saver.intercept(image("/photo.jpg"), false, 400, null));
+        assertEquals(0, photoRequests.get());
+
+        WebResourceRequest saveData = image("/photo.jpg");
+        saveData.getRequestHeaders().put("save-data", "on");
+        assertTrue(saver.applies(saveData, false));
+        assertTrue(new DataSaver(DataSaver.DEFAULT_QUALITY, true, null).applies(image("/photo.jpg"), false));
+    }
+
+    @Test
+    public void otherRequests_areLeftToTheWebView() throws IOException {
+        DataSaver saver = new DataSaver(DataSaver.DEFAULT_QUALITY, false, null);
+
+        Map<String, String> scriptHeaders = new HashMap<>();
+        scriptHeaders.put("Accept", "*/*");
+        assertNull(saver.intercept(new FakeRequest(url("/photo.jpg"), false, scriptHeaders), true, 400, null));
+        assertNull(saver.intercept(new FakeRequest(url("/photo.jpg"), true, imageHeaders()), true, 400, null));
+
+        // Images that cannot be transcoded are passed through as fetched.
+        WebResourceResponse svg = saver.intercept(image("/logo.svg"), true, 400, null);
+        assertEquals("image/svg+xml", svg.getMimeType());
+        assertTrue(new String(readAll(svg.getData()), StandardCharsets.UTF_8).startsWith("<svg"));
+        assertEquals(0, saver.getImages());
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private WebResourceRequest image(String path) {
+        return new FakeRequest(url(path), false, imageHeaders());
+    }
+
+    private static Map<String, String> imageHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", IMAGE_ACCEPT);
+        return headers;
+    }
+
+    // Noise keeps the JPEG large, like a photo, so re-encoding has something to save.
+    private static byte[] noisyJpeg(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int shade = (x + y) / 12 % 256;
+                row[x] = Color.rgb(shade, (shade + random.nextInt(48)) % 256, 255 - shade);
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static final class FakeRequest implements WebResourceRequest {
+        private final Uri url;
+        private final boolean mainFrame;
+        private final Map<String, String> headers;
+
+        FakeRequest(String url, boolean mainFrame, Map<String, String> headers) {
+            this.url = Uri.parse(url);
+            this.mainFrame = mainFrame;
+            this.headers = headers;
+        }
+
+        @Override
+        public Uri getUrl() {
+            return url;
+        }
+
+        @Override
+        public boolean isForMainFrame() {
+            return mainFrame;
+        }
+
+        @Override
+        public boolean isRedirect() {
+            return false;
+        }
+
+        @Override
+        public boolean hasGesture() {
+            return false;
+        }
+
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public Map<String, String> getRequestHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class DownloadEngineTest {
+
+    @Test
+    public void uniqueFile_numbersTakenNamesBeforeTheExtension() throws IOException {
+        File directory = Files.createTempDirectory("downloads").toFile();
+        assertEquals("report.pdf", DownloadEngine.uniqueFile(directory, "report.pdf").getName());
+
+        new File(directory, "report.pdf").createNewFile();
+        new File(directory, "report (1).pdf").createNewFile();
+        new File(directory, "README").createNewFile();
+        assertEquals("report (2).pdf", DownloadEngine.uniqueFile(directory, "report.pdf").getName());
+        assertEquals("README (1)", DownloadEngine.uniqueFile(directory, "README").getName());
+    }
+
+    @Test
+    public void partName_isStablePerUrlAndFileName() {
+        String name = DownloadEngine.partName("https://example.com/files/report.pdf?token=1", "report.pdf");
+        assertEquals(40, name.length());
+        assertEquals(name, DownloadEngine.partName("https://example.com/files/report.pdf?token=1", "report.pdf"));
+        assertNotEquals(name, DownloadEngine.partName("https://example.com/files/report.pdf?token=2", "report.pdf"));
+        assertNotEquals(name, DownloadEngine.partName("https://example.com/files/report.pdf?token=1", "copy.pdf"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DownloadRulesTest {
+
+    private final DownloadRules defaults = DownloadRules.defaults();
+
+    @Test
+    public void defaults_matchPdfPathAndQueryKeys() {
+        assertTrue(defaults.matchesUrl("https://example.com/files/report.PDF"));
+        assertTrue(defaults.matchesUrl("https://example.com/files/report.pdf/"));
+        assertTrue(defaults.matchesUrl("https://example.com/get?id=4&filename=report.pdf"));
+        assertTrue(defaults.matchesUrl("https://example.com/get?download=Report.Pdf#top"));
+        assertFalse(defaults.matchesUrl("https://example.com/report.pdf.html"));
+        assertFalse(defaults.matchesUrl("https://example.com/get?title=report.pdf"));
+        assertFalse(defaults.matchesUrl("https://example.com/page#file=report.pdf"));
+        assertFalse(defaults.matchesUrl("https://pdf.example.com/"));
+        assertFalse(defaults.matchesUrl(null));
+    }
+
+    @Test
+    public void customRules_matchExtensionsHostsAndPrefixes() {
+        DownloadRules rules = new DownloadRules(
+                new String[]{"xlsx", ".zip", "csv"},
+                new String[]{"file"},
+                null,
+                new String[]{"files.example.com", "*.cdn.example.net"},
+                new String[]{"/export/"}
+        );
+
+        assertTrue(rules.matchesUrl("https://files.example.com/q3.xlsx"));
+        assertTrue(rules.matchesUrl("https://eu.cdn.example.net/archive.ZIP?sig=abc"));
+        assertTrue(rules.matchesUrl("https://user@files.example.com:8443/export/latest"));
+        assertTrue(rules.matchesUrl("https://files.example.com/get?file=data.csv"));
+        assertFalse(rules.matchesUrl("https://other.example.com/q3.xlsx"));
+        assertFalse(rules.matchesUrl("https://cdn.example.net/archive.zip"));
+        assertFalse(rules.matchesUrl("https://files.example.com/report.pdf"));
+        assertFalse(rules.matchesUrl("https://files.example.com/get?filename=data.csv"));
+    }
+
+    @Test
+    public void queryFileName_returnsDecodedMatchingValue() {
+        assertEquals("estado de cuenta.pdf",
+                defaults.queryFileName("https://example.com/get?id=1&file=estado%20de%20cuenta.pdf#x"));
+        assertNull(defaults.queryFileName("https://example.com/files/report.pdf"));
+        assertNull(defaults.queryFileName("https://example.com/get?title=report.pdf"));
+    }
+
+    @Test
+    public void matchesResponse_usesMimeTypeAndContentDisposition() {
+        assertTrue(defaults.matchesResponse("application/PDF; charset=binary", null));
+        assertTrue(defaults.matchesResponse("application/octet-stream", "attachment; filename=\"Report.pdf\""));
+        assertTrue(defaults.matchesResponse(null, "attachment; filename*=UTF-8''informe%20final.pdf"));
+        assertFalse(defaults.matchesResponse("application/pdfx", null));
+        assertFalse(defaults.matchesResponse("text/html", "inline"));
+        assertFalse(defaults.matchesResponse(null, "attachment; filename=\"notes.txt\""));
+    }
+}
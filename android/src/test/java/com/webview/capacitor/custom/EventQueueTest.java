@@ -0,0 +1,117 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventQueueTest {
+
+    private final List<String> delivered = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CountDownLatch expected;
+
+    // Holds the consumer on the first event so the rest pile up behind it.
+    private final EventQueue<String> queue = new EventQueue<>("EventQueueTest", (name, data) -> {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (delivered) {
+            delivered.add(name + ":" + data);
+        }
+        expected.countDown();
+    });
+
+    @Test
+    public void coalescedEvents_keepLatestAndOrder() throws InterruptedException {
+        queue.coalesce("progress", 0).coalesce("url", 0);
+        expected = new CountDownLatch(4);
+
+        queue.post("pageStarted", "a");
+        for (int i = 1; i <= 100; i++) {
+            queue.post("progress", String.valueOf(i));
+        }
+        queue.post("url", "a#1");
+        queue.post("pageStarted", "b");
+        queue.post("url", "b");
+        queue.post("progress", "10");
+        release.countDown();
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("pageStarted:a", "pageStarted:b", "url:b", "progress:10"), delivered);
+    }
+
+    @Test
+    public void coalesceKeys_areIndependent() throws InterruptedException {
+        queue.coalesce("download", 0);
+        expected = new CountDownLatch(3);
+
+        queue.post("first", "x");
+        queue.post("download", "1", "1:10");
+        queue.post("download", "2", "2:10");
+        queue.post("download", "1", "1:20");
+        release.countDown();
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first:x", "download:2:10", "download:1:20"), delivered);
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void limitedEvents_areDroppedBeyondBudget() {
+        queue.limit("httpError", 3);
+        expected = new CountDownLatch(3);
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (queue.post("httpError", String.valueOf(i))) {
+                accepted++;
+            }
+        }
+        release.countDown();
+
+        assertEquals(3, accepted);
+        assertEquals(7, queue.getDroppedCount());
+    }
+
+    @Test
+    public void interval_spacesDeliveriesPerKey() throws InterruptedException {
+        queue.coalesce("progress", 200);
+        release.countDown();
+        expected = new CountDownLatch(2);
+
+        long start = System.nanoTime();
+        queue.post("progress", "1");
+        Thread.sleep(20);
+        queue.post("progress", "2");
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(Arrays.asList("progress:1", "progress:2"), delivered);
+    }
+
+    @Test
+    public void fullQueue_dropsNewEvents() {
+        expected = new CountDownLatch(EventQueue.MAX_QUEUED + 1);
+        queue.post("hold", "");
+        // Wait for the consumer to take the first event and block in the sink.
+        while (queue.size() > 0) {
+            Thread.yield();
+        }
+        for (int i = 0; i < EventQueue.MAX_QUEUED; i++) {
+            assertTrue(queue.post("event", String.valueOf(i)));
+        }
+        assertFalse(queue.post("event", "overflow"));
+        assertEquals(1, queue.getDroppedCount());
+        release.countDown();
+    }
+}
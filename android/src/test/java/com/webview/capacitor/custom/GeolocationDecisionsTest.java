@@ -0,0 +1,68 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class GeolocationDecisionsTest {
+
+    private GeolocationDecisions decisions;
+    private SharedPreferences preferences;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        preferences = context.getSharedPreferences("customwebview_geolocation", Context.MODE_PRIVATE);
+        decisions = new GeolocationDecisions(preferences);
+    }
+
+    @Test
+    public void denial_expiresAfterTtl() {
+        decisions.put("https://example.com", false);
+        assertEquals(Boolean.FALSE, decisions.get("https://example.com"));
+
+        deniedAgo(GeolocationDecisions.DENIAL_TTL_MS - 60_000);
+        assertEquals(Boolean.FALSE, decisions.get("https://example.com"));
+
+        deniedAgo(GeolocationDecisions.DENIAL_TTL_MS + 1000);
+        assertNull(decisions.get("https://example.com"));
+    }
+
+    @Test
+    public void grant_isKeptUntilCleared() {
+        decisions.put("https://example.com", true);
+        assertEquals(Boolean.TRUE, decisions.get("https://example.com"));
+
+        decisions.clear();
+        assertNull(decisions.get("https://example.com"));
+    }
+
+    @Test
+    public void pageUrlAndPromptOrigin_shareOneDecision() {
+        assertEquals("https://example.com", GeolocationDecisions.originOf("HTTPS://Example.com/maps?q=1#here"));
+        assertEquals("https://example.com:8443", GeolocationDecisions.originOf("https://example.com:8443/"));
+        assertNull(GeolocationDecisions.originOf("about:blank"));
+
+        // WebView reports the prompt origin with a trailing slash.
+        decisions.put("https://example.com/", false);
+        assertEquals(Boolean.FALSE, decisions.get(GeolocationDecisions.originOf("https://EXAMPLE.com/maps")));
+        assertNotEquals(Boolean.FALSE, decisions.get(GeolocationDecisions.originOf("https://example.com:8443/maps")));
+    }
+
+    private void deniedAgo(long ms) {
+        preferences.edit().putString("https://example.com", Long.toString(System.currentTimeMillis() - ms)).commit();
+    }
+}
@@ -0,0 +1,59 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void add_countsBoundsInclusiveWithOverflowBucket() {
+        Histogram histogram = new Histogram(100, 500, 1000);
+        histogram.add(0);
+        histogram.add(100);
+        histogram.add(101);
+        histogram.add(1000);
+        histogram.add(25_000);
+
+        assertArrayEquals(new int[]{2, 1, 1, 1}, histogram.getCounts());
+        assertEquals(5, histogram.getCount());
+        assertEquals(26_201, histogram.getSum());
+        assertEquals(25_000, histogram.getMax());
+    }
+
+    @Test
+    public void percentile_returnsBucketBoundCappedAtMax() {
+        Histogram histogram = new Histogram(100, 500, 1000);
+        for (int i = 0; i < 90; i++) {
+            histogram.add(80);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.add(700);
+        }
+
+        assertEquals(100, histogram.percentile(0.5));
+        assertEquals(100, histogram.percentile(0.9));
+        assertEquals(700, histogram.percentile(0.95));
+
+        Histogram single = new Histogram(100, 500);
+        single.add(80);
+        assertEquals(80, single.percentile(0.5));
+    }
+
+    @Test
+    public void percentile_ofOverflowBucketIsMax() {
+        Histogram histogram = new Histogram(10, 20);
+        histogram.add(5);
+        histogram.add(300);
+
+        assertEquals(300, histogram.percentile(0.95));
+        assertEquals(10, histogram.percentile(0));
+        assertEquals(-1, new Histogram(10).percentile(0.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsUnorderedBounds() {
+        new Histogram(10, 10);
+    }
+}
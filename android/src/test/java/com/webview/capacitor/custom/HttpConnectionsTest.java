@@ -0,0 +1,46 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HttpConnectionsTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void isStorable_rejectsNoStoreAndPrivate() {
+        assertTrue(HttpConnections.isStorable(null));
+        assertTrue(HttpConnections.isStorable("public, max-age=60"));
+        assertFalse(HttpConnections.isStorable("no-store"));
+        assertFalse(HttpConnections.isStorable("max-age=60, PRIVATE"));
+    }
+
+    @Test
+    public void bypassesCache_matchesReloadRequests() {
+        assertFalse(HttpConnections.bypassesCache(null, null));
+        assertFalse(HttpConnections.bypassesCache("max-age=0", null));
+        assertTrue(HttpConnections.bypassesCache("no-cache", null));
+        assertTrue(HttpConnections.bypassesCache("max-age=0, No-Store", null));
+        assertTrue(HttpConnections.bypassesCache(null, "no-cache"));
+    }
+
+    @Test
+    public void freshnessMs_prefersMaxAgeOverExpires() {
+        assertEquals(60_000, HttpConnections.freshnessMs("public, max-age=60", NOW, NOW + 3_600_000, 0, NOW));
+        assertEquals(0, HttpConnections.freshnessMs("no-cache, max-age=60", NOW, 0, 0, NOW));
+        assertEquals(0, HttpConnections.freshnessMs("max-age=soon", NOW, 0, 0, NOW));
+    }
+
+    @Test
+    public void freshnessMs_fallsBackToExpiresThenLastModified() {
+        assertEquals(3_600_000, HttpConnections.freshnessMs(null, NOW, NOW + 3_600_000, 0, NOW + 5));
+        assertEquals(0, HttpConnections.freshnessMs(null, NOW, NOW - 1000, 0, NOW));
+        assertEquals(360_000, HttpConnections.freshnessMs(null, NOW, 0, NOW - 3_600_000, NOW));
+        assertEquals(HttpConnections.HEURISTIC_FRESHNESS_MAX_MS,
+                HttpConnections.freshnessMs(null, NOW, 0, NOW - 365L * 24 * 3_600_000, NOW));
+        assertEquals(0, HttpConnections.freshnessMs(null, 0, 0, 0, NOW));
+    }
+}
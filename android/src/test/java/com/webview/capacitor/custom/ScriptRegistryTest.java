@@ -0,0 +1,39 @@
+package com.webview.capacitor.custom;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class ScriptRegistryTest {
+
+    @Test
+    public void isValidOriginRule_acceptsWhatDocumentStartScriptsAccept() {
+        assertTrue(ScriptRegistry.isValidOriginRule("*"));
+        assertTrue(ScriptRegistry.isValidOriginRule("https://example.com"));
+        assertTrue(ScriptRegistry.isValidOriginRule("https://*.example.com"));
+        assertTrue(ScriptRegistry.isValidOriginRule("http://10.0.2.2:8080"));
+        assertTrue(ScriptRegistry.isValidOriginRule("http://[::1]"));
+    }
+
+    @Test
+    public void isValidOriginRule_rejectsHostsPathsAndTrailingSlashes() {
+        assertFalse(ScriptRegistry.isValidOriginRule(null));
+        assertFalse(ScriptRegistry.isValidOriginRule("example.com"));
+        assertFalse(ScriptRegistry.isValidOriginRule("https://a.com/path"));
+        assertFalse(ScriptRegistry.isValidOriginRule("https://example.com/"));
+        assertFalse(ScriptRegistry.isValidOriginRule("https://"));
+        assertFalse(ScriptRegistry.isValidOriginRule("https://example.com:"));
+        assertFalse(ScriptRegistry.isValidOriginRule("https://ex*ample.com"));
+        assertFalse(ScriptRegistry.isValidOriginRule("://example.com"));
+    }
+
+    @Test
+    public void add_keepsScriptsWithValidRules() {
+        ScriptRegistry registry = new ScriptRegistry();
+        registry.add("void 0;", Collections.singleton("https://example.com"));
+        assertFalse(registry.isEmpty());
+    }
+}
@@ -10,7 +10,25 @@ public class CustomWebviewPlugin: CAPPlugin, CAPBridgedPlugin {
     public let identifier = "CustomWebviewPlugin"
     public let jsName = "CustomWebview"
     public let pluginMethods: [CAPPluginMethod] = [
-        CAPPluginMethod(name: "openWebview", returnType: CAPPluginReturnPromise)
+        CAPPluginMethod(name: "openWebview", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "prewarm", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "getNetworkLog", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "getAssetCacheStats", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "prefetch", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "setCookies", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "postChannelMessage", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "switchSession", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "closeSession", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "getSessions", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "clearSessionSnapshots", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "loadContentBlockingRules", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "installContentPack", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "removeContentPack", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "clearGeolocationDecisions", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "configureDiagnostics", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "getDiagnostics", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "getPageMetrics", returnType: CAPPluginReturnPromise),
+        CAPPluginMethod(name: "prepare", returnType: CAPPluginReturnPromise)
     ]
     private let implementation = CustomWebview()
 
@@ -51,4 +69,78 @@ public class CustomWebviewPlugin: CAPPlugin, CAPBridgedPlugin {
             }
         }
     }
+
+    @objc func prewarm(_ call: CAPPluginCall) {
+        // WKWebView has no equivalent warm-up benefit; nothing is pooled on iOS.
+        call.resolve(["pooled": 0])
+    }
+
+    @objc func getNetworkLog(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func getAssetCacheStats(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func prefetch(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func setCookies(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func postChannelMessage(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func switchSession(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func closeSession(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func getSessions(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func clearSessionSnapshots(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func loadContentBlockingRules(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func installContentPack(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func removeContentPack(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func clearGeolocationDecisions(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func configureDiagnostics(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func getDiagnostics(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func getPageMetrics(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+
+    @objc func prepare(_ call: CAPPluginCall) {
+        // Custom Tabs are Android-only; openWebview keeps using the webview on iOS.
+        call.resolve(["supported": false])
+    }
 }
@@ -1,7 +1,17 @@
 import type { PluginListenerHandle } from '@capacitor/core';
 
 export interface OpenWebviewOptions {
+  /**
+   * URL to load. With `contentPack`, a path inside the pack
+   * (defaults to `index.html`).
+   */
   url: string;
+  /**
+   * Enable WebView remote debugging and verbose diagnostics: while this
+   * webview is open, every diagnostics event is recorded and mirrored to
+   * logcat (Android), regardless of `configureDiagnostics()` levels.
+   * @default false
+   */
   debug?: boolean;
   /**
    * Enable persistent cookies and session storage (localStorage/sessionStorage).
@@ -17,6 +27,634 @@ export interface OpenWebviewOptions {
    * @default false
    */
   fullscreen?: boolean;
+  /**
+   * Record fetch/XHR timings from the page into a bounded native buffer,
+   * readable with `getNetworkLog()`. Independent of `debug`, so it can be
+   * used in production builds (Android).
+   * @default false
+   */
+  captureNetwork?: boolean;
+  /**
+   * Scripts injected into every page. On Android they run at document start
+   * (before page scripts) when the system WebView supports it, and after
+   * the page finishes loading otherwise.
+   */
+  scripts?: PageScript[];
+  /**
+   * Serve matching static sub-resources from a native disk cache that
+   * persists across opens (Android). Omit to disable.
+   */
+  assetCache?: AssetCacheOptions;
+  /**
+   * How Android downloads files. `system` hands them to the system Download
+   * Manager (saved to the public Downloads folder). `parallel` downloads large
+   * files over parallel range requests, also into the public Downloads folder,
+   * resumes after network loss, and emits `downloadProgress` and
+   * `downloadComplete`.
+   * @default 'system'
+   */
+  downloadEngine?: 'system' | 'parallel';
+  /**
+   * Downscale and recompress JPEG/PNG files picked for upload before the page
+   * receives them (Android). Omit to upload the original files.
+   */
+  uploadImages?: UploadImageOptions;
+  /**
+   * Which links are sent to the downloader instead of being opened (Android).
+   * Defaults to PDF files.
+   */
+  downloadRules?: DownloadRulesOptions;
+  /**
+   * Extra request headers for the initial page load only (Android).
+   */
+  headers?: Record<string, string>;
+  /**
+   * Extra request headers per origin (`https://api.example.com`), added to the
+   * initial load and to sub-resource GET requests to that origin (Android).
+   * Those sub-resources are fetched natively so the headers can be added.
+   */
+  originHeaders?: Record<string, Record<string, string>>;
+  /**
+   * Expose `window.CustomWebviewChannel` to the page, a message channel to the
+   * app built on a WebMessagePort (Android). Page messages arrive as
+   * `channelMessage` / `channelBinary` events; `postChannelMessage()` replies.
+   * Omit to disable.
+   */
+  messageChannel?: MessageChannelOptions;
+  /**
+   * Name of the first session (Android). More sessions are opened with
+   * `switchSession()`; they share every other option. Defaults to `default`.
+   * When a webview is already open, an open with a `sessionId` switches it to
+   * that session (creating it with `url`) instead of opening a second webview;
+   * the other options of that call are then ignored.
+   */
+  sessionId?: string;
+  /**
+   * Sessions kept alive with their own WebView (Android). The least recently
+   * used ones beyond that are saved and destroyed, then restored with their
+   * history when switched to. Defaults to 3.
+   */
+  maxLiveSessions?: number;
+  /**
+   * Save each session's history and scroll position to app storage when the
+   * webview closes, and restore it on the next open of the same `sessionId`
+   * and `url` instead of loading `url` (Android). Omit to disable.
+   */
+  sessionSnapshot?: SessionSnapshotOptions;
+  /**
+   * Block sub-resources matching the rules loaded with
+   * `loadContentBlockingRules()` (Android). Blocked requests get an empty
+   * response and are reported as `contentBlocked`.
+   */
+  contentBlocking?: boolean;
+  /**
+   * Name of a pack installed with `installContentPack()` to open offline
+   * (Android). `url` is then a path inside the pack.
+   */
+  contentPack?: string;
+  /**
+   * Start a native location request while the page loads, and answer the
+   * page's `getCurrentPosition` calls from it when the page's origin was
+   * granted geolocation before (Android). Reported as `geolocationServed`.
+   */
+  geolocationWarmup?: boolean;
+  /**
+   * Collect navigation timing, largest contentful paint, layout shift, long
+   * task and resource metrics of every page, summarized as `pageMetrics` when
+   * the webview closes (Android). `true` collects pages of the origin of
+   * `url` only; pass `allowedOrigins` for others.
+   */
+  pageMetrics?: boolean | PageMetricsOptions;
+  /**
+   * On metered networks, fetch JPEG/PNG images natively, scale them down to
+   * the viewport width and serve them as WebP (Android). Reported as
+   * `dataSaved`.
+   */
+  dataSaver?: DataSaverOptions;
+  /**
+   * `customTabs` opens `url` in a Custom Tab of the user's browser instead
+   * of the webview activity (Android), for plain links that need no uploads,
+   * downloads, geolocation or other options of this plugin. Falls back to the
+   * webview when no browser supports Custom Tabs or `url` is not http(s).
+   * @default 'webview'
+   */
+  mode?: 'webview' | 'customTabs';
+}
+
+export interface DataSaverOptions {
+  /**
+   * WebP quality, 1-100.
+   * @default 60
+   */
+  quality?: number;
+  /** Also transcode on unmetered networks. */
+  always?: boolean;
+}
+
+export interface SessionSnapshotOptions {
+  /** Older snapshots are ignored. Defaults to 168 (7 days). */
+  maxAgeHours?: number;
+}
+
+export interface MessageChannelOptions {
+  /**
+   * Origins the channel is offered to (`https://example.com` or
+   * `https://*.example.com`). Defaults to the origin of `url`.
+   */
+  allowedOrigins?: string[];
+}
+
+export interface PageMetricsOptions {
+  /**
+   * Origins whose main-frame pages are measured (`https://example.com`,
+   * `https://*.example.com` or `*`). Defaults to the origin of `url`.
+   */
+  allowedOrigins?: string[];
+}
+
+export interface DownloadRulesOptions {
+  /**
+   * File extensions matched against the last path segment and the values of `queryKeys`.
+   * @default ['pdf']
+   */
+  extensions?: string[];
+  /**
+   * Query parameters whose value is treated as a file name.
+   * @default ['filename', 'file', 'name', 'download']
+   */
+  queryKeys?: string[];
+  /**
+   * `Content-Type` values that mark a response as a download.
+   * @default ['application/pdf']
+   */
+  mimeTypes?: string[];
+  /**
+   * Only match links on these hosts (`files.example.com` or `*.example.com`). All hosts when omitted.
+   */
+  hosts?: string[];
+  /**
+   * Links whose path starts with one of these prefixes (e.g. `/export/`) are always downloaded.
+   */
+  pathPrefixes?: string[];
+}
+
+export interface UploadImageOptions {
+  /** @default 1920 */
+  maxWidth?: number;
+  /** @default 1920 */
+  maxHeight?: number;
+  /**
+   * JPEG quality from 1 to 100 (PNG stays lossless).
+   * @default 80
+   */
+  quality?: number;
+}
+
+export interface AssetCacheOptions {
+  /**
+   * Regular expressions matched against sub-resource URLs.
+   * @default ['\\.(js|mjs|css|woff2?|ttf|otf)(\\?.*)?$']
+   */
+  patterns?: string[];
+  /**
+   * Maximum disk size; least recently used entries are evicted first.
+   * @default 50
+   */
+  maxSizeMb?: number;
+}
+
+export interface AssetCacheStats {
+  /** Requests served from disk without network I/O. */
+  hits: number;
+  /** Cacheable requests fetched from the network and written to disk. */
+  misses: number;
+  entries: number;
+  sizeBytes: number;
+}
+
+export interface PageScript {
+  /** JavaScript source to run. */
+  source: string;
+  /**
+   * Origins the script runs on, e.g. `https://example.com` or
+   * `https://*.example.com`. Runs on every origin when omitted.
+   */
+  allowedOrigins?: string[];
+}
+
+export interface PrewarmOptions {
+  /**
+   * Number of WebViews to keep ready (Android caps this at 3).
+   * @default 1
+   */
+  count?: number;
+}
+
+export interface PrewarmResult {
+  /** WebViews ready in the pool after the call. Always `0` on iOS. */
+  pooled: number;
+}
+
+export interface GetNetworkLogOptions {
+  /**
+   * `entries` returns the raw buffer; `har` returns a HAR 1.2 document.
+   * @default 'entries'
+   */
+  format?: 'entries' | 'har';
+  /**
+   * Empty the buffer after reading it.
+   * @default false
+   */
+  clear?: boolean;
+}
+
+export interface NetworkLogEntry {
+  type: 'fetch' | 'xhr';
+  method: string;
+  url: string;
+  /** HTTP status, or `0` when the request failed. */
+  status: number;
+  /** Epoch milliseconds. */
+  startTime: number;
+  /** Epoch milliseconds. */
+  endTime: number;
+  duration: number;
+  /** Response size from `Content-Length` (or text length for XHR), `-1` when unknown. */
+  bytes: number;
+  error?: string;
+}
+
+export interface GetNetworkLogResult {
+  entries?: NetworkLogEntry[];
+  har?: Record<string, unknown>;
+}
+
+export interface PrefetchOptions {
+  /** Absolute URLs to download ahead of `openWebview`. */
+  urls: string[];
+  /** Extra request headers sent with every prefetch. */
+  headers?: Record<string, string>;
+  /**
+   * Send and store cookies through the shared cookie jar. Responses are only
+   * served to a webview opened with the same `enableCookies` value.
+   * @default false
+   */
+  enableCookies?: boolean;
+}
+
+export interface PrefetchResult {
+  /** URLs queued for download; URLs already downloading or ready are not counted. */
+  queued: number;
+}
+
+export interface CookieEntry {
+  /** URL the cookie applies to. */
+  url: string;
+  /** A `Set-Cookie` header value, e.g. `session=abc; Path=/; Secure`. */
+  value: string;
+}
+
+export interface SetCookiesOptions {
+  cookies: CookieEntry[];
+}
+
+export interface SetCookiesResult {
+  /** Cookies written. */
+  count: number;
+}
+
+export interface PostChannelMessageOptions {
+  /** Delivered to the page's `CustomWebviewChannel.onMessage` listeners. */
+  data: string;
+}
+
+export interface SwitchSessionOptions {
+  sessionId: string;
+  /** Loaded when the session does not exist yet. Required in that case. */
+  url?: string;
+}
+
+export interface CloseSessionOptions {
+  sessionId: string;
+}
+
+export interface ClearSessionSnapshotsOptions {
+  /** Omit to clear every snapshot. */
+  sessionId?: string;
+}
+
+export interface SessionInfo {
+  id: string;
+  /** Last committed URL. */
+  url: string;
+  /** False when the WebView was evicted and only its saved state is kept. */
+  live: boolean;
+  /** True for the session on screen. */
+  active: boolean;
+}
+
+export interface GetSessionsResult {
+  /** Least recently used first. */
+  sessions: SessionInfo[];
+}
+
+export interface ChannelMessageEvent {
+  /** Text messages sent by the page, in order. Batched per page task. */
+  messages: string[];
+}
+
+export interface ChannelBinaryEvent {
+  /** An ArrayBuffer or typed array sent by the page, base64 encoded. */
+  data: string;
+}
+
+export interface DownloadProgressEvent {
+  id: number;
+  url: string;
+  fileName: string;
+  bytesDownloaded: number;
+  /** `-1` when the server does not report a size. */
+  totalBytes: number;
+}
+
+export interface DownloadCompleteEvent {
+  id: number;
+  url: string;
+  fileName: string;
+  success: boolean;
+  /**
+   * Where the file was saved when `success` is `true`: a `content://` URI in
+   * the Downloads collection on Android 10+, an absolute path below that.
+   */
+  path?: string;
+  error?: string;
+}
+
+export interface UploadProcessedEvent {
+  /** Number of files handed to the page. */
+  files: number;
+  /** Bytes saved compared with the original files. */
+  bytesSaved: number;
+}
+
+export interface PageStartedEvent {
+  url: string;
+}
+
+export interface PageProgressEvent {
+  /** Load progress from 0 to 100. */
+  progress: number;
+}
+
+export interface TitleChangedEvent {
+  title: string;
+}
+
+export interface UrlChangedEvent {
+  /** Includes same-document changes such as `pushState` and fragment changes. */
+  url: string;
+}
+
+export interface HttpErrorEvent {
+  url: string;
+  statusCode: number;
+  reason: string;
+  isMainFrame: boolean;
+}
+
+export interface DownloadStartedEvent {
+  url: string;
+  fileName: string;
+  mimeType?: string;
+}
+
+export interface LoadContentBlockingRulesOptions {
+  /**
+   * Rules: `ads.example.com` (domain and subdomains), `example.com/ads/`
+   * (path prefix), hosts-file lines or `||domain^`.
+   */
+  rules?: string[];
+  /** A rule list in the app's assets, one rule per line, e.g. `public/blocklist.txt`. */
+  assetPath?: string;
+}
+
+export interface LoadContentBlockingRulesResult {
+  /** Rules compiled. */
+  rules: number;
+  /** Lines that were not valid rules. */
+  invalid: number;
+  loadMs: number;
+}
+
+export interface InstallContentPackOptions {
+  /** Letters, digits, `.`, `_` or `-`. Installing an existing name replaces it. */
+  name: string;
+  /** A directory in the app's assets, e.g. `public/help`. */
+  assetPath?: string;
+  /** A zip file in app storage (path or `file://` URI), extracted into the pack. */
+  zipPath?: string;
+  /** Version of a zip pack, part of its URLs. Defaults to the install time. */
+  version?: string;
+}
+
+export interface InstallContentPackResult {
+  /** URL of the pack's `index.html`. */
+  url: string;
+}
+
+export interface RemoveContentPackOptions {
+  name: string;
+}
+
+export interface RemoveContentPackResult {
+  removed: boolean;
+}
+
+export type DiagnosticsCategory =
+  | 'lifecycle'
+  | 'navigation'
+  | 'network'
+  | 'files'
+  | 'session'
+  | 'geolocation'
+  | 'plugin';
+
+export type DiagnosticsLevel = 'off' | 'error' | 'warn' | 'info' | 'debug';
+
+export interface ConfigureDiagnosticsOptions {
+  /**
+   * Level per category; `all` sets every category not named explicitly.
+   * Categories default to `info`.
+   */
+  levels?: Partial<Record<DiagnosticsCategory | 'all', DiagnosticsLevel>>;
+  /** Mirror recorded events to logcat. Warnings and errors always are. */
+  logcat?: boolean;
+}
+
+export interface ConfigureDiagnosticsResult {
+  levels: Record<DiagnosticsCategory, DiagnosticsLevel>;
+  logcat: boolean;
+}
+
+export interface GetDiagnosticsOptions {
+  /**
+   * Number of most recent events to return (at most 1024).
+   * @default 1024
+   */
+  limit?: number;
+  /** Empty the buffer after reading. */
+  clear?: boolean;
+}
+
+export interface DiagnosticsEvent {
+  /** Increasing event number since app start; gaps are events overwritten or cleared. */
+  sequence: number;
+  /** Epoch milliseconds. */
+  time: number;
+  category: DiagnosticsCategory;
+  level: Exclude<DiagnosticsLevel, 'off'>;
+  /** Event code, e.g. `pageFinished`, `downloadQueued`, `rendererGone`. */
+  event: string;
+  /**
+   * Event-specific fields, e.g. `url`, `status`, `fileName`. `url` holds
+   * scheme, host and path only.
+   */
+  [field: string]: string | number;
+}
+
+export interface GetDiagnosticsResult {
+  /** Oldest first. */
+  events: DiagnosticsEvent[];
+  /** Events recorded since app start, including overwritten ones. */
+  recorded: number;
+}
+
+export type PageMetricName =
+  | 'ttfb'
+  | 'domContentLoaded'
+  | 'load'
+  | 'lcp'
+  | 'cls'
+  | 'longTasks'
+  | 'totalBlockingTime'
+  | 'resources'
+  | 'resourceKb'
+  | 'slowestResource';
+
+export interface PageMetricHistogram {
+  /** Pages that reported the metric. */
+  count: number;
+  /** Estimates from the buckets, capped at `max`. Absent when `count` is 0. */
+  p50?: number;
+  p95?: number;
+  max?: number;
+  mean?: number;
+  /** Upper bounds of the buckets, inclusive. Fixed per metric, so counts can be added up across summaries. */
+  bounds: number[];
+  /** Pages per bucket; the last entry counts values above the last bound. */
+  counts: number[];
+}
+
+export interface PageMetricsSummary {
+  /** URL the webview was opened with. */
+  url: string;
+  /** Epoch milliseconds. */
+  startedAt: number;
+  /** Epoch milliseconds; absent while the webview is open. */
+  closedAt?: number;
+  /** Pages that reported metrics. */
+  pages: number;
+  /**
+   * One histogram per metric. Times are milliseconds from navigation start;
+   * `cls` is the cumulative layout shift multiplied by 1000.
+   */
+  metrics: Record<PageMetricName, PageMetricHistogram>;
+}
+
+export interface GetPageMetricsResult {
+  /** Summary of the open webview, or else of the last one opened with `pageMetrics`. */
+  summary?: PageMetricsSummary;
+}
+
+export interface PrepareOptions {
+  /** Link likely to be opened next with `mode: 'customTabs'`. */
+  url?: string;
+}
+
+export interface PrepareResult {
+  /** Whether a browser supporting Custom Tabs is installed. */
+  supported: boolean;
+  /** Package of that browser. */
+  provider?: string;
+}
+
+export interface DataSavedEvent {
+  /** Images transcoded during this open; memory cache hits are not counted again. */
+  images: number;
+  /** Bytes those images are smaller than the originals. */
+  bytesSaved: number;
+}
+
+export interface GeolocationServedEvent {
+  /** `getCurrentPosition` calls answered from the warm fix during this open. */
+  fromWarmFix: number;
+  /** Calls passed on to the WebView's own geolocation. */
+  fallbacks: number;
+}
+
+export interface ContentBlockedEvent {
+  /** Page the blocked requests belong to. */
+  url: string;
+  /** Requests blocked on that page so far. */
+  blocked: number;
+  /**
+   * A rough heuristic, not a measurement: a fixed size per resource type
+   * (script, image, document, style, other) summed over the blocked
+   * requests. Use it for a ballpark figure only.
+   */
+  heuristicBytesSaved: number;
+}
+
+export interface WebviewTimingEvent {
+  /** URL of the first page that finished loading. */
+  url: string;
+  /** Whether the WebView came from the `prewarm()` pool. */
+  prewarmed: boolean;
+  /**
+   * Duration in ms of each startup phase: `intentDispatch`, `setContentView`,
+   * `createWebView`, `configureWebView`, `ensureLocationPermission`, `loadUrl`.
+   */
+  phases: Record<string, number>;
+  /** Time in ms from the `openWebview` call to `pageStarted`, `pageCommitVisible` and `pageFinished`. */
+  marks: Record<string, number>;
+  /** Time in ms from the `openWebview` call to the first page finish. */
+  totalMs: number;
+}
+
+export interface RenderProcessGoneEvent {
+  /** `false` when the system killed the renderer to reclaim memory. */
+  didCrash: boolean;
+  /**
+   * Whether the webview was rebuilt and reloaded. It gives up and closes after
+   * 3 renderer losses within a minute.
+   */
+  recovered: boolean;
+  /** Last committed URL, reloaded in the new WebView. */
+  url?: string;
+}
+
+export interface MemoryPressureEvent {
+  /** The `ComponentCallbacks2.TRIM_MEMORY_*` level reported by Android. */
+  level: number;
+  /** Whether the webview was in the background. */
+  background: boolean;
+  /**
+   * What was released: `sessions` (WebViews of background sessions, rebuilt
+   * when switched to), `caches` (in-memory WebView and asset caches), `timers`
+   * (JavaScript timers paused until the webview resumes), `webview` (the
+   * WebView was destroyed and is restored from its saved state on resume).
+   */
+  released: ('sessions' | 'caches' | 'timers' | 'webview')[];
 }
 
 export interface WebviewClosedEvent {
@@ -26,10 +664,270 @@ export interface WebviewClosedEvent {
 export interface CustomWebviewPlugin {
   openWebview(options: OpenWebviewOptions): Promise<void>;
 
+  /**
+   * Creates and configures WebViews ahead of time so the next `openWebview`
+   * can show content without paying the WebView startup cost (Android).
+   * Pooled WebViews are released automatically under memory pressure.
+   */
+  prewarm(options?: PrewarmOptions): Promise<PrewarmResult>;
+
+  /**
+   * Returns the most recent network entries (up to 500) recorded while
+   * `debug` or `captureNetwork` was enabled (Android).
+   */
+  getNetworkLog(options?: GetNetworkLogOptions): Promise<GetNetworkLogResult>;
+
+  /**
+   * Hit/miss counters (since app start) and disk usage of the `assetCache` (Android).
+   */
+  getAssetCacheStats(): Promise<AssetCacheStats>;
+
+  /**
+   * Downloads resources in the background so the next `openWebview` can serve
+   * them from memory (Android). Responses are kept for 5 minutes and dropped
+   * when the system reports memory pressure.
+   */
+  prefetch(options: PrefetchOptions): Promise<PrefetchResult>;
+
+  /**
+   * Writes cookies to the shared cookie jar and persists them in one flush
+   * (Android). Await it before `openWebview` so the first request is
+   * already authenticated.
+   */
+  setCookies(options: SetCookiesOptions): Promise<SetCookiesResult>;
+
+  /**
+   * Sends a text message to the page over the `messageChannel` (Android).
+   * Rejects when no page is connected.
+   */
+  postChannelMessage(options: PostChannelMessageOptions): Promise<void>;
+
+  /**
+   * Shows another session in the open webview, creating it with `url` when
+   * needed (Android). Page events only report the session on screen.
+   */
+  switchSession(options: SwitchSessionOptions): Promise<void>;
+
+  /**
+   * Closes a session (Android). Closing the one on screen switches to the
+   * most recently used session, or closes the webview when none is left.
+   */
+  closeSession(options: CloseSessionOptions): Promise<void>;
+
+  /**
+   * Lists the sessions of the open webview (Android). Empty when none is open.
+   */
+  getSessions(): Promise<GetSessionsResult>;
+
+  /**
+   * Compiles block rules in the background and replaces the current ones
+   * (Android). Used by webviews opened with `contentBlocking`, including one
+   * already open. Pass `rules: []` to block nothing.
+   */
+  loadContentBlockingRules(options: LoadContentBlockingRulesOptions): Promise<LoadContentBlockingRulesResult>;
+
+  /**
+   * Forgets the geolocation decisions remembered per origin (Android).
+   */
+  clearGeolocationDecisions(): Promise<void>;
+
+  /**
+   * Installs or replaces a content pack served offline from
+   * `https://appassets.androidplatform.net/packs/` (Android). A zip is
+   * extracted in the background and swapped in only once complete.
+   */
+  installContentPack(options: InstallContentPackOptions): Promise<InstallContentPackResult>;
+
+  /**
+   * Removes a content pack and its files (Android).
+   */
+  removeContentPack(options: RemoveContentPackOptions): Promise<RemoveContentPackResult>;
+
+  /**
+   * Deletes saved session snapshots (Android), e.g. on logout.
+   */
+  clearSessionSnapshots(options?: ClearSessionSnapshotsOptions): Promise<void>;
+
+  /**
+   * Sets diagnostics levels per category and logcat mirroring (Android).
+   * Resolves with the configuration in effect. Levels apply to every webview
+   * until the app restarts.
+   */
+  configureDiagnostics(options: ConfigureDiagnosticsOptions): Promise<ConfigureDiagnosticsResult>;
+
+  /**
+   * Returns the most recent diagnostics events, e.g. to attach to a bug
+   * report (Android).
+   */
+  getDiagnostics(options?: GetDiagnosticsOptions): Promise<GetDiagnosticsResult>;
+
+  /**
+   * Returns the page metrics summary of the open webview, or of the last one
+   * opened with `pageMetrics` (Android).
+   */
+  getPageMetrics(): Promise<GetPageMetricsResult>;
+
+  /**
+   * Warms up the Custom Tabs browser and tells it `url` is likely to be
+   * opened, ahead of `openWebview` with `mode: 'customTabs'` (Android).
+   */
+  prepare(options: PrepareOptions): Promise<PrepareResult>;
+
   addListener(
     eventName: 'webviewClosed',
     listenerFunc: (event: WebviewClosedEvent) => void,
   ): Promise<PluginListenerHandle>;
 
+  /**
+   * Progress of a `downloadEngine: 'parallel'` download, at most every 250 ms.
+   */
+  addListener(
+    eventName: 'downloadProgress',
+    listenerFunc: (event: DownloadProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A `downloadEngine: 'parallel'` download finished or failed.
+   */
+  addListener(
+    eventName: 'downloadComplete',
+    listenerFunc: (event: DownloadCompleteEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Files picked for upload were processed with `uploadImages`.
+   */
+  addListener(
+    eventName: 'uploadProcessed',
+    listenerFunc: (event: UploadProcessedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Startup timing breakdown of an open, sent once the first page finishes
+   * loading (Android).
+   */
+  addListener(
+    eventName: 'webviewTiming',
+    listenerFunc: (event: WebviewTimingEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * The WebView's renderer process crashed or was killed (Android 8+).
+   */
+  addListener(
+    eventName: 'renderProcessGone',
+    listenerFunc: (event: RenderProcessGoneEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * The system asked the webview to trim memory (Android).
+   */
+  addListener(
+    eventName: 'memoryPressure',
+    listenerFunc: (event: MemoryPressureEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A page's `getCurrentPosition` call was answered, from the warm fix or
+   * not (Android). Running totals for the current open.
+   */
+  addListener(
+    eventName: 'geolocationServed',
+    listenerFunc: (event: GeolocationServedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Images were served smaller with `dataSaver` (Android). Running totals
+   * for the current open, at most every 500 ms.
+   */
+  addListener(
+    eventName: 'dataSaved',
+    listenerFunc: (event: DataSavedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Page metrics of an open with `pageMetrics`, sent once when the webview
+   * closes (Android).
+   */
+  addListener(
+    eventName: 'pageMetrics',
+    listenerFunc: (event: PageMetricsSummary) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Requests were blocked on the current page (Android). Running totals per
+   * page, at most every 500 ms.
+   */
+  addListener(
+    eventName: 'contentBlocked',
+    listenerFunc: (event: ContentBlockedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A page started loading in the webview (Android).
+   */
+  addListener(
+    eventName: 'pageStarted',
+    listenerFunc: (event: PageStartedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Load progress of the current page (Android). Only the latest value is
+   * delivered, at most every 100 ms.
+   */
+  addListener(
+    eventName: 'pageProgress',
+    listenerFunc: (event: PageProgressEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * The page title changed (Android). Only the latest value is delivered.
+   */
+  addListener(
+    eventName: 'titleChanged',
+    listenerFunc: (event: TitleChangedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * The URL of the page changed (Android). Only the latest value is delivered.
+   */
+  addListener(
+    eventName: 'urlChanged',
+    listenerFunc: (event: UrlChangedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A request in the webview got an HTTP error status (Android). At most 10
+   * per second are delivered.
+   */
+  addListener(
+    eventName: 'httpError',
+    listenerFunc: (event: HttpErrorEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * A download was queued (Android). Duplicates of a running download are not reported.
+   */
+  addListener(
+    eventName: 'downloadStarted',
+    listenerFunc: (event: DownloadStartedEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Text messages sent by the page with `CustomWebviewChannel.send()`.
+   */
+  addListener(
+    eventName: 'channelMessage',
+    listenerFunc: (event: ChannelMessageEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Binary messages sent by the page with `CustomWebviewChannel.send()`.
+   */
+  addListener(
+    eventName: 'channelBinary',
+    listenerFunc: (event: ChannelBinaryEvent) => void,
+  ): Promise<PluginListenerHandle>;
+
   removeAllListeners(): Promise<void>;
 }
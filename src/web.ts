@@ -1,9 +1,111 @@
 import { WebPlugin } from '@capacitor/core';
 
-import type { CustomWebviewPlugin, OpenWebviewOptions } from './definitions';
+import type {
+  AssetCacheStats,
+  ClearSessionSnapshotsOptions,
+  CloseSessionOptions,
+  ConfigureDiagnosticsOptions,
+  ConfigureDiagnosticsResult,
+  CustomWebviewPlugin,
+  GetDiagnosticsOptions,
+  GetDiagnosticsResult,
+  GetNetworkLogOptions,
+  GetNetworkLogResult,
+  GetPageMetricsResult,
+  GetSessionsResult,
+  InstallContentPackOptions,
+  InstallContentPackResult,
+  LoadContentBlockingRulesOptions,
+  LoadContentBlockingRulesResult,
+  OpenWebviewOptions,
+  PostChannelMessageOptions,
+  PrefetchOptions,
+  PrepareOptions,
+  PrepareResult,
+  PrefetchResult,
+  PrewarmOptions,
+  PrewarmResult,
+  RemoveContentPackOptions,
+  RemoveContentPackResult,
+  SetCookiesOptions,
+  SetCookiesResult,
+  SwitchSessionOptions,
+} from './definitions';
 
 export class CustomWebviewWeb extends WebPlugin implements CustomWebviewPlugin {
   async openWebview(_options: OpenWebviewOptions): Promise<void> {
     throw this.unimplemented('Not implemented on web.');
   }
+
+  async prewarm(_options?: PrewarmOptions): Promise<PrewarmResult> {
+    return { pooled: 0 };
+  }
+
+  async getNetworkLog(_options?: GetNetworkLogOptions): Promise<GetNetworkLogResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getAssetCacheStats(): Promise<AssetCacheStats> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async prefetch(_options: PrefetchOptions): Promise<PrefetchResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async setCookies(_options: SetCookiesOptions): Promise<SetCookiesResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async postChannelMessage(_options: PostChannelMessageOptions): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async switchSession(_options: SwitchSessionOptions): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async closeSession(_options: CloseSessionOptions): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getSessions(): Promise<GetSessionsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async clearSessionSnapshots(_options?: ClearSessionSnapshotsOptions): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async loadContentBlockingRules(_options: LoadContentBlockingRulesOptions): Promise<LoadContentBlockingRulesResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async installContentPack(_options: InstallContentPackOptions): Promise<InstallContentPackResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async removeContentPack(_options: RemoveContentPackOptions): Promise<RemoveContentPackResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async clearGeolocationDecisions(): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async configureDiagnostics(_options: ConfigureDiagnosticsOptions): Promise<ConfigureDiagnosticsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getDiagnostics(_options?: GetDiagnosticsOptions): Promise<GetDiagnosticsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getPageMetrics(): Promise<GetPageMetricsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async prepare(_options: PrepareOptions): Promise<PrepareResult> {
+    return { supported: false };
+  }
 }